@@ -0,0 +1,54 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.builtin.Sorts;
+import org.kframework.kore.K;
+import org.kframework.parser.binary.BinaryParser;
+import org.kframework.unparser.ToBinary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.kframework.kore.KORE.*;
+
+/**
+ * Reading and writing binary KAST for a sequence of {@code size} cells, each holding a few tokens, some of which
+ * are shared between cells as in real configurations.
+ */
+@State(Scope.Thread)
+public class BinaryParserBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private K term;
+    private byte[] kast;
+
+    @Setup
+    public void setUp() {
+        List<K> cells = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            cells.add(KApply(KLabel("<account>"),
+                    KToken(Integer.toString(i), Sorts.Int()),
+                    KToken(Integer.toString(i % 16), Sorts.Int()),
+                    KToken("\"account\"", Sorts.String())));
+        }
+        term = KSequence(cells);
+        kast = ToBinary.apply(term);
+    }
+
+    @Benchmark
+    public K parse() {
+        return BinaryParser.parse(kast);
+    }
+
+    @Benchmark
+    public byte[] write() {
+        return ToBinary.apply(term);
+    }
+}
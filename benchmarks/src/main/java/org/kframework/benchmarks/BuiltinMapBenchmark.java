@@ -0,0 +1,57 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.backend.java.builtins.BuiltinMapOperations;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.BuiltinMap;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Updates of a concrete {@link BuiltinMap} of {@code size} entries, one key at a time and by another map holding
+ * a tenth of its keys.
+ */
+@State(Scope.Thread)
+public class BuiltinMapBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    private TermContext termContext;
+    private Term map;
+    private BuiltinMap updates;
+    private IntToken key;
+    private IntToken value;
+
+    @Setup
+    public void setUp(ImpDefinition imp) {
+        termContext = imp.termContext();
+        BuiltinMap.Builder builder = BuiltinMap.builder(imp.global());
+        BuiltinMap.Builder updatesBuilder = BuiltinMap.builder(imp.global());
+        for (int i = 0; i < size; i++) {
+            builder.put(IntToken.of(i), IntToken.of(i));
+            if (i % 10 == 0) {
+                updatesBuilder.put(IntToken.of(i), IntToken.of(-i));
+            }
+        }
+        map = builder.build();
+        updates = (BuiltinMap) updatesBuilder.build();
+        key = IntToken.of(size / 2);
+        value = IntToken.of(-1);
+    }
+
+    @Benchmark
+    public Term update() {
+        return BuiltinMapOperations.update(map, key, value, termContext);
+    }
+
+    @Benchmark
+    public Term updateAll() {
+        return BuiltinMapOperations.updateAll(map, updates, termContext);
+    }
+}
@@ -0,0 +1,50 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.builtin.Sorts;
+import org.kframework.kore.K;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static org.kframework.kore.KORE.*;
+
+/**
+ * Evaluation of {@link KItem}s applying functions: a chain of {@code size} nested {@code _+Int_} and
+ * {@code _<=Int_} applications. Terms remember that they have been evaluated, so each invocation converts the
+ * term again; {@link #convert} measures the conversion alone.
+ */
+@State(Scope.Thread)
+public class FunctionEvaluationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private K term;
+    private TermContext termContext;
+
+    @Setup
+    public void setUp(ImpDefinition imp) {
+        K sum = KToken("0", Sorts.Int());
+        for (int i = 1; i <= size; i++) {
+            sum = KApply(KLabel("_+Int_"), sum, KToken(Integer.toString(i), Sorts.Int()));
+        }
+        term = KApply(KLabel("_<=Int_"), sum, KToken(Integer.toString(size * size), Sorts.Int()));
+        termContext = imp.termContext();
+    }
+
+    @Benchmark
+    public Term convert() {
+        return termContext.getKOREtoBackendKILConverter().convert(term);
+    }
+
+    @Benchmark
+    public Term evaluate() {
+        return termContext.getKOREtoBackendKILConverter().convert(term).evaluate(termContext);
+    }
+}
@@ -0,0 +1,152 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.attributes.Source;
+import org.kframework.backend.java.compile.KOREtoBackendKIL;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.GlobalContext;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.symbolic.InitializeRewriter;
+import org.kframework.backend.java.symbolic.InitializeRewriter.InitializeDefinition;
+import org.kframework.backend.java.symbolic.InitializeRewriter.SymbolicRewriterGlue;
+import org.kframework.builtin.Sorts;
+import org.kframework.compile.ExpandMacros;
+import org.kframework.compile.ResolveSemanticCasts;
+import org.kframework.kompile.CompiledDefinition;
+import org.kframework.kore.K;
+import org.kframework.kprove.KProveOptions;
+import org.kframework.krun.KRunOptions;
+import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.Stopwatch;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
+import org.kframework.utils.options.SMTOptions;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.net.URISyntaxException;
+
+import static org.kframework.kore.KORE.*;
+
+/**
+ * The IMP definition of the K tutorial, kompiled with the Java backend when the benchmarks are packaged,
+ * together with the rewriter the Java backend initializes for it. The definitions are looked up in the directory
+ * given by the {@code k.benchmarks.definitions} system property, by default the {@code definitions} directory next
+ * to the benchmarks jar, where the build kompiles them.
+ */
+@State(Scope.Benchmark)
+public class ImpDefinition {
+
+    static final String DEFINITIONS_PROPERTY = "k.benchmarks.definitions";
+
+    public CompiledDefinition compiledDef;
+    public KExceptionManager kem;
+    public FileUtil files;
+    public GlobalOptions globalOptions;
+    public SymbolicRewriterGlue rewriter;
+
+    @Setup
+    public void setUp() {
+        File kompiled = new File(definitionsDirectory(), "imp/imp-kompiled");
+        globalOptions = new GlobalOptions();
+        kem = new KExceptionManager(globalOptions);
+        files = FileUtil.testFileUtil();
+        compiledDef = new BinaryLoader(kem).loadOrDie(CompiledDefinition.class, new File(kompiled, "compiled.bin"));
+        rewriter = (SymbolicRewriterGlue) new InitializeRewriter(
+                new PortableFileSystem(kem, files),
+                globalOptions,
+                kem,
+                new SMTOptions(),
+                new KRunOptions(),
+                compiledDef.kompileOptions,
+                new KProveOptions(),
+                files,
+                new InitializeDefinition(),
+                new Stopwatch(globalOptions)).apply(compiledDef.executionModule());
+    }
+
+    private static File definitionsDirectory() {
+        String definitions = System.getProperty(DEFINITIONS_PROPERTY);
+        if (definitions != null) {
+            return new File(definitions);
+        }
+        try {
+            File location = new File(ImpDefinition.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            return new File(location.getParentFile(), "definitions");
+        } catch (URISyntaxException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Returns an IMP program declaring {@code size} variables besides {@code n} and {@code sum}, which sums the
+     * numbers from 1 to {@code size}. Both the initial configuration and the number of rewrite steps grow linearly
+     * with {@code size}.
+     */
+    public static String program(int size) {
+        StringBuilder sb = new StringBuilder("int n, sum");
+        for (int i = 0; i < size; i++) {
+            sb.append(", x").append(i);
+        }
+        sb.append(";\n");
+        for (int i = 0; i < size; i++) {
+            sb.append("x").append(i).append(" = ").append(i).append(";\n");
+        }
+        sb.append("n = ").append(size).append(";\n");
+        sb.append("sum = 0;\n");
+        sb.append("while (!(n <= 0)) {\n  sum = sum + n;\n  n = n + -1;\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Returns the initial configuration of the given program, as built by krun.
+     */
+    public K initialConfiguration(String program) {
+        K pgm = compiledDef.getProgramParser(kem).apply(program, Source.apply("benchmark"));
+        K configVars = KApply(KLabel("_Map_"),
+                KApply(KLabel("_Map_"),
+                        KApply(KLabel("_|->_"), KToken("$PGM", Sorts.KConfigVar()), pgm),
+                        KApply(KLabel("_|->_"), KToken("$STDIN", Sorts.KConfigVar()), KToken("\"\"", Sorts.String()))),
+                KApply(KLabel("_|->_"), KToken("$IO", Sorts.KConfigVar()), KToken("\"off\"", Sorts.String())));
+        return KApply(compiledDef.topCellInitializer, configVars);
+    }
+
+    public Definition definition() {
+        return rewriter.definition;
+    }
+
+    public GlobalContext global() {
+        return rewriter.rewritingContext;
+    }
+
+    /**
+     * Returns a fresh term context for the rewriting stage, with a converter from KORE to the terms of the
+     * Java backend.
+     */
+    public TermContext termContext() {
+        TermContext termContext = TermContext.builder(global()).freshCounter(0).build();
+        termContext.setKOREtoBackendKILConverter(new KOREtoBackendKIL(rewriter.module, definition(), global(), false));
+        return termContext;
+    }
+
+    /**
+     * Converts the given KORE term to an evaluated term of the Java backend, as the rewriter does before executing it.
+     */
+    public Term toBackend(K k, TermContext termContext) {
+        ExpandMacros macroExpander = new ExpandMacros(rewriter.module, kem, files, globalOptions, compiledDef.kompileOptions);
+        K resolved = macroExpander.expand(new ResolveSemanticCasts(true).resolve(k));
+        return termContext.getKOREtoBackendKILConverter().convert(resolved).evaluate(termContext);
+    }
+
+    public KItem kItem(String label, Term... children) {
+        return KItem.of(KLabelConstant.of(KLabel(label), definition()), KList.concatenate(children), global());
+    }
+}
@@ -0,0 +1,39 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the benchmarks with the command line of JMH. Unless another result format is requested, the results are
+ * written as JSON to {@code jmh-result.json}, so that runs can be compared over time. The directory of the kompiled
+ * definitions given with {@code -Dk.benchmarks.definitions=<dir>} is passed on to the forked benchmark JVMs.
+ */
+public class Main {
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add(0, "json");
+            options.add(0, "-rf");
+            if (!options.contains("-rff")) {
+                options.add(0, "jmh-result.json");
+                options.add(0, "-rff");
+            }
+        }
+        String definitions = System.getProperty(ImpDefinition.DEFINITIONS_PROPERTY);
+        if (definitions != null) {
+            String property = "-D" + ImpDefinition.DEFINITIONS_PROPERTY + "=" + new File(definitions).getAbsolutePath();
+            int jvmArgsAppend = options.indexOf("-jvmArgsAppend");
+            if (jvmArgsAppend >= 0 && jvmArgsAppend + 1 < options.size()) {
+                options.set(jvmArgsAppend + 1, options.get(jvmArgsAppend + 1) + " " + property);
+            } else {
+                options.add(0, property);
+                options.add(0, "-jvmArgsAppend");
+            }
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[options.size()]));
+    }
+}
@@ -0,0 +1,73 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.symbolic.FastRuleMatcher;
+import org.kframework.backend.java.symbolic.SymbolicRewriter;
+import org.kframework.backend.java.utils.BitSet;
+import org.kframework.kore.K;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Rewriting IMP programs of growing size: a whole execution, a single step of {@link SymbolicRewriter}, and the
+ * matching of all the rules against the initial configuration by {@link FastRuleMatcher}.
+ */
+@State(Scope.Thread)
+public class RewriteBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private ImpDefinition imp;
+    private K initialConfiguration;
+    private ConstrainedTerm initialTerm;
+    private SymbolicRewriter rewriter;
+    private FastRuleMatcher matcher;
+    private BitSet allRules;
+    private List<String> transitions;
+
+    @Setup
+    public void setUp(ImpDefinition imp) {
+        this.imp = imp;
+        initialConfiguration = imp.initialConfiguration(ImpDefinition.program(size));
+        TermContext termContext = imp.termContext();
+        initialTerm = new ConstrainedTerm(imp.toBackend(initialConfiguration, termContext), termContext);
+        transitions = imp.compiledDef.kompileOptions.transition;
+        rewriter = new SymbolicRewriter(imp.global(), transitions, termContext.getKOREtoBackendKILConverter());
+        int ruleCount = imp.definition().ruleTable.size();
+        matcher = new FastRuleMatcher(imp.global(), ruleCount);
+        allRules = BitSet.apply(ruleCount);
+        allRules.makeOnes(ruleCount);
+    }
+
+    @Benchmark
+    public K execute() {
+        return imp.rewriter.execute(initialConfiguration, Optional.empty()).k();
+    }
+
+    @Benchmark
+    public List<ConstrainedTerm> fastComputeRewriteStep() {
+        return rewriter.fastComputeRewriteStep(initialTerm, true, false, false);
+    }
+
+    @Benchmark
+    public List<FastRuleMatcher.RuleMatchResult> matchRulePattern() {
+        return matcher.matchRulePattern(
+                initialTerm,
+                imp.definition().automaton.leftHandSide(),
+                allRules,
+                false,
+                true,
+                transitions,
+                false,
+                initialTerm.termContext());
+    }
+}
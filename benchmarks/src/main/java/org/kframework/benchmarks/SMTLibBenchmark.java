@@ -0,0 +1,44 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.backend.java.builtins.BoolToken;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.symbolic.ConjunctiveFormula;
+import org.kframework.backend.java.symbolic.KILtoSMTLib;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Translation to SMTLIB of a constraint {@code X0 +Int 0 <=Int Y0 andBool ... andBool Xn +Int n <=Int Yn} with
+ * {@code size} conjuncts over integer variables.
+ */
+@State(Scope.Thread)
+public class SMTLibBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int size;
+
+    private ConjunctiveFormula constraint;
+
+    @Setup
+    public void setUp(ImpDefinition imp) {
+        constraint = ConjunctiveFormula.of(imp.global());
+        for (int i = 0; i < size; i++) {
+            constraint = constraint.add(
+                    imp.kItem("_<=Int_",
+                            imp.kItem("_+Int_", new Variable("X" + i, Sort.INT), IntToken.of(i)),
+                            new Variable("Y" + i, Sort.INT)),
+                    BoolToken.TRUE);
+        }
+    }
+
+    @Benchmark
+    public String translateConstraint() {
+        return KILtoSMTLib.translateConstraint(constraint);
+    }
+}
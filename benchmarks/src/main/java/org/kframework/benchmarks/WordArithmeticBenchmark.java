@@ -0,0 +1,56 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.backend.java.builtins.BuiltinIntOperations;
+import org.kframework.backend.java.builtins.IntToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Masked addition of 256-bit words with the builtin integer operations of the Java backend, compared with the
+ * equivalent {@link BigInteger} operations.
+ */
+@State(Scope.Thread)
+public class WordArithmeticBenchmark {
+
+    private static final int SIZE = 1 << 10;
+
+    private final BigInteger[] big = new BigInteger[SIZE];
+    private final IntToken[] tokens = new IntToken[SIZE];
+    private BigInteger mask;
+    private IntToken maskToken;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        for (int i = 0; i < SIZE; i++) {
+            big[i] = new BigInteger(256, random);
+            tokens[i] = IntToken.of(big[i]);
+        }
+        mask = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+        maskToken = IntToken.of(mask);
+    }
+
+    @Benchmark
+    public IntToken bigInteger() {
+        int i = index++;
+        BigInteger a = big[i & (SIZE - 1)];
+        BigInteger b = big[(i * 7) & (SIZE - 1)];
+        return IntToken.of(a.add(b).and(mask).xor(a));
+    }
+
+    @Benchmark
+    public IntToken intToken() {
+        int i = index++;
+        IntToken a = tokens[i & (SIZE - 1)];
+        IntToken b = tokens[(i * 7) & (SIZE - 1)];
+        return BuiltinIntOperations.xor(
+                BuiltinIntOperations.and(BuiltinIntOperations.add(a, b, null), maskToken, null), a, null);
+    }
+}
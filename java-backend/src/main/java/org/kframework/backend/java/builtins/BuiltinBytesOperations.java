@@ -0,0 +1,167 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Table of {@code public static} methods on builtin bytes.
+ * <p>
+ * The methods only apply to {@link BytesToken}s; bytes represented by the constructors of the
+ * {@code BYTES-SYMBOLIC} module are still handled by the rules of that module. For this reason
+ * {@code .Bytes}, {@code Int2Bytes} and {@code String2Bytes} only build tokens in definitions importing
+ * {@code BYTES-TOKEN}, and otherwise keep rewriting to the constructors which those rules expect.
+ */
+public class BuiltinBytesOperations {
+
+    public static BytesToken empty(TermContext context) {
+        if (!context.definition().bytesTokens()) {
+            return null;
+        }
+        return BytesToken.EMPTY;
+    }
+
+    public static IntToken bytes2int(BytesToken term, Term endianness, Term signedness, TermContext context) {
+        Boolean bigEndian = isBigEndian(endianness);
+        Boolean signed = isLabel(signedness, "signedBytes", "unsignedBytes");
+        if (bigEndian == null || signed == null) {
+            return null;
+        }
+        if (term.length() == 0) {
+            return IntToken.of(0);
+        }
+        byte[] bytes = bigEndian ? term.byteArrayValue() : reversed(term.byteArrayValue());
+        return IntToken.of(signed ? new BigInteger(bytes) : new BigInteger(1, bytes));
+    }
+
+    /**
+     * Returns the {@code length} lowest bytes of the two's complement representation of {@code value}.
+     * Like the rules of {@code BYTES-SYMBOLIC}, leading zero bytes of the result are replaced by 255
+     * if {@code value} is negative.
+     */
+    public static BytesToken int2bytes(IntToken length, IntToken value, Term endianness, TermContext context) {
+        Boolean bigEndian = isBigEndian(endianness);
+        if (!context.definition().bytesTokens() || bigEndian == null || length.signum() < 0) {
+            return null;
+        }
+        int len;
+        BigInteger modulus;
+        try {
+            len = length.intValue();
+            modulus = BigInteger.ONE.shiftLeft(Math.multiplyExact(8, len));
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        BigInteger residue = value.bigIntegerValue().mod(modulus);
+        byte[] bytes = new byte[len];
+        if (value.signum() < 0) {
+            Arrays.fill(bytes, (byte) 0xff);
+        }
+        int significant = (residue.bitLength() + 7) / 8;
+        byte[] magnitude = residue.toByteArray();
+        System.arraycopy(magnitude, magnitude.length - significant, bytes, len - significant, significant);
+        return BytesToken.of(bigEndian ? bytes : reversed(bytes));
+    }
+
+    public static StringToken bytes2string(BytesToken term, TermContext context) {
+        return StringToken.of(term.stringValue());
+    }
+
+    public static BytesToken string2bytes(StringToken term, TermContext context) {
+        if (!context.definition().bytesTokens()) {
+            return null;
+        }
+        try {
+            return BytesToken.ofLatin1(term.stringValue());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public static BytesToken substr(BytesToken term, IntToken start, IntToken end, TermContext context) {
+        try {
+            return term.slice(start.intValue(), end.intValue());
+        } catch (ArithmeticException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    public static BytesToken replaceAt(BytesToken term, IntToken index, BytesToken replacement, TermContext context) {
+        int offset;
+        try {
+            offset = index.intValue();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        if (offset < 0 || offset + (long) replacement.length() > term.length()) {
+            return null;
+        }
+        byte[] bytes = term.byteArrayValue();
+        replacement.byteBufferValue().get(bytes, offset, replacement.length());
+        return BytesToken.of(bytes);
+    }
+
+    public static BytesToken padRight(BytesToken term, IntToken length, IntToken value, TermContext context) {
+        return pad(term, length, value, false);
+    }
+
+    public static BytesToken padLeft(BytesToken term, IntToken length, IntToken value, TermContext context) {
+        return pad(term, length, value, true);
+    }
+
+    private static BytesToken pad(BytesToken term, IntToken length, IntToken value, boolean left) {
+        int len;
+        byte padding;
+        try {
+            len = length.intValue();
+            padding = value.unsignedByteValue();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        if (len <= term.length()) {
+            return term;
+        }
+        byte[] bytes = new byte[len];
+        Arrays.fill(bytes, padding);
+        term.byteBufferValue().get(bytes, left ? len - term.length() : 0, term.length());
+        return BytesToken.of(bytes);
+    }
+
+    public static BytesToken reverse(BytesToken term, TermContext context) {
+        return BytesToken.of(reversed(term.byteArrayValue()));
+    }
+
+    public static IntToken length(BytesToken term, TermContext context) {
+        return IntToken.of(term.length());
+    }
+
+    private static byte[] reversed(byte[] bytes) {
+        for (int i = 0, j = bytes.length - 1; i < j; i++, j--) {
+            byte b = bytes[i];
+            bytes[i] = bytes[j];
+            bytes[j] = b;
+        }
+        return bytes;
+    }
+
+    private static Boolean isBigEndian(Term endianness) {
+        return isLabel(endianness, "bigEndianBytes", "littleEndianBytes");
+    }
+
+    /**
+     * Returns true if the given term is the constant {@code yes}, false if it is the constant {@code no},
+     * and null otherwise.
+     */
+    private static Boolean isLabel(Term term, String yes, String no) {
+        if (!(term instanceof KItem) || !(((KItem) term).kLabel() instanceof KLabelConstant)) {
+            return null;
+        }
+        String name = ((KLabelConstant) ((KItem) term).kLabel()).name();
+        return name.equals(yes) ? Boolean.TRUE : name.equals(no) ? Boolean.FALSE : null;
+    }
+}
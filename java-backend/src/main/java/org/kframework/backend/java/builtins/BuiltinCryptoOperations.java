@@ -26,6 +26,7 @@ import org.kframework.backend.java.builtins.crypto.PairingCheck;
 import org.kframework.kore.KORE;
 
 import java.math.BigInteger;
+import java.security.MessageDigest;
 import java.security.SignatureException;
 import java.util.Arrays;
 
@@ -94,6 +95,39 @@ public final class BuiltinCryptoOperations {
         return StringToken.of(digestString);
     }
 
+    /**
+     * Finds the keccak256 digest of the input, as 32 bytes.
+     */
+    public static BytesToken keccak256Raw(BytesToken input, TermContext context) {
+        return digest(new Keccak.Digest256(), input);
+    }
+
+    /**
+     * Finds the SHA3 digest of the input, as 32 bytes.
+     */
+    public static BytesToken sha3256Raw(BytesToken input, TermContext context) {
+        return digest(new SHA3.Digest256(), input);
+    }
+
+    /**
+     * Finds the SHA256 digest of the input, as 32 bytes.
+     */
+    public static BytesToken sha256Raw(BytesToken input, TermContext context) {
+        return digest(new SHA256.Digest(), input);
+    }
+
+    /**
+     * Finds the RIPEMD160 digest of the input, as 20 bytes.
+     */
+    public static BytesToken ripemd160Raw(BytesToken input, TermContext context) {
+        return digest(new RIPEMD160.Digest(), input);
+    }
+
+    private static BytesToken digest(MessageDigest engine, BytesToken input) {
+        engine.update(input.array(), input.arrayOffset(), input.length());
+        return BytesToken.of(engine.digest());
+    }
+
     /**
      * Recovers the ECDSA Public key from a message hash and signature
      * @param messageHash a 32-character string in Latin-1 encoding representing the 32-byte message hash of the signed message
@@ -116,6 +150,20 @@ public final class BuiltinCryptoOperations {
         }
     }
 
+    /**
+     * Recovers the ECDSA Public key from a message hash and signature, as {@link #ecdsaRecover} does,
+     * with the hash, the signature components and the public key as bytes.
+     */
+    public static BytesToken ecdsaRecoverRaw(BytesToken messageHash, IntToken v, BytesToken r, BytesToken s, TermContext context) {
+        try {
+            byte vByte = v.bigIntegerValue().byteValueExact();
+            ECDSARecover key = ECDSARecover.signatureToKey(messageHash.byteArrayValue(), r.byteArrayValue(), s.byteArrayValue(), vByte);
+            return BytesToken.of(Arrays.copyOfRange(key.getPubKey(), 1, 65));
+        } catch (SignatureException | IllegalArgumentException | ArithmeticException e) {
+            return BytesToken.EMPTY;
+        }
+    }
+
     private static BigInteger getCoord(KItem kitem, int idx) {
         K item = kitem.items().get(idx);
         if (!(item instanceof IntToken)) {
@@ -14,20 +14,20 @@ import java.util.Random;
 public class BuiltinIntOperations {
 
     public static IntToken add(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().add(term2.bigIntegerValue()));
+        return term1.add(term2);
     }
 
     public static IntToken sub(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().subtract(term2.bigIntegerValue()));
+        return term1.subtract(term2);
     }
 
     public static IntToken mul(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().multiply(term2.bigIntegerValue()));
+        return term1.multiply(term2);
     }
 
     public static IntToken div(IntToken term1, IntToken term2, TermContext context) {
         try {
-            return IntToken.of(term1.bigIntegerValue().divide(term2.bigIntegerValue()));
+            return term1.divide(term2);
         } catch (ArithmeticException e) {
             return null;
         }
@@ -45,14 +45,14 @@ public class BuiltinIntOperations {
 
     public static IntToken rem(IntToken term1, IntToken term2, TermContext context) {
         try {
-            return IntToken.of(term1.bigIntegerValue().remainder(term2.bigIntegerValue()));
+            return term1.remainder(term2);
         } catch (ArithmeticException e) {
             return null;
         }
     }
 
     public static IntToken mod(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().mod(term2.bigIntegerValue()));
+        return term1.mod(term2);
     }
 
     public static IntToken pow(IntToken term1, IntToken term2, TermContext context) {
@@ -64,14 +64,14 @@ public class BuiltinIntOperations {
     }
 
     public static IntToken shl(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().shiftLeft(term2.bigIntegerValue().intValueExact()));
+        return term1.shiftLeft(term2.intValue());
     }
 
     public static IntToken shr(IntToken term1, IntToken term2, TermContext context) {
         try {
-            return IntToken.of(term1.bigIntegerValue().shiftRight(term2.bigIntegerValue().intValueExact()));
+            return term1.shiftRight(term2.intValue());
         } catch (ArithmeticException e) {
-           if (term1.bigIntegerValue().compareTo(BigInteger.ZERO) >= 0) {
+           if (term1.signum() >= 0) {
                return IntToken.of(0);
            } else {
                return IntToken.of(-1);
@@ -80,67 +80,61 @@ public class BuiltinIntOperations {
     }
 
     public static IntToken not(IntToken term, TermContext context) {
-        return IntToken.of(term.bigIntegerValue().not());
+        return term.not();
     }
 
     public static IntToken and(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().and(term2.bigIntegerValue()));
+        return term1.and(term2);
     }
 
     public static IntToken or(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().or(term2.bigIntegerValue()));
+        return term1.or(term2);
     }
 
     public static IntToken xor(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().xor(term2.bigIntegerValue()));
+        return term1.xor(term2);
     }
 
     public static IntToken min(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().min(term2.bigIntegerValue()));
+        return term1.compareTo(term2) <= 0 ? term1 : term2;
     }
 
     public static IntToken max(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().max(term2.bigIntegerValue()));
+        return term1.compareTo(term2) >= 0 ? term1 : term2;
     }
 
     public static IntToken abs(IntToken term, TermContext context) {
-        return IntToken.of(term.bigIntegerValue().abs());
+        return term.abs();
     }
 
     public static IntToken log2(IntToken term, TermContext context) {
-        BigInteger val = term.bigIntegerValue();
-        if (val.compareTo(BigInteger.ZERO) <= 0)
+        if (term.signum() <= 0)
             return null;
-        int log2 = 0;
-        while (val.compareTo(BigInteger.ONE) > 0) {
-            val = val.shiftRight(1);
-            log2++;
-        }
-        return IntToken.of(log2);
+        return IntToken.of(term.log2());
     }
 
     public static BoolToken eq(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) == 0);
+        return BoolToken.of(term1.equals(term2));
     }
 
     public static BoolToken ne(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) != 0);
+        return BoolToken.of(!term1.equals(term2));
     }
 
     public static BoolToken gt(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) > 0);
+        return BoolToken.of(term1.compareTo(term2) > 0);
     }
 
     public static BoolToken ge(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) >= 0);
+        return BoolToken.of(term1.compareTo(term2) >= 0);
     }
 
     public static BoolToken lt(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) < 0);
+        return BoolToken.of(term1.compareTo(term2) < 0);
     }
 
     public static BoolToken le(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) <= 0);
+        return BoolToken.of(term1.compareTo(term2) <= 0);
     }
 
     private static final Random randomGenerator = new Random();
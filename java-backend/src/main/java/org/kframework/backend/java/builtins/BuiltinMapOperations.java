@@ -86,7 +86,7 @@ public class BuiltinMapOperations {
     public static Term difference(BuiltinMap map1, BuiltinMap map2, TermContext context) {
         BuiltinMap.Builder builder = BuiltinMap.builder(context.global());
         if (!map1.isGround() || !map2.isGround()) {
-            if (map1.getEntries().entrySet().containsAll(map2.getEntries().entrySet())
+            if (containsAllEntries(map1, map2)
                     && Multisets.containsOccurrences(map1.baseTerms(), map2.baseTerms())) {
                 builder.putAll(Maps.difference(map1.getEntries(), map2.getEntries()).entriesOnlyOnLeft());
                 builder.concatenate(Multisets.difference(map1.baseTerms(), map2.baseTerms()));
@@ -204,7 +204,20 @@ public class BuiltinMapOperations {
             return null;
         }
 
-        return BoolToken.of(map2.getEntries().entrySet().containsAll(map1.getEntries().entrySet()));
+        return BoolToken.of(containsAllEntries(map2, map1));
+    }
+
+    /**
+     * Checks whether every concrete entry of {@code map2} is also an entry of {@code map1},
+     * using key lookups rather than a scan of the entry set.
+     */
+    private static boolean containsAllEntries(BuiltinMap map1, BuiltinMap map2) {
+        for (Entry<Term, Term> entry : map2.getEntries().entrySet()) {
+            if (!entry.getValue().equals(map1.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public static Term choice(BuiltinMap map, TermContext context) {
@@ -0,0 +1,181 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import org.kframework.backend.java.kil.JavaSymbolicObject;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.Token;
+import org.kframework.backend.java.symbolic.Transformer;
+import org.kframework.backend.java.symbolic.Visitor;
+import org.kframework.utils.StringUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A bytes token. Bytes tokens represent an immutable sequence of bytes, stored as a range of a
+ * {@code byte[]} which may be shared with other tokens: slicing a token does not copy its contents,
+ * and concatenation copies each operand once.
+ * <p>
+ * The textual representation of a bytes token is a K string whose characters are the Latin-1 decoding
+ * of its bytes, as in the OCaml backend.
+ */
+public final class BytesToken extends Token {
+
+    public static final Sort SORT = Sort.BYTES;
+
+    public static final BytesToken EMPTY = new BytesToken(new byte[0], 0, 0);
+
+    /* the contents of this token are bytes[offset .. offset + length - 1]; never modified */
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    private BytesToken(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns a {@code BytesToken} wrapping the given array, without copying it. The caller must not
+     * modify the array afterwards.
+     */
+    public static BytesToken of(byte[] value) {
+        return value.length == 0 ? EMPTY : new BytesToken(value, 0, value.length);
+    }
+
+    /**
+     * Returns a {@code BytesToken} with the Latin-1 encoding of the given string.
+     * @throws IllegalArgumentException the string contains code points outside the 0-255 range.
+     */
+    public static BytesToken ofLatin1(String value) {
+        byte[] bytes = new byte[value.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = value.charAt(i);
+            if (c > 0xff) {
+                throw new IllegalArgumentException("Character out of the Latin-1 range in " + value);
+            }
+            bytes[i] = (byte) c;
+        }
+        return of(bytes);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the byte at the given index, as an unsigned value.
+     */
+    public int get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        }
+        return bytes[offset + index] & 0xff;
+    }
+
+    /**
+     * Returns the bytes between {@code from}, inclusive, and {@code to}, exclusive, sharing the contents of this token.
+     * @throws IndexOutOfBoundsException the range is not within this token.
+     */
+    public BytesToken slice(int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + length);
+        }
+        if (from == 0 && to == length) {
+            return this;
+        }
+        return from == to ? EMPTY : new BytesToken(bytes, offset + from, to - from);
+    }
+
+    public BytesToken concat(BytesToken other) {
+        if (other.length == 0) {
+            return this;
+        } else if (length == 0) {
+            return other;
+        }
+        byte[] result = Arrays.copyOfRange(bytes, offset, offset + length + other.length);
+        System.arraycopy(other.bytes, other.offset, result, length, other.length);
+        return of(result);
+    }
+
+    /**
+     * Returns a read-only view of the contents of this token, positioned at its first byte.
+     */
+    public ByteBuffer byteBufferValue() {
+        return ByteBuffer.wrap(bytes, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the array backing this token, which must not be modified; the contents of this token start at
+     * {@link #arrayOffset()}.
+     */
+    byte[] array() {
+        return bytes;
+    }
+
+    int arrayOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns a copy of the contents of this token.
+     */
+    public byte[] byteArrayValue() {
+        return Arrays.copyOfRange(bytes, offset, offset + length);
+    }
+
+    /**
+     * Returns the Latin-1 decoding of the contents of this token.
+     */
+    public String stringValue() {
+        return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public Sort sort() {
+        return SORT;
+    }
+
+    @Override
+    public String javaBackendValue() {
+        return StringUtil.enquoteKString(stringValue());
+    }
+
+    @Override
+    protected int computeHash() {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (!(object instanceof BytesToken)) return false;
+
+        BytesToken other = (BytesToken) object;
+        if (length != other.length || hashCode() != other.hashCode()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[offset + i] != other.bytes[other.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public JavaSymbolicObject accept(Transformer transformer) {
+        return transformer.transform((Token) this);
+    }
+
+    @Override
+    public void accept(Visitor visitor) {
+        visitor.visit((Token) this);
+    }
+}
@@ -12,6 +12,11 @@ import java.math.BigInteger;
 
 /**
  * An integer token. Integer tokens have arbitrary precision.
+ * <p>
+ * Integers whose absolute value is less than 2^256 are stored in fixed width, as a sign and
+ * a magnitude of four 64-bit limbs, and the arithmetic methods of this class compute on the limbs
+ * directly. Larger integers, and the operations without a fixed-width implementation, use
+ * {@link BigInteger}. Every integer has exactly one representation, so the two never need to be compared.
  *
  * @author AndreiS
  */
@@ -19,25 +24,75 @@ public final class IntToken extends Token {
 
     public static final Sort SORT = Sort.INT;
 
-    /* BigInteger javaBackendValue wrapped by this IntToken */
-    private final BigInteger value;
+    private static final int LIMB_BITS = 64;
+    private static final int WIDTH = 4 * LIMB_BITS;
+
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    private static final IntToken[] CACHE = new IntToken[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = CACHE_LOW; i <= CACHE_HIGH; i++) {
+            CACHE[i - CACHE_LOW] = new IntToken(Integer.signum(i), Math.abs(i), 0, 0, 0, null);
+        }
+    }
+
+    private static final IntToken ZERO = CACHE[-CACHE_LOW];
+    private static final IntToken MINUS_ONE = CACHE[-1 - CACHE_LOW];
+
+    /* true iff the value is stored in the limbs below */
+    private final boolean fixedWidth;
+    /* -1, 0 or 1 for fixed-width values */
+    private final int signum;
+    /* magnitude of fixed-width values, least significant limb first */
+    private final long limb0, limb1, limb2, limb3;
+
+    /* BigInteger javaBackendValue wrapped by this IntToken; computed lazily for fixed-width values */
+    private BigInteger value;
+
+    private IntToken(int signum, long limb0, long limb1, long limb2, long limb3, BigInteger value) {
+        this.fixedWidth = true;
+        this.signum = signum;
+        this.limb0 = limb0;
+        this.limb1 = limb1;
+        this.limb2 = limb2;
+        this.limb3 = limb3;
+        this.value = value;
+    }
 
     private IntToken(BigInteger value) {
+        this.fixedWidth = false;
+        this.signum = value.signum();
+        this.limb0 = this.limb1 = this.limb2 = this.limb3 = 0;
         this.value = value;
     }
 
     /**
-     * Returns a {@code IntToken} representation of the given {@link BigInteger} javaBackendValue. The
-     * {@code IntToken} instances are cached to ensure uniqueness (subsequent invocations of this
-     * method with the same {@code BigInteger} javaBackendValue return the same {@code IntToken} object).
+     * Returns a {@code IntToken} representation of the given {@link BigInteger} javaBackendValue.
+     * Small values are cached (subsequent invocations of this method with the same small value
+     * return the same {@code IntToken} object).
      */
     public static IntToken of(BigInteger value) {
         assert value != null;
-        return new IntToken(value);
+        BigInteger magnitude = value.abs();
+        if (magnitude.bitLength() > WIDTH) {
+            return new IntToken(value);
+        }
+        return fixed(
+                value.signum(),
+                magnitude.longValue(),
+                magnitude.shiftRight(LIMB_BITS).longValue(),
+                magnitude.shiftRight(2 * LIMB_BITS).longValue(),
+                magnitude.shiftRight(3 * LIMB_BITS).longValue(),
+                value);
     }
 
     public static IntToken of(long value) {
-        return of(BigInteger.valueOf(value));
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return CACHE[(int) value - CACHE_LOW];
+        }
+        // the magnitude of Long.MIN_VALUE is its unsigned interpretation
+        return new IntToken(Long.signum(value), value < 0 ? -value : value, 0, 0, 0, null);
     }
 
     public static IntToken of(String value) {
@@ -54,11 +109,58 @@ public final class IntToken extends Token {
         }
     }
 
+    private static IntToken fixed(int signum, long limb0, long limb1, long limb2, long limb3, BigInteger value) {
+        if ((limb1 | limb2 | limb3) == 0 && limb0 >= 0 && limb0 <= CACHE_HIGH) {
+            long small = signum < 0 ? -limb0 : limb0;
+            if (small >= CACHE_LOW) {
+                return CACHE[(int) small - CACHE_LOW];
+            }
+        }
+        if ((limb0 | limb1 | limb2 | limb3) == 0) {
+            return ZERO;
+        }
+        return new IntToken(signum, limb0, limb1, limb2, limb3, value);
+    }
+
+    private static IntToken fixed(int signum, long limb0, long limb1, long limb2, long limb3) {
+        return fixed(signum, limb0, limb1, limb2, limb3, null);
+    }
+
     /**
      * Returns a {@link BigInteger} representation of the (interpreted) javaBackendValue of this IntToken.
      */
     public BigInteger bigIntegerValue() {
-        return value;
+        BigInteger v = value;
+        if (v == null) {
+            byte[] magnitude = new byte[WIDTH / 8];
+            for (int i = 0; i < 4; i++) {
+                long limb = limb(i);
+                for (int j = 0; j < 8; j++) {
+                    magnitude[magnitude.length - 1 - (i * 8 + j)] = (byte) (limb >>> (8 * j));
+                }
+            }
+            v = new BigInteger(signum, magnitude);
+            value = v;
+        }
+        return v;
+    }
+
+    private long limb(int i) {
+        switch (i) {
+        case 0: return limb0;
+        case 1: return limb1;
+        case 2: return limb2;
+        case 3: return limb3;
+        default: return 0;
+        }
+    }
+
+    /**
+     * Returns true iff this integer is in the range of a {@code long}.
+     */
+    private boolean fitsLong() {
+        return fixedWidth && (limb1 | limb2 | limb3) == 0
+                && (limb0 >= 0 || signum < 0 && limb0 == Long.MIN_VALUE);
     }
 
     /**
@@ -67,13 +169,10 @@ public final class IntToken extends Token {
      * @throws ArithmeticException Integer does not fit in an int.
      */
     public int intValue() {
-        if (value.compareTo(BigInteger.valueOf(Integer.MAX_VALUE)) > 0) {
-            throw new ArithmeticException("IntToken too large for Int");
+        if (!fitsLong() || signum * limb0 > Integer.MAX_VALUE || signum * limb0 < Integer.MIN_VALUE) {
+            throw new ArithmeticException(signum > 0 ? "IntToken too large for Int" : "IntToken too low for Int");
         }
-        if (value.compareTo(BigInteger.valueOf(Integer.MIN_VALUE)) < 0) {
-            throw new ArithmeticException("IntToken too low for Int");
-        }
-        return (int)value.longValue();
+        return (int) (signum * limb0);
     }
 
     /**
@@ -82,13 +181,10 @@ public final class IntToken extends Token {
      * @throws ArithmeticException Integer does not fit in a long.
      */
     public long longValue() {
-        if (value.compareTo(BigInteger.valueOf(Long.MAX_VALUE)) > 0) {
-            throw new ArithmeticException("IntToken too large for Long");
-        }
-        if (value.compareTo(BigInteger.valueOf(Long.MIN_VALUE)) < 0) {
-            throw new ArithmeticException("IntToken too low for Long");
+        if (!fitsLong()) {
+            throw new ArithmeticException(signum > 0 ? "IntToken too large for Long" : "IntToken too low for Long");
         }
-        return value.longValue();
+        return signum < 0 ? -limb0 : limb0;
     }
 
     /**
@@ -97,13 +193,316 @@ public final class IntToken extends Token {
      * @throws ArithmeticException Integer is not in the range of an unsigned byte.
      */
     public byte unsignedByteValue() {
-        if (value.compareTo(BigInteger.valueOf(255)) > 0) {
+        if (signum < 0) {
+            throw new ArithmeticException("IntToken too low for byte");
+        }
+        if (!fitsLong() || limb0 > 255) {
             throw new ArithmeticException("IntToken too large for byte");
         }
-        if (value.compareTo(BigInteger.valueOf(0)) < 0) {
-            throw new ArithmeticException("IntToken too low for byte");
+        return (byte) limb0;
+    }
+
+    public int signum() {
+        return signum;
+    }
+
+    /**
+     * Compares the magnitudes of two fixed-width integers.
+     */
+    private static int compareMagnitude(IntToken a, IntToken b) {
+        for (int i = 3; i >= 0; i--) {
+            int cmp = Long.compareUnsigned(a.limb(i), b.limb(i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    public int compareTo(IntToken other) {
+        if (fixedWidth && other.fixedWidth) {
+            if (signum != other.signum) {
+                return Integer.compare(signum, other.signum);
+            }
+            return signum * compareMagnitude(this, other);
         }
-        return (byte)value.longValue();
+        return bigIntegerValue().compareTo(other.bigIntegerValue());
+    }
+
+    /**
+     * Returns the number of bits in the magnitude of a fixed-width integer.
+     */
+    private int magnitudeBitLength() {
+        for (int i = 3; i >= 0; i--) {
+            if (limb(i) != 0) {
+                return i * LIMB_BITS + LIMB_BITS - Long.numberOfLeadingZeros(limb(i));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns true iff this integer is a positive power of two.
+     */
+    private boolean isPowerOfTwo() {
+        return fixedWidth && signum > 0
+                && Long.bitCount(limb0) + Long.bitCount(limb1) + Long.bitCount(limb2) + Long.bitCount(limb3) == 1;
+    }
+
+    public IntToken add(IntToken other) {
+        return add(this, signum, other, other.signum);
+    }
+
+    public IntToken subtract(IntToken other) {
+        return add(this, signum, other, -other.signum);
+    }
+
+    public IntToken not() {
+        // ~a == -a - 1
+        return add(this, -signum, MINUS_ONE, -1);
+    }
+
+    /**
+     * Adds the magnitude of {@code a} with sign {@code signA} to the magnitude of {@code b} with sign {@code signB}.
+     */
+    private static IntToken add(IntToken a, int signA, IntToken b, int signB) {
+        if (!a.fixedWidth || !b.fixedWidth) {
+            BigInteger x = signA == a.signum ? a.bigIntegerValue() : a.bigIntegerValue().negate();
+            BigInteger y = signB == b.signum ? b.bigIntegerValue() : b.bigIntegerValue().negate();
+            return of(x.add(y));
+        }
+        if (signB == 0) {
+            return signA == a.signum ? a : fixed(signA, a.limb0, a.limb1, a.limb2, a.limb3);
+        }
+        if (signA == 0) {
+            return signB == b.signum ? b : fixed(signB, b.limb0, b.limb1, b.limb2, b.limb3);
+        }
+
+        if (signA == signB) {
+            long r0 = a.limb0 + b.limb0;
+            long c = Long.compareUnsigned(r0, a.limb0) < 0 ? 1 : 0;
+            long r1 = a.limb1 + b.limb1 + c;
+            c = carry(a.limb1, b.limb1, r1, c);
+            long r2 = a.limb2 + b.limb2 + c;
+            c = carry(a.limb2, b.limb2, r2, c);
+            long r3 = a.limb3 + b.limb3 + c;
+            c = carry(a.limb3, b.limb3, r3, c);
+            if (c != 0) {
+                BigInteger sum = a.bigIntegerValue().abs().add(b.bigIntegerValue().abs());
+                return of(signA < 0 ? sum.negate() : sum);
+            }
+            return fixed(signA, r0, r1, r2, r3);
+        }
+
+        int cmp = compareMagnitude(a, b);
+        if (cmp == 0) {
+            return ZERO;
+        }
+        IntToken larger = cmp > 0 ? a : b;
+        IntToken smaller = cmp > 0 ? b : a;
+        long r0 = larger.limb0 - smaller.limb0;
+        long w = Long.compareUnsigned(larger.limb0, smaller.limb0) < 0 ? 1 : 0;
+        long r1 = larger.limb1 - smaller.limb1 - w;
+        w = borrow(larger.limb1, smaller.limb1, w);
+        long r2 = larger.limb2 - smaller.limb2 - w;
+        w = borrow(larger.limb2, smaller.limb2, w);
+        long r3 = larger.limb3 - smaller.limb3 - w;
+        return fixed(cmp > 0 ? signA : signB, r0, r1, r2, r3);
+    }
+
+    /**
+     * Returns the carry out of {@code x + y + carryIn == sum}.
+     */
+    private static long carry(long x, long y, long sum, long carryIn) {
+        return Long.compareUnsigned(sum, x) < 0 || carryIn != 0 && sum == x ? 1 : 0;
+    }
+
+    /**
+     * Returns the borrow out of {@code x - y - borrowIn}.
+     */
+    private static long borrow(long x, long y, long borrowIn) {
+        return Long.compareUnsigned(x, y) < 0 || borrowIn != 0 && x == y ? 1 : 0;
+    }
+
+    /**
+     * Returns the upper 64 bits of the unsigned 128-bit product of two longs.
+     */
+    private static long unsignedMultiplyHigh(long x, long y) {
+        long x0 = x & 0xffffffffL, x1 = x >>> 32;
+        long y0 = y & 0xffffffffL, y1 = y >>> 32;
+        long p00 = x0 * y0, p01 = x0 * y1, p10 = x1 * y0, p11 = x1 * y1;
+        long middle = (p00 >>> 32) + (p01 & 0xffffffffL) + (p10 & 0xffffffffL);
+        return p11 + (p01 >>> 32) + (p10 >>> 32) + (middle >>> 32);
+    }
+
+    public IntToken multiply(IntToken other) {
+        if (!fixedWidth || !other.fixedWidth || magnitudeBitLength() + other.magnitudeBitLength() > WIDTH + 1) {
+            return of(bigIntegerValue().multiply(other.bigIntegerValue()));
+        }
+        if (signum == 0 || other.signum == 0) {
+            return ZERO;
+        }
+        long[] product = new long[8];
+        for (int i = 0; i < 4; i++) {
+            long x = limb(i);
+            if (x == 0) {
+                continue;
+            }
+            long carry = 0;
+            for (int j = 0; j < 4; j++) {
+                long y = other.limb(j);
+                long low = x * y;
+                long high = unsignedMultiplyHigh(x, y);
+                long t = product[i + j] + low;
+                high += Long.compareUnsigned(t, low) < 0 ? 1 : 0;
+                long u = t + carry;
+                high += Long.compareUnsigned(u, t) < 0 ? 1 : 0;
+                product[i + j] = u;
+                carry = high;
+            }
+            product[i + 4] = carry;
+        }
+        if ((product[4] | product[5] | product[6] | product[7]) != 0) {
+            return of(bigIntegerValue().multiply(other.bigIntegerValue()));
+        }
+        return fixed(signum * other.signum, product[0], product[1], product[2], product[3]);
+    }
+
+    /**
+     * Returns the magnitude of this fixed-width integer shifted right by {@code n} bits, with the given sign.
+     */
+    private IntToken shiftMagnitudeRight(int signum, int n) {
+        if (n >= WIDTH) {
+            return ZERO;
+        }
+        int limbs = n / LIMB_BITS;
+        int bits = n % LIMB_BITS;
+        long[] r = new long[4];
+        for (int i = 0; i < 4 - limbs; i++) {
+            long low = limb(i + limbs) >>> bits;
+            long high = bits == 0 ? 0 : limb(i + limbs + 1) << (LIMB_BITS - bits);
+            r[i] = low | high;
+        }
+        return fixed(signum, r[0], r[1], r[2], r[3]);
+    }
+
+    public IntToken shiftLeft(int n) {
+        if (!fixedWidth || n < 0 || magnitudeBitLength() + (long) n > WIDTH) {
+            return of(bigIntegerValue().shiftLeft(n));
+        }
+        if (signum == 0) {
+            return ZERO;
+        }
+        int limbs = n / LIMB_BITS;
+        int bits = n % LIMB_BITS;
+        long[] r = new long[4];
+        for (int i = limbs; i < 4; i++) {
+            long high = limb(i - limbs) << bits;
+            long low = bits == 0 || i - limbs - 1 < 0 ? 0 : limb(i - limbs - 1) >>> (LIMB_BITS - bits);
+            r[i] = high | low;
+        }
+        return fixed(signum, r[0], r[1], r[2], r[3]);
+    }
+
+    public IntToken shiftRight(int n) {
+        // shifting a negative number right rounds towards negative infinity, unlike shifting its magnitude
+        if (!fixedWidth || n < 0 || signum < 0) {
+            return of(bigIntegerValue().shiftRight(n));
+        }
+        return shiftMagnitudeRight(signum, n);
+    }
+
+    public IntToken and(IntToken other) {
+        if (!fixedWidth || !other.fixedWidth || signum < 0 || other.signum < 0) {
+            return of(bigIntegerValue().and(other.bigIntegerValue()));
+        }
+        return fixed(1, limb0 & other.limb0, limb1 & other.limb1, limb2 & other.limb2, limb3 & other.limb3);
+    }
+
+    public IntToken or(IntToken other) {
+        if (!fixedWidth || !other.fixedWidth || signum < 0 || other.signum < 0) {
+            return of(bigIntegerValue().or(other.bigIntegerValue()));
+        }
+        return fixed(1, limb0 | other.limb0, limb1 | other.limb1, limb2 | other.limb2, limb3 | other.limb3);
+    }
+
+    public IntToken xor(IntToken other) {
+        if (!fixedWidth || !other.fixedWidth || signum < 0 || other.signum < 0) {
+            return of(bigIntegerValue().xor(other.bigIntegerValue()));
+        }
+        return fixed(1, limb0 ^ other.limb0, limb1 ^ other.limb1, limb2 ^ other.limb2, limb3 ^ other.limb3);
+    }
+
+    /**
+     * Returns true iff the division of this integer by {@code divisor} has a fixed-width fast path:
+     * both are fixed-width, this integer is not negative, and the divisor is positive and either
+     * larger than this integer or a power of two.
+     */
+    private boolean hasFastDivision(IntToken divisor) {
+        return fixedWidth && divisor.fixedWidth && signum >= 0 && divisor.signum > 0
+                && (compareMagnitude(this, divisor) < 0 || divisor.isPowerOfTwo());
+    }
+
+    /**
+     * Returns the quotient of the division, truncated towards zero.
+     * @throws ArithmeticException the divisor is zero.
+     */
+    public IntToken divide(IntToken divisor) {
+        if (!hasFastDivision(divisor)) {
+            return of(bigIntegerValue().divide(divisor.bigIntegerValue()));
+        }
+        if (compareMagnitude(this, divisor) < 0) {
+            return ZERO;
+        }
+        return shiftMagnitudeRight(1, divisor.magnitudeBitLength() - 1);
+    }
+
+    /**
+     * Returns the remainder of the division, with the sign of this integer.
+     * @throws ArithmeticException the divisor is zero.
+     */
+    public IntToken remainder(IntToken divisor) {
+        if (!hasFastDivision(divisor)) {
+            return of(bigIntegerValue().remainder(divisor.bigIntegerValue()));
+        }
+        return nonNegativeRemainder(divisor);
+    }
+
+    /**
+     * Returns the non-negative remainder of the division.
+     * @throws ArithmeticException the modulus is not positive.
+     */
+    public IntToken mod(IntToken modulus) {
+        if (!hasFastDivision(modulus)) {
+            return of(bigIntegerValue().mod(modulus.bigIntegerValue()));
+        }
+        return nonNegativeRemainder(modulus);
+    }
+
+    private IntToken nonNegativeRemainder(IntToken divisor) {
+        if (compareMagnitude(this, divisor) < 0) {
+            return this;
+        }
+        // the divisor is a power of two
+        return fixed(1, limb0 & (divisor.limb0 - 1),
+                limb1 & (divisor.limb1 == 0 ? divisor.limb0 == 0 ? -1 : 0 : divisor.limb1 - 1),
+                limb2 & (divisor.limb2 == 0 ? (divisor.limb0 | divisor.limb1) == 0 ? -1 : 0 : divisor.limb2 - 1),
+                limb3 & (divisor.limb3 == 0 ? (divisor.limb0 | divisor.limb1 | divisor.limb2) == 0 ? -1 : 0 : divisor.limb3 - 1));
+    }
+
+    public IntToken abs() {
+        if (signum >= 0) {
+            return this;
+        }
+        return fixedWidth ? fixed(1, limb0, limb1, limb2, limb3) : of(value.negate());
+    }
+
+    /**
+     * Returns the floor of the base-2 logarithm of this integer, which must be positive.
+     */
+    public int log2() {
+        assert signum > 0;
+        return fixedWidth ? magnitudeBitLength() - 1 : value.bitLength() - 1;
     }
 
     @Override
@@ -116,12 +515,20 @@ public final class IntToken extends Token {
      */
     @Override
     public String javaBackendValue() {
-        return value.toString();
+        return fitsLong() ? Long.toString(longValue()) : bigIntegerValue().toString();
     }
 
     @Override
     protected int computeHash() {
-        return value.hashCode();
+        if (!fixedWidth) {
+            return value.hashCode();
+        }
+        int hash = signum;
+        hash = hash * 31 + Long.hashCode(limb0);
+        hash = hash * 31 + Long.hashCode(limb1);
+        hash = hash * 31 + Long.hashCode(limb2);
+        hash = hash * 31 + Long.hashCode(limb3);
+        return hash;
     }
 
     @Override
@@ -131,6 +538,13 @@ public final class IntToken extends Token {
 
         IntToken intToken = (IntToken) o;
 
+        if (fixedWidth != intToken.fixedWidth) {
+            return false;
+        }
+        if (fixedWidth) {
+            return signum == intToken.signum && limb0 == intToken.limb0 && limb1 == intToken.limb1
+                    && limb2 == intToken.limb2 && limb3 == intToken.limb3;
+        }
         return value.equals(intToken.value);
 
     }
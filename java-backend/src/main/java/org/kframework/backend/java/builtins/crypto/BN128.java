@@ -18,6 +18,8 @@
 package org.kframework.backend.java.builtins.crypto;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Implementation of Barreto–Naehrig curve defined over abstract finite field. This curve is one of the keys to zkSNARKs. <br/>
@@ -49,6 +51,11 @@ import java.math.BigInteger;
  */
 public abstract class BN128<T extends Field<T>> {
 
+    /**
+     * Number of bits of the scalar consumed at a time by {@link #mul(BigInteger)}
+     */
+    private static final int MUL_WINDOW = 4;
+
     protected T x;
     protected T y;
     protected T z;
@@ -162,14 +169,27 @@ public abstract class BN128<T extends Field<T>> {
 
         if (isZero()) return this; // 0 * s = 0
 
+        // fixed-window method: table[d] = d * P for every window value d
+        List<BN128<T>> table = new ArrayList<>(1 << MUL_WINDOW);
+        table.add(zero());
+        table.add(this);
+        for (int d = 2; d < 1 << MUL_WINDOW; d++) {
+            table.add(table.get(d - 1).add(this));
+        }
+
         BN128<T> res = zero();
 
-        for (int i = s.bitLength() - 1; i >= 0; i--) {
+        int bitLength = s.bitLength();
+        for (int i = (bitLength - 1) / MUL_WINDOW * MUL_WINDOW; i >= 0; i -= MUL_WINDOW) {
 
-            res = res.dbl();
+            int window = 0;
+            for (int j = MUL_WINDOW - 1; j >= 0; j--) {
+                res = res.dbl();
+                window = window << 1 | (i + j < bitLength && s.testBit(i + j) ? 1 : 0);
+            }
 
-            if (s.testBit(i)) {
-                res = res.add(this);
+            if (window != 0) {
+                res = res.add(table.get(window));
             }
         }
 
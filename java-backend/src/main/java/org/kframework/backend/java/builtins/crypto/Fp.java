@@ -18,42 +18,77 @@
 package org.kframework.backend.java.builtins.crypto;
 
 import java.math.BigInteger;
-
-import static org.kframework.backend.java.builtins.crypto.Params.P;
+import java.util.Arrays;
 
 /**
  * Arithmetic in F_p, p = 21888242871839275222246405745257275088696311157297823662689037894645226208583
+ * <br/>
+ *
+ * Elements are stored in Montgomery form, {@code v * 2^256 mod p}, as four 64-bit limbs (least significant first),
+ * so that multiplication needs no division: see {@link #montgomeryMultiply}. Conversion from and to
+ * {@link BigInteger} only happens when an element is created or read.
  *
  * @author Mikhail Kalinin
  * @since 01.09.2017
  */
 public class Fp implements Field<Fp> {
 
+    /**
+     * The field modulus; {@link Params#P} refers to it, so that initializing this class does not depend on {@link Params}.
+     */
+    static final BigInteger P = new BigInteger("21888242871839275222246405745257275088696311157297823662689037894645226208583");
+
+    private static final int LIMBS = 4;
+    private static final long[] P_LIMBS = toLimbs(P);
+    /* -p^-1 mod 2^64 */
+    private static final long P_INV = BigInteger.ONE.shiftLeft(64).subtract(P.modInverse(BigInteger.ONE.shiftLeft(64))).longValue();
+    /* 2^512 mod p, used to convert into Montgomery form */
+    private static final long[] R2 = toLimbs(BigInteger.ONE.shiftLeft(2 * 64 * LIMBS).mod(P));
+    /* 1, as opposed to the Montgomery form of 1 */
+    private static final long[] ONE_LIMBS = toLimbs(BigInteger.ONE);
+
     static final Fp ZERO = new Fp(BigInteger.ZERO);
     static final Fp _1 = new Fp(BigInteger.ONE);
     static final Fp NON_RESIDUE = new Fp(new BigInteger("21888242871839275222246405745257275088696311157297823662689037894645226208582"));
 
     static final Fp _2_INV = new Fp(BigInteger.valueOf(2).modInverse(P));
 
-    BigInteger v;
+    /* the value in Montgomery form */
+    final long[] m;
+    /* the value this element was created from, if it was not already reduced modulo p; such elements are not zero,
+     * and are invalid unless negative, but otherwise behave as their residue */
+    private final BigInteger unreduced;
 
-    Fp(BigInteger v) { this.v = v; }
+    Fp(BigInteger v) {
+        if (v.signum() >= 0 && v.compareTo(P) < 0) {
+            this.m = toMontgomery(v);
+            this.unreduced = null;
+        } else {
+            this.m = toMontgomery(v.mod(P));
+            this.unreduced = v;
+        }
+    }
+
+    private Fp(long[] m) {
+        this.m = m;
+        this.unreduced = null;
+    }
 
-    @Override public Fp add(Fp o) { return new Fp(this.v.add(o.v).mod(P)); }
-    @Override public Fp mul(Fp o) { return new Fp(this.v.multiply(o.v).mod(P)); }
-    @Override public Fp sub(Fp o) { return new Fp(this.v.subtract(o.v).mod(P)); }
-    @Override public Fp squared() { return new Fp(v.multiply(v).mod(P)); }
-    @Override public Fp dbl() { return new Fp(v.add(v).mod(P)); }
-    @Override public Fp inverse() { return new Fp(v.modInverse(P)); }
-    @Override public Fp negate() { return new Fp(v.negate().mod(P)); }
-    @Override public boolean isZero() { return v.compareTo(BigInteger.ZERO) == 0; }
+    @Override public Fp add(Fp o) { return new Fp(add(m, o.m)); }
+    @Override public Fp mul(Fp o) { return new Fp(montgomeryMultiply(m, o.m)); }
+    @Override public Fp sub(Fp o) { return new Fp(subtract(m, o.m)); }
+    @Override public Fp squared() { return new Fp(montgomeryMultiply(m, m)); }
+    @Override public Fp dbl() { return new Fp(add(m, m)); }
+    @Override public Fp inverse() { return new Fp(toMontgomery(v().mod(P).modInverse(P))); }
+    @Override public Fp negate() { return new Fp(subtract(ZERO.m, m)); }
+    @Override public boolean isZero() { return unreduced == null && isZero(m); }
 
     /**
      * Checks if provided value is a valid Fp member
      */
     @Override
     public boolean isValid() {
-        return v.compareTo(P) < 0;
+        return unreduced == null || unreduced.compareTo(P) < 0;
     }
 
     Fp2 mul(Fp2 o) { return new Fp2(o.a.mul(this), o.b.mul(this)); }
@@ -67,11 +102,14 @@ public class Fp implements Field<Fp> {
     }
 
     public byte[] bytes() {
-        return v.toByteArray();
+        return v().toByteArray();
     }
 
     public BigInteger v() {
-        return v;
+        if (unreduced != null) {
+            return unreduced;
+        }
+        return fromLimbs(montgomeryMultiply(m, ONE_LIMBS));
     }
 
     @Override
@@ -81,11 +119,160 @@ public class Fp implements Field<Fp> {
 
         Fp fp = (Fp) o;
 
-        return !(v != null ? v.compareTo(fp.v) != 0 : fp.v != null);
+        if (unreduced != null || fp.unreduced != null) {
+            return unreduced != null && unreduced.equals(fp.unreduced);
+        }
+        return Arrays.equals(m, fp.m);
+    }
+
+    @Override
+    public int hashCode() {
+        return unreduced != null ? unreduced.hashCode() : Arrays.hashCode(m);
     }
 
     @Override
     public String toString() {
-        return v.toString();
+        return v().toString();
+    }
+
+    private static long[] toLimbs(BigInteger v) {
+        long[] limbs = new long[LIMBS];
+        for (int i = 0; i < LIMBS; i++) {
+            limbs[i] = v.shiftRight(64 * i).longValue();
+        }
+        return limbs;
+    }
+
+    private static BigInteger fromLimbs(long[] limbs) {
+        byte[] bytes = new byte[8 * LIMBS];
+        for (int i = 0; i < LIMBS; i++) {
+            for (int j = 0; j < 8; j++) {
+                bytes[bytes.length - 1 - (8 * i + j)] = (byte) (limbs[i] >>> (8 * j));
+            }
+        }
+        return new BigInteger(1, bytes);
+    }
+
+    private static long[] toMontgomery(BigInteger v) {
+        return montgomeryMultiply(toLimbs(v), R2);
+    }
+
+    private static boolean isZero(long[] a) {
+        return (a[0] | a[1] | a[2] | a[3]) == 0;
+    }
+
+    /**
+     * Returns the upper 64 bits of the unsigned 128-bit product of two longs.
+     */
+    private static long unsignedMultiplyHigh(long x, long y) {
+        long x0 = x & 0xffffffffL, x1 = x >>> 32;
+        long y0 = y & 0xffffffffL, y1 = y >>> 32;
+        long p00 = x0 * y0, p01 = x0 * y1, p10 = x1 * y0, p11 = x1 * y1;
+        long middle = (p00 >>> 32) + (p01 & 0xffffffffL) + (p10 & 0xffffffffL);
+        return p11 + (p01 >>> 32) + (p10 >>> 32) + (middle >>> 32);
+    }
+
+    /**
+     * Returns {@code a * b / 2^256 mod p}, for {@code a} and {@code b} reduced modulo p
+     * (coarsely integrated operand scanning).
+     */
+    private static long[] montgomeryMultiply(long[] a, long[] b) {
+        // t = (a * b[0..i] + q * p) / 2^(64 * i) < 2p, in LIMBS + 1 limbs
+        long[] t = new long[LIMBS + 1];
+        for (int i = 0; i < LIMBS; i++) {
+            long carry = 0;
+            for (int j = 0; j < LIMBS; j++) {
+                carry = multiplyAdd(t, j, a[j], b[i], carry);
+            }
+            long top = t[LIMBS] + carry;
+
+            // add q * p, where q is chosen so that the lowest limb becomes zero, and shift right by one limb
+            long q = t[0] * P_INV;
+            carry = multiplyAdd(t, 0, q, P_LIMBS[0], 0);
+            for (int j = 1; j < LIMBS; j++) {
+                carry = multiplyAdd(t, j, q, P_LIMBS[j], carry);
+                t[j - 1] = t[j];
+            }
+            long sum = top + carry;
+            t[LIMBS - 1] = sum;
+            t[LIMBS] = Long.compareUnsigned(sum, carry) < 0 ? 1 : 0;
+        }
+        long[] result = Arrays.copyOf(t, LIMBS);
+        return t[LIMBS] != 0 || !lessThanP(result) ? subtractP(result) : result;
+    }
+
+    /**
+     * Sets {@code t[j]} to the low 64 bits of {@code t[j] + x * y + carry} and returns the high 64 bits.
+     */
+    private static long multiplyAdd(long[] t, int j, long x, long y, long carry) {
+        long low = x * y;
+        long high = unsignedMultiplyHigh(x, y);
+        long sum = t[j] + low;
+        high += Long.compareUnsigned(sum, low) < 0 ? 1 : 0;
+        long result = sum + carry;
+        high += Long.compareUnsigned(result, carry) < 0 ? 1 : 0;
+        t[j] = result;
+        return high;
+    }
+
+    private static boolean lessThanP(long[] a) {
+        for (int i = LIMBS - 1; i >= 0; i--) {
+            int cmp = Long.compareUnsigned(a[i], P_LIMBS[i]);
+            if (cmp != 0) {
+                return cmp < 0;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Subtracts p from {@code a} in place, modulo 2^256, and returns it.
+     */
+    private static long[] subtractP(long[] a) {
+        long borrow = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long x = a[i];
+            long difference = x - P_LIMBS[i] - borrow;
+            borrow = Long.compareUnsigned(x, P_LIMBS[i]) < 0 || borrow != 0 && x == P_LIMBS[i] ? 1 : 0;
+            a[i] = difference;
+        }
+        return a;
+    }
+
+    /**
+     * Returns {@code a + b mod p}. Since p < 2^255, the sum does not overflow.
+     */
+    private static long[] add(long[] a, long[] b) {
+        long[] result = new long[LIMBS];
+        long carry = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long sum = a[i] + b[i] + carry;
+            carry = Long.compareUnsigned(sum, a[i]) < 0 || carry != 0 && sum == a[i] ? 1 : 0;
+            result[i] = sum;
+        }
+        return lessThanP(result) ? result : subtractP(result);
+    }
+
+    /**
+     * Returns {@code a - b mod p}.
+     */
+    private static long[] subtract(long[] a, long[] b) {
+        long[] result = new long[LIMBS];
+        long borrow = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            result[i] = a[i] - b[i] - borrow;
+            borrow = Long.compareUnsigned(a[i], b[i]) < 0 || borrow != 0 && a[i] == b[i] ? 1 : 0;
+        }
+        if (borrow != 0) {
+            // add p back, ignoring the carry out, which cancels the borrow
+            long carry = 0;
+            for (int i = 0; i < LIMBS; i++) {
+                long x = result[i];
+                long sum = x + P_LIMBS[i] + carry;
+                carry = Long.compareUnsigned(sum, x) < 0 || carry != 0 && sum == x ? 1 : 0;
+                result[i] = sum;
+            }
+        }
+        return result;
     }
 }
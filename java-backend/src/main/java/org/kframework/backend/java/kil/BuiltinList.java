@@ -5,34 +5,46 @@ import com.google.common.collect.ImmutableList;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.backend.java.util.Constants;
+import org.kframework.backend.java.util.PersistentVector;
 import org.kframework.builtin.KLabels;
 import org.kframework.backend.java.utils.BitSet;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 
 /**
  * Class representing an associative list.
+ * <p>
+ * The children are kept in a {@link PersistentVector}, so that concatenating lists and taking
+ * ranges of a list share structure with the original lists instead of copying them.
  */
 public class BuiltinList extends Collection implements CollectionInternalRepresentation, HasGlobalContext {
 
     /**
      * Flattened list of children.
      */
-    public final ImmutableList<Term> children;
+    public final PersistentVector<Term> children;
     public final Sort sort;
     public final KLabelConstant operatorKLabel;
     public final KLabelConstant unitKLabel;
     private final GlobalContext global;
 
-    private final ElementTailSplit elementTailSplits[];
+    /**
+     * Allocated on the first call to {@link #splitElementTail}, which is only made on rule patterns.
+     * Rule patterns are shared by the threads rewriting with a definition, so the array is published through a
+     * volatile field; an entry may be computed twice by racing threads, which is harmless since the entries are
+     * equal and never modified once built.
+     */
+    private volatile ElementTailSplit elementTailSplits[];
 
     /**
      * Private constructor used by {@link BuiltinList.Builder}.
      */
     private BuiltinList(
-            ImmutableList<Term> children,
+            PersistentVector<Term> children,
             Sort sort,
             KLabelConstant operatorKLabel,
             KLabelConstant unitKLabel,
@@ -43,8 +55,6 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
         this.operatorKLabel = operatorKLabel;
         this.unitKLabel = unitKLabel;
         this.global = global;
-
-        elementTailSplits = new ElementTailSplit[children.size()];
     }
 
     /**
@@ -76,7 +86,18 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
      * Returns the element component and the tail component of the list child on position index.
      */
     public ElementTailSplit splitElementTail(int index, int bitSetLength) {
-        if (elementTailSplits[index] == null) {
+        ElementTailSplit[] splits = elementTailSplits;
+        if (splits == null) {
+            synchronized (this) {
+                splits = elementTailSplits;
+                if (splits == null) {
+                    splits = new ElementTailSplit[children.size()];
+                    elementTailSplits = splits;
+                }
+            }
+        }
+        ElementTailSplit split = splits[index];
+        if (split == null) {
             BitSet emptyListMask = BitSet.apply(bitSetLength);
             emptyListMask.makeOnes(bitSetLength);
             for (int i = index + 1; i < children.size(); i++) {
@@ -98,13 +119,13 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
             if (isElement(index)) {
                 BitSet elementMask = BitSet.apply(bitSetLength);
                 elementMask.makeOnes(bitSetLength);
-                elementTailSplits[index] = new ElementTailSplit(
+                split = new ElementTailSplit(
                         children.get(index),
                         elementMask,
                         Bottom.BOTTOM,
                         BitSet.apply(bitSetLength));
             } else if (isListVariable(children.get(index))) {
-                elementTailSplits[index] = new ElementTailSplit(
+                split = new ElementTailSplit(
                         Bottom.BOTTOM,
                         BitSet.apply(bitSetLength),
                         children.get(index),
@@ -131,7 +152,7 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
                         .forEach(s -> tailMask.or(s));
                 tailMask.and(emptyListMask);
 
-                elementTailSplits[index] = new ElementTailSplit(
+                split = new ElementTailSplit(
                         elementAutomatonDisjunction,
                         elementMask,
                         tailAutomatonDisjunction,
@@ -139,9 +160,10 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
             } else {
                 assert false : "unexpected class type for builtin list " + children.get(index).getClass();
             }
+            splits[index] = split;
         }
 
-        return elementTailSplits[index];
+        return split;
     }
 
     public boolean isElement(int index) {
@@ -164,7 +186,19 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
 
     public Term range(int beginIndex, int endIndex) {
         return BuiltinList.builder(sort, operatorKLabel, unitKLabel, global)
-                .addAll(children.subList(beginIndex, endIndex))
+                .addFlattened(children.subList(beginIndex, endIndex))
+                .build();
+    }
+
+    /**
+     * Returns this list with the child on position index replaced by the given term,
+     * which is flattened into the result if it is itself a list of the same sort.
+     */
+    public Term update(int index, Term term) {
+        return BuiltinList.builder(sort, operatorKLabel, unitKLabel, global)
+                .addFlattened(children.subList(0, index))
+                .add(term)
+                .addFlattened(children.subList(index + 1, children.size()))
                 .build();
     }
 
@@ -288,7 +322,11 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
 
     public static class Builder {
 
-        private final ImmutableList.Builder<Term> childrenBuilder = new ImmutableList.Builder<>();
+        private PersistentVector<Term> children = PersistentVector.empty();
+        /**
+         * Elements added since the last list was concatenated, appended to {@link #children} in one step.
+         */
+        private final List<Term> pendingChildren = new ArrayList<>();
         private final Sort sort;
         private final KLabelConstant operatorKLabel;
         private final KLabelConstant unitKLabel;
@@ -303,17 +341,33 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
 
         public Builder add(Term term) {
             if (term instanceof BuiltinList && sort.equals(term.sort())
-                    && operatorKLabel.equals(((BuiltinList) term).operatorKLabel)
-                    && unitKLabel.equals(((BuiltinList) term).unitKLabel)) {
-                return addAll(((BuiltinList) term).children);
+                    && Objects.equals(operatorKLabel, ((BuiltinList) term).operatorKLabel)
+                    && Objects.equals(unitKLabel, ((BuiltinList) term).unitKLabel)) {
+                return addFlattened(((BuiltinList) term).children);
             } else {
                 //assert global.getDefinition().subsorts().isSubsortedEq(sort, term.sort()) :
                 //        "unexpected term: " + term + " of sort " + term.sort() + " added to list of sort " + sort;
-                childrenBuilder.add(term);
+                pendingChildren.add(term);
                 return this;
             }
         }
 
+        /**
+         * Appends the children of a list of the same sort, which are already flattened.
+         */
+        private Builder addFlattened(PersistentVector<Term> flattenedChildren) {
+            flushPendingChildren();
+            children = children.concat(flattenedChildren);
+            return this;
+        }
+
+        private void flushPendingChildren() {
+            if (!pendingChildren.isEmpty()) {
+                children = children.concat(PersistentVector.from(pendingChildren));
+                pendingChildren.clear();
+            }
+        }
+
         public Builder addAll(List<Term> terms) {
             terms.forEach(this::add);
             return this;
@@ -327,8 +381,9 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
         }
 
         public Term build() {
+            flushPendingChildren();
             BuiltinList builtinList = new BuiltinList(
-                    childrenBuilder.build(),
+                    children,
                     sort,
                     operatorKLabel,
                     unitKLabel,
@@ -352,7 +407,7 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
      */
     public static class SingletonBuiltinList extends BuiltinList {
         private SingletonBuiltinList(Term child, GlobalContext global, Sort sort, KLabelConstant operatorKLabel, KLabelConstant unitKLabel) {
-            super(ImmutableList.of(child), sort, operatorKLabel, unitKLabel, global);
+            super(PersistentVector.singleton(child), sort, operatorKLabel, unitKLabel, global);
         }
     }
 
@@ -4,14 +4,19 @@ package org.kframework.backend.java.kil;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.Lists;
-import org.apache.commons.collections4.map.UnmodifiableMap;
 import org.apache.commons.lang3.tuple.Triple;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.backend.java.util.Constants;
 import org.kframework.builtin.KLabels;
 import org.kframework.utils.errorsystem.KEMException;
+import org.pcollections.HashPMap;
+import org.pcollections.HashTreePMap;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -22,24 +27,35 @@ import java.util.stream.Collectors;
 
 /**
  * Class representing a map.
+ * <p>
+ * The concrete entries are kept in a persistent hash trie, so that updating, extending, or
+ * removing a key from an existing map shares structure with it instead of copying it, and
+ * the hash code of the entries is maintained incrementally as entries are added and removed.
  *
  * @author AndreiS
  */
 public class BuiltinMap extends AssociativeCommutativeCollection {
 
-    private final UnmodifiableMap<Term, Term> entries;
+    private final HashPMap<Term, Term> entries;
+
+    /**
+     * The hash code of {@link #entries} as specified by {@link Map#hashCode()}.
+     */
+    private transient int entriesHashCode;
 
     /**
      * Private efficient constructor used by {@link BuiltinMap.Builder}.
      */
     private BuiltinMap(
-            UnmodifiableMap<Term, Term> entries,
+            HashPMap<Term, Term> entries,
+            int entriesHashCode,
             ImmutableMultiset<KItem> collectionPatterns,
             ImmutableMultiset<Term> collectionFunctions,
             ImmutableMultiset<Variable> collectionVariables,
             GlobalContext global) {
         super(collectionPatterns, collectionFunctions, collectionVariables, global);
         this.entries = entries;
+        this.entriesHashCode = entriesHashCode;
     }
 
     public static Term concatenate(GlobalContext global, Term... maps) {
@@ -63,7 +79,7 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         return entries.get(key);
     }
 
-    public UnmodifiableMap<Term, Term> getEntries() {
+    public Map<Term, Term> getEntries() {
         return entries;
     }
 
@@ -97,7 +113,8 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         }
 
         BuiltinMap map = (BuiltinMap) object;
-        return entries.equals(map.entries)
+        return entriesHashCode == map.entriesHashCode
+                && entries.equals(map.entries)
                 && collectionPatterns.equals(map.collectionPatterns)
                 && collectionFunctions.equals(map.collectionFunctions)
                 && collectionVariables.equals(map.collectionVariables);
@@ -106,7 +123,7 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
     @Override
     protected int computeHash() {
         int hashCode = 1;
-        hashCode = hashCode * Constants.HASH_PRIME + entries.hashCode();
+        hashCode = hashCode * Constants.HASH_PRIME + entriesHashCode;
         hashCode = hashCode * Constants.HASH_PRIME + collectionPatterns.hashCode();
         hashCode = hashCode * Constants.HASH_PRIME + collectionFunctions.hashCode();
         hashCode = hashCode * Constants.HASH_PRIME + collectionVariables.hashCode();
@@ -162,13 +179,35 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         return components;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.writeObject(new HashMap<>(entries));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        Map<Term, Term> map = (Map<Term, Term>) in.readObject();
+        try {
+            Field entriesField = BuiltinMap.class.getDeclaredField("entries");
+            entriesField.setAccessible(true);
+            entriesField.set(this, HashTreePMap.from(map));
+        } catch (IllegalAccessException | NoSuchFieldException e) {
+            throw new IOException(e);
+        }
+        entriesHashCode = map.hashCode();
+    }
+
+    private static int entryHashCode(Term key, Term value) {
+        return key.hashCode() ^ value.hashCode();
+    }
+
     public static Builder builder(GlobalContext global) {
         return new Builder(global);
     }
 
     public static class Builder {
 
-        private final Map<Term, Term> entries = new HashMap<>();
+        private HashPMap<Term, Term> entries = HashTreePMap.empty();
+        private int entriesHashCode = 0;
         private final ImmutableMultiset.Builder<KItem> patternsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Term> functionsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Variable> variablesBuilder = new ImmutableMultiset.Builder<>();
@@ -179,7 +218,12 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         }
 
         public void put(Term key, Term value) {
-            entries.put(key, value);
+            Term oldValue = entries.get(key);
+            if (oldValue != null) {
+                entriesHashCode -= entryHashCode(key, oldValue);
+            }
+            entries = entries.plus(key, value);
+            entriesHashCode += entryHashCode(key, value);
         }
 
         /**
@@ -187,15 +231,22 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
          * built.
          */
         public void putAll(Map<? extends Term, ? extends Term> map) {
-            entries.putAll(map);
+            for (Map.Entry<? extends Term, ? extends Term> entry : map.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
         }
 
         public Term remove(Term key) {
-            return entries.remove(key);
+            Term oldValue = entries.get(key);
+            if (oldValue != null) {
+                entries = entries.minus(key);
+                entriesHashCode -= entryHashCode(key, oldValue);
+            }
+            return oldValue;
         }
 
         public Map<Term, Term> getEntries() {
-            return UnmodifiableMap.unmodifiableMap(entries);
+            return entries;
         }
 
         private void concatenate(Term term, boolean update) {
@@ -208,13 +259,27 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
             if (term instanceof BuiltinMap) {
                 BuiltinMap map = (BuiltinMap) term;
 
-                if (!update && entries.keySet().stream().anyMatch(key -> map.entries.containsKey(key) && !entries.get(key).equals(map.entries.get(key)))) {
-                    List<Triple<Term, Term, Term>> clashingKeys = entries.keySet().stream().filter(map.entries::containsKey).map(k -> Triple.of(k, entries.get(k), map.entries.get(k))).collect(Collectors.toList());
+                Map<Term, Term> smaller = entries.size() <= map.entries.size() ? entries : map.entries;
+                Map<Term, Term> larger = smaller == entries ? map.entries : entries;
+                if (!update && smaller.keySet().stream().anyMatch(key -> larger.containsKey(key) && !entries.get(key).equals(map.entries.get(key)))) {
+                    List<Triple<Term, Term, Term>> clashingKeys = smaller.keySet().stream().filter(larger::containsKey).map(k -> Triple.of(k, entries.get(k), map.entries.get(k))).collect(Collectors.toList());
                     throw KEMException.criticalError("failed to concatenate maps with common keys: "
                             + clashingKeys);
                 }
 
-                entries.putAll(map.entries);
+                if (entries.isEmpty()) {
+                    // share the trie of the concatenated map instead of rebuilding it
+                    entries = map.entries;
+                    entriesHashCode = map.entriesHashCode;
+                } else if (!update && entries.size() < map.entries.size()) {
+                    // keys are disjoint (or bound to equal values), so extend the larger map
+                    HashPMap<Term, Term> smallerEntries = entries;
+                    entries = map.entries;
+                    entriesHashCode = map.entriesHashCode;
+                    putAll(smallerEntries);
+                } else {
+                    putAll(map.entries);
+                }
                 patternsBuilder.addAll(map.collectionPatterns);
                 functionsBuilder.addAll(map.collectionFunctions);
                 variablesBuilder.addAll(map.collectionVariables);
@@ -257,12 +322,11 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         }
 
         public Term build() {
-            // YilongL: Guava's ImmutableMap.copyOf(entries) is not smart enough
-            // to avoid actually copying the entries, because entries is not an
-            // ImmutableMap yet; using Apache's decorate method because it would
-            // avoid creating nesting wrappers
+            // the entries are persistent, so later changes to this builder do not
+            // affect the built map and no copy is needed
             BuiltinMap builtinMap = new BuiltinMap(
-                    (UnmodifiableMap<Term, Term>) UnmodifiableMap.unmodifiableMap(entries),
+                    entries,
+                    entriesHashCode,
                     patternsBuilder.build(),
                     functionsBuilder.build(),
                     variablesBuilder.build(),
@@ -3,13 +3,18 @@ package org.kframework.backend.java.kil;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMultiset;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.backend.java.util.Constants;
 import org.kframework.utils.errorsystem.KEMException;
+import org.pcollections.HashTreePSet;
+import org.pcollections.MapPSet;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -19,21 +24,31 @@ import java.util.Set;
 
 /**
  * Class representing a set.
+ * <p>
+ * As in {@link BuiltinMap}, the concrete elements are kept in a persistent hash trie
+ * shared between a set and the sets derived from it, with an incrementally maintained hash code.
  *
  * @author AndreiS
  */
 public class BuiltinSet extends AssociativeCommutativeCollection {
 
-    private final ImmutableSet<Term> elements;
+    private final MapPSet<Term> elements;
+
+    /**
+     * The hash code of {@link #elements} as specified by {@link Set#hashCode()}.
+     */
+    private transient int elementsHashCode;
 
     private BuiltinSet(
-            ImmutableSet<Term> elements,
+            MapPSet<Term> elements,
+            int elementsHashCode,
             ImmutableMultiset<KItem> collectionPatterns,
             ImmutableMultiset<Term> collectionFunctions,
             ImmutableMultiset<Variable> collectionVariables,
             GlobalContext global) {
         super(collectionPatterns, collectionFunctions, collectionVariables, global);
         this.elements = elements;
+        this.elementsHashCode = elementsHashCode;
     }
 
     public static Term concatenate(GlobalContext global, Term... sets) {
@@ -85,7 +100,8 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
         }
 
         BuiltinSet set = (BuiltinSet) object;
-        return elements.equals(set.elements)
+        return elementsHashCode == set.elementsHashCode
+                && elements.equals(set.elements)
                 && collectionPatterns.equals(set.collectionPatterns)
                 && collectionFunctions.equals(set.collectionFunctions)
                 && collectionVariables.equals(set.collectionVariables);
@@ -94,7 +110,7 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
     @Override
     protected int computeHash() {
         int hashCode = 1;
-        hashCode = hashCode * Constants.HASH_PRIME + elements.hashCode();
+        hashCode = hashCode * Constants.HASH_PRIME + elementsHashCode;
         hashCode = hashCode * Constants.HASH_PRIME + collectionPatterns.hashCode();
         hashCode = hashCode * Constants.HASH_PRIME + collectionFunctions.hashCode();
         hashCode = hashCode * Constants.HASH_PRIME + collectionVariables.hashCode();
@@ -150,13 +166,31 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
         return components;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.writeObject(new HashSet<>(elements));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        Set<Term> set = (Set<Term>) in.readObject();
+        try {
+            Field elementsField = BuiltinSet.class.getDeclaredField("elements");
+            elementsField.setAccessible(true);
+            elementsField.set(this, HashTreePSet.from(set));
+        } catch (IllegalAccessException | NoSuchFieldException e) {
+            throw new IOException(e);
+        }
+        elementsHashCode = set.hashCode();
+    }
+
     public static Builder builder(GlobalContext global) {
         return new Builder(global);
     }
 
     public static class Builder {
 
-        private final Set<Term> elements = new HashSet<>();
+        private MapPSet<Term> elements = HashTreePSet.empty();
+        private int elementsHashCode = 0;
         private final ImmutableMultiset.Builder<KItem> patternsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Term> functionsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Variable> variablesBuilder = new ImmutableMultiset.Builder<>();
@@ -167,16 +201,29 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
         }
 
         public boolean add(Term element) {
-            return elements.add(element);
+            if (elements.contains(element)) {
+                return false;
+            }
+            elements = elements.plus(element);
+            elementsHashCode += element.hashCode();
+            return true;
         }
 
         public <T extends Term> boolean addAll(Collection<T> elements) {
-            // elements refers to the one in the outer class
-            return this.elements.addAll(elements);
+            boolean changed = false;
+            for (Term element : elements) {
+                changed |= add(element);
+            }
+            return changed;
         }
 
         public boolean remove(Term element) {
-            return elements.remove(element);
+            if (!elements.contains(element)) {
+                return false;
+            }
+            elements = elements.minus(element);
+            elementsHashCode -= element.hashCode();
+            return true;
         }
 
         /**
@@ -192,7 +239,15 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
 
                 if (term instanceof BuiltinSet) {
                     BuiltinSet set = (BuiltinSet) term;
-                    elements.addAll(set.elements);
+                    if (elements.size() < set.elements.size()) {
+                        // extend the larger set, sharing its trie
+                        MapPSet<Term> smallerElements = elements;
+                        elements = set.elements;
+                        elementsHashCode = set.elementsHashCode;
+                        addAll(smallerElements);
+                    } else {
+                        addAll(set.elements);
+                    }
                     patternsBuilder.addAll(set.collectionPatterns);
                     functionsBuilder.addAll(set.collectionFunctions);
                     variablesBuilder.addAll(set.collectionVariables);
@@ -210,7 +265,8 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
 
         public Term build() {
             BuiltinSet builtinSet = new BuiltinSet(
-                    ImmutableSet.copyOf(elements),
+                    elements,
+                    elementsHashCode,
                     patternsBuilder.build(),
                     functionsBuilder.build(),
                     variablesBuilder.build(),
@@ -6,7 +6,10 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
 import org.kframework.attributes.Att;
@@ -35,6 +38,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 import static org.kframework.Collections.*;
@@ -47,6 +52,7 @@ import static org.kframework.Collections.*;
 public class Definition extends JavaSymbolicObject {
 
     public static final String AUTOMATON = "automaton";
+    public static final String BYTES_TOKEN_MODULE = "BYTES-TOKEN";
 
 
     private static class DefinitionData implements Serializable {
@@ -56,6 +62,10 @@ public class Definition extends JavaSymbolicObject {
         public final ImmutableMap<String, Att> kLabelAttributes;
         public final Map<Sort, org.kframework.kore.KLabel> freshFunctionNames;
         public final Map<Sort, Sort> smtSortFlattening;
+        /**
+         * whether the definition imports {@code BYTES-TOKEN}, so that the builtin bytes are built as tokens
+         */
+        public final boolean bytesTokens;
 
         private DefinitionData(
                 Subsorts subsorts,
@@ -63,13 +73,15 @@ public class Definition extends JavaSymbolicObject {
                 SetMultimap<String, SortSignature> signatures,
                 ImmutableMap<String, Att> kLabelAttributes,
                 Map<Sort, org.kframework.kore.KLabel> freshFunctionNames,
-                Map<Sort, Sort> smtSortFlattening) {
+                Map<Sort, Sort> smtSortFlattening,
+                boolean bytesTokens) {
             this.subsorts = subsorts;
             this.dataStructureSorts = dataStructureSorts;
             this.signatures = signatures;
             this.kLabelAttributes = kLabelAttributes;
             this.freshFunctionNames = freshFunctionNames;
             this.smtSortFlattening = smtSortFlattening;
+            this.bytesTokens = bytesTokens;
         }
     }
 
@@ -80,6 +92,17 @@ public class Definition extends JavaSymbolicObject {
     private final Multimap<KLabelConstant, Rule> anywhereRules = HashMultimap.create();
     private final Multimap<KLabelConstant, Rule> patternRules = ArrayListMultimap.create();
     private final List<Rule> patternFoldingRules = new ArrayList<>();
+    /**
+     * indices of {@link #functionRules}, built on first use and discarded whenever a function rule is added;
+     * the indices of the functions are built concurrently by the requests sharing this definition
+     */
+    private transient volatile Map<KLabelConstant, FunctionRuleIndex> functionRuleIndices;
+    /**
+     * weak tables of the canonical instances of the {@link KItem}s built with hash-consing enabled, created on first
+     * use; one for each context using this definition, so that a canonical instance keeps the sort cache setting and
+     * the operations of the context it is built in
+     */
+    private transient volatile ConcurrentMap<GlobalContext, Interner<KItem>> kItemInterners;
 
     private Set<KLabelConstant> kLabels;
 
@@ -132,7 +155,8 @@ public class Definition extends JavaSymbolicObject {
                 JavaConverters.mapAsJavaMapConverter(module.freshFunctionFor()).asJava().entrySet().stream().collect(Collectors.toMap(
                         e -> Sort.of(e.getKey()),
                         e -> e.getValue())),
-                Collections.emptyMap()
+                Collections.emptyMap(),
+                module.importedModuleNames().contains(BYTES_TOKEN_MODULE)
         );
         context = null;
 
@@ -231,6 +255,7 @@ public class Definition extends JavaSymbolicObject {
     public void addRule(Rule rule) {
         if (rule.isFunction()) {
             functionRules.put(rule.definedKLabel(), rule);
+            functionRuleIndices = null;
             if (rule.isSortPredicate()) {
                 sortPredicateRules.put((KLabelConstant) rule.sortPredicateArgument().kLabel(), rule);
             }
@@ -284,6 +309,39 @@ public class Definition extends JavaSymbolicObject {
         return functionRules;
     }
 
+    /**
+     * Returns the rules of the function applied by the given {@link KItem} which may match it,
+     * in the order in which they appear in {@link #functionRules()}.
+     */
+    public List<Rule> functionRulesFor(KItem kItem) {
+        Map<KLabelConstant, FunctionRuleIndex> indices = functionRuleIndices;
+        if (indices == null) {
+            synchronized (this) {
+                indices = functionRuleIndices;
+                if (indices == null) {
+                    indices = new ConcurrentHashMap<>();
+                    functionRuleIndices = indices;
+                }
+            }
+        }
+        KLabelConstant kLabel = (KLabelConstant) kItem.kLabel();
+        return indices.computeIfAbsent(kLabel, l -> new FunctionRuleIndex(functionRules.get(l))).candidates(kItem);
+    }
+
+    public Interner<KItem> kItemInterner(GlobalContext global) {
+        ConcurrentMap<GlobalContext, Interner<KItem>> interners = kItemInterners;
+        if (interners == null) {
+            synchronized (this) {
+                interners = kItemInterners;
+                if (interners == null) {
+                    interners = new MapMaker().weakKeys().makeMap();
+                    kItemInterners = interners;
+                }
+            }
+        }
+        return interners.computeIfAbsent(global, g -> Interners.newWeakInterner());
+    }
+
     public Multimap<KLabelConstant, Rule> anywhereRules() {
         return anywhereRules;
     }
@@ -366,6 +424,10 @@ public class Definition extends JavaSymbolicObject {
         return definitionData.smtSortFlattening;
     }
 
+    public boolean bytesTokens() {
+        return definitionData.bytesTokens;
+    }
+
     public DefinitionData definitionData() {
         return definitionData;
     }
@@ -0,0 +1,137 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import org.kframework.builtin.KLabels;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes the rules defining a function by the head symbols of the arguments in their left-hand sides,
+ * so that evaluating an application of the function only attempts to match the rules which can possibly apply.
+ * <p>
+ * For every argument position, the index records which rules expect a given {@link KLabelConstant} or
+ * {@link Token} at that position, and which rules accept any term there (variables, collections, etc.).
+ * The candidate rules for an application are obtained by intersecting, over all argument positions,
+ * the rules compatible with the head symbol of the actual argument. Candidates are returned in definition
+ * order, so the first-match and [owise] semantics of function evaluation are preserved.
+ */
+final class FunctionRuleIndex {
+
+    private final List<Rule> rules;
+    private final int arity;
+    /**
+     * rules whose left-hand side does not have the arity of the index; they are always candidates
+     */
+    private final BitSet unindexed = new BitSet();
+    /**
+     * for each argument position, the rules expecting each head symbol at that position
+     */
+    private final List<Map<Term, BitSet>> byHead = new ArrayList<>();
+    /**
+     * for each argument position, the rules accepting any term at that position
+     */
+    private final List<BitSet> anyHead = new ArrayList<>();
+
+    FunctionRuleIndex(Collection<Rule> rules) {
+        this.rules = new ArrayList<>(rules);
+        this.arity = this.rules.stream().mapToInt(FunctionRuleIndex::arityOf).max().orElse(-1);
+        for (int i = 0; i < arity; i++) {
+            byHead.add(new HashMap<>());
+            anyHead.add(new BitSet());
+        }
+
+        for (int r = 0; r < this.rules.size(); r++) {
+            if (arityOf(this.rules.get(r)) != arity) {
+                unindexed.set(r);
+                continue;
+            }
+            KList kList = (KList) ((KItem) this.rules.get(r).leftHandSide()).kList();
+            for (int i = 0; i < arity; i++) {
+                Term head = head(kList.get(i));
+                if (head == null) {
+                    anyHead.get(i).set(r);
+                } else {
+                    byHead.get(i).computeIfAbsent(head, h -> new BitSet()).set(r);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the rules which may apply to the given application of the indexed function, in definition order.
+     */
+    List<Rule> candidates(KItem kItem) {
+        if (!(kItem.kList() instanceof KList)) {
+            return rules;
+        }
+        KList kList = (KList) kItem.kList();
+        if (!kList.isConcreteCollection() || kList.concreteSize() != arity) {
+            return rules;
+        }
+
+        BitSet candidates = null;
+        for (int i = 0; i < arity; i++) {
+            if (byHead.get(i).isEmpty()) {
+                continue;
+            }
+            Term head = head(kList.get(i));
+            if (head == null) {
+                continue;
+            }
+            BitSet compatible = (BitSet) anyHead.get(i).clone();
+            BitSet expecting = byHead.get(i).get(head);
+            if (expecting != null) {
+                compatible.or(expecting);
+            }
+            if (candidates == null) {
+                candidates = compatible;
+            } else {
+                candidates.and(compatible);
+            }
+        }
+        if (candidates == null) {
+            return rules;
+        }
+
+        candidates.or(unindexed);
+        List<Rule> result = new ArrayList<>(candidates.cardinality());
+        for (int r = candidates.nextSetBit(0); r >= 0; r = candidates.nextSetBit(r + 1)) {
+            result.add(rules.get(r));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of arguments in the left-hand side of a rule, or -1 if it is not a fixed number.
+     */
+    private static int arityOf(Rule rule) {
+        if (!(rule.leftHandSide() instanceof KItem) || !(((KItem) rule.leftHandSide()).kList() instanceof KList)) {
+            return -1;
+        }
+        KList kList = (KList) ((KItem) rule.leftHandSide()).kList();
+        return kList.isConcreteCollection() ? kList.concreteSize() : -1;
+    }
+
+    /**
+     * Returns the symbol a term must have at its top in order to match the given term (or be matched by it),
+     * or null if there is no such symbol. Sequences are excluded because matching treats a single item and
+     * a sequence containing only that item as equal.
+     */
+    private static Term head(Term term) {
+        if (term instanceof Token) {
+            return term;
+        }
+        if (term instanceof KItem && ((KItem) term).kLabel() instanceof KLabelConstant) {
+            KLabelConstant kLabel = (KLabelConstant) ((KItem) term).kLabel();
+            if (!KLabels.KSEQ.equals(kLabel) && !KLabels.DOTK.equals(kLabel)) {
+                return kLabel;
+            }
+        }
+        return null;
+    }
+}
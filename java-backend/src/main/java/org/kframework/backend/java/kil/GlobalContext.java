@@ -8,6 +8,8 @@ import org.kframework.backend.java.symbolic.BuiltinFunction;
 import org.kframework.backend.java.symbolic.Equality.EqualityOperations;
 import org.kframework.backend.java.symbolic.SMTOperations;
 import org.kframework.backend.java.symbolic.Stage;
+import org.kframework.backend.java.util.MemoCache;
+import org.kframework.backend.java.util.RuntimeMetrics;
 import org.kframework.backend.java.util.Z3Wrapper;
 import org.kframework.krun.KRunOptions;
 import org.kframework.krun.api.io.FileSystem;
@@ -32,6 +34,11 @@ public class GlobalContext implements Serializable {
     private final transient Map<String, MethodHandle> hookProvider;
     public final transient FileUtil files;
     public final transient GlobalOptions globalOptions;
+    private final transient boolean hashCons;
+    /**
+     * The metrics of the rewriting of the definition, or null if {@code --metrics-file} is not given.
+     */
+    private transient volatile RuntimeMetrics metrics;
 
     public GlobalContext(
             FileSystem fs,
@@ -50,9 +57,11 @@ public class GlobalContext implements Serializable {
         this.hookProvider = hookProvider;
         this.files = files;
         this.equalityOps = new EqualityOperations(() -> def);
-        this.constraintOps = new SMTOperations(() -> def, smtOptions, new Z3Wrapper(smtOptions, kem, globalOptions, files), kem, globalOptions);
-        this.kItemOps = new KItemOperations(stage, deterministicFunctions, kem, this::builtins, globalOptions);
+        this.constraintOps = new SMTOperations(() -> def, () -> metrics, smtOptions, new Z3Wrapper(smtOptions, kem, globalOptions, files), kem, globalOptions, files);
+        this.kItemOps = new KItemOperations(stage, deterministicFunctions, kem, this::builtins, globalOptions,
+                new MemoCache(krunOptions != null ? krunOptions.experimental.memoCacheSize : 0));
         this.stage = stage;
+        this.hashCons = krunOptions != null && krunOptions.experimental.hashCons;
     }
 
     @Inject
@@ -78,12 +87,35 @@ public class GlobalContext implements Serializable {
         return b;
     }
 
+    /**
+     * Returns the canonical instance structurally equal to the given {@link KItem} if hash-consing is enabled,
+     * or the {@link KItem} itself otherwise. The canonical instances are kept by the definition, separately for each
+     * context, so that the canonical instance returned was built in this context.
+     */
+    public KItem intern(KItem kItem) {
+        return hashCons && def != null ? def.kItemInterner(this).intern(kItem) : kItem;
+    }
+
     public void setDefinition(Definition def) {
         this.def = def;
+        if (stage == Stage.REWRITING && krunOptions != null && krunOptions.experimental.metricsFile != null) {
+            this.metrics = new RuntimeMetrics(def, krunOptions.experimental.metricsFile);
+        }
+    }
+
+    public RuntimeMetrics metrics() {
+        return metrics;
     }
 
     public Definition getDefinition() {
         return def;
     }
 
+    /**
+     * Releases the solver sessions of this context. Queries sent afterwards still get answered, without pooling.
+     */
+    public void close() {
+        constraintOps.close();
+    }
+
 }
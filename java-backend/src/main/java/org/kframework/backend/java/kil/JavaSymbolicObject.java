@@ -49,7 +49,9 @@ public abstract class JavaSymbolicObject<T extends JavaSymbolicObject<T>>
     volatile transient PSet<Variable> variableSet = null;
     volatile transient Boolean isGround = null;
     volatile transient Boolean isNormal = null;
-    volatile transient Set<ConjunctiveFormula> isEvaluated = Sets.newHashSet();
+    /* concurrent because rule terms and memoized results are shared by the threads proving claims in parallel;
+     * the constraints are wrapped because the top constraint of a context may be null */
+    volatile transient Set<Optional<ConjunctiveFormula>> isEvaluated = Sets.newConcurrentHashSet();
     volatile transient Set<Term> userVariableSet = null;
 
     private Att att;
@@ -160,7 +162,15 @@ public abstract class JavaSymbolicObject<T extends JavaSymbolicObject<T>>
      * {@code ConjunctiveFormula}, false otherwise.
      */
     public boolean isEvaluated(ConjunctiveFormula constraint) {
-        return isEvaluated.contains(constraint);
+        return isEvaluated.contains(Optional.ofNullable(constraint));
+    }
+
+    /**
+     * Records that the function and anywhere symbols in this {@code JavaSymbolicObject} have been
+     * evaluated under the given {@code ConjunctiveFormula}.
+     */
+    void markEvaluated(ConjunctiveFormula constraint) {
+        isEvaluated.add(Optional.ofNullable(constraint));
     }
 
     /**
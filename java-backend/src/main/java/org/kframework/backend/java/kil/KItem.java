@@ -9,8 +9,9 @@ import org.kframework.backend.java.builtins.MetaK;
 import org.kframework.backend.java.builtins.SortMembership;
 import org.kframework.backend.java.symbolic.*;
 import org.kframework.backend.java.util.ImpureFunctionException;
-import org.kframework.backend.java.util.Profiler;
+import org.kframework.backend.java.util.MemoCache;
 import org.kframework.backend.java.util.RewriteEngineUtils;
+import org.kframework.backend.java.util.RuntimeMetrics;
 import org.kframework.backend.java.util.Subsorts;
 import org.kframework.backend.java.util.Constants;
 import org.kframework.builtin.KLabels;
@@ -52,15 +53,15 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
     private final Term kLabel;
     private final Term kList;
 
-    // sort info, computed lazily
+    // sort info, computed lazily; sort is assigned last so that a thread seeing it also sees the rest
     private boolean isExactSort;
-    private Sort sort;
+    private volatile Sort sort;
     private Set<Sort> possibleSorts;
     private transient boolean enableCache; // for lazy computation
     private final GlobalContext global; // for lazy computation
 
-    private Boolean evaluable = null;
-    private Boolean anywhereApplicable = null;
+    private volatile Boolean evaluable = null;
+    private volatile Boolean anywhereApplicable = null;
 
     private BitSet[] childrenDontCareRuleMask = null;
 
@@ -86,7 +87,12 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
         kList = KCollection.upKind(kList, Kind.KLIST);
 
         // TODO(yilongli): break the dependency on the Tool object
-        return new KItem(kLabel, kList, global, global.stage, att, childrenDontCareRuleMask);
+        KItem kItem = new KItem(kLabel, kList, global, global.stage, att, childrenDontCareRuleMask);
+        /* attributes and rule masks are not part of structural equality, so only plain KItems are shared */
+        if (childrenDontCareRuleMask == null && att.equals(Att.empty())) {
+            return global.intern(kItem);
+        }
+        return kItem;
     }
 
     public KItem(Term kLabel, Term kList, Sort sort, boolean isExactSort) {
@@ -159,9 +165,9 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
             CacheTableColKey cacheTabColKey = new CacheTableColKey((KLabelConstant) kLabel, (KList) kList);
             CacheTableValue cacheTabVal = definition.getSortCacheValue(cacheTabColKey);
             if (cacheTabVal != null) {
-                sort = cacheTabVal.sort;
                 isExactSort = cacheTabVal.isExactSort;
                 possibleSorts = cacheTabVal.possibleSorts;
+                sort = cacheTabVal.sort;
                 return;
             }
         }
@@ -255,9 +261,9 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
         boolean isExactSort = kLabelConstant.isConstructor() && possibleSorts.isEmpty();
         possibleSorts.add(sort);
 
-        this.sort = sort;
         this.isExactSort = isExactSort;
         this.possibleSorts = possibleSorts;
+        this.sort = sort;
 
         CacheTableValue cacheTabVal = new CacheTableValue(sort, isExactSort, possibleSorts);
 
@@ -270,15 +276,19 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
         return global.kItemOps.isEvaluable(this, global.getDefinition());
     }
 
+    /**
+     * Evaluates this function application with the operations of the given context rather than of the context this
+     * {@link KItem} was built in, which for the subterms of rules is the context initializing the definition.
+     */
     public Term evaluateFunction(TermContext context) {
-        Term result = global.kItemOps.evaluateFunction(this, context);
-        result.isEvaluated.add(context.getTopConstraint());
+        Term result = context.global().kItemOps.evaluateFunction(this, context);
+        result.markEvaluated(context.getTopConstraint());
         return result;
     }
 
     public Term resolveFunctionAndAnywhere(TermContext context) {
-        Term result = global.kItemOps.resolveFunctionAndAnywhere(this, context);
-        result.isEvaluated.add(context.getTopConstraint());
+        Term result = context.global().kItemOps.resolveFunctionAndAnywhere(this, context);
+        result.markEvaluated(context.getTopConstraint());
         return result;
     }
 
@@ -306,18 +316,25 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
         private final KExceptionManager kem;
         private final Provider<BuiltinFunction> builtins;
         private final GlobalOptions options;
+        private final MemoCache memoCache;
 
         public KItemOperations(
                 Stage stage,
                 boolean deterministicFunctions,
                 KExceptionManager kem,
                 Provider<BuiltinFunction> builtins,
-                GlobalOptions options) {
+                GlobalOptions options,
+                MemoCache memoCache) {
             this.stage = stage;
             this.deterministicFunctions = deterministicFunctions;
             this.kem = kem;
             this.builtins = builtins;
             this.options = options;
+            this.memoCache = memoCache;
+        }
+
+        public MemoCache memoCache() {
+            return memoCache;
         }
 
         private static final String TRACE_MSG = "Function evaluation triggered infinite recursion. Trace:";
@@ -396,10 +413,32 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
                 return kItem;
             }
 
+            KLabelConstant kLabelConstant = (KLabelConstant) kItem.kLabel;
+            /* memoize only calls whose result cannot depend on the path condition */
+            if (!kLabelConstant.isMemo() || !(kItem.kList instanceof KList)
+                    || !kItem.kList.isGround() || !kItem.kList.isNormal()) {
+                return evaluateFunctionWithoutMemo(kItem, context);
+            }
+
+            KList kList = (KList) kItem.kList;
+            Term result = memoCache.get(kLabelConstant, kList);
+            if (result == null) {
+                result = evaluateFunctionWithoutMemo(kItem, context);
+                if (result != kItem && result.isGround()) {
+                    memoCache.put(kLabelConstant, kList, result);
+                }
+            }
+            return result;
+        }
+
+        private Term evaluateFunctionWithoutMemo(KItem kItem, TermContext context) {
             Definition definition = context.definition();
             KLabelConstant kLabelConstant = (KLabelConstant) kItem.kLabel;
 
-            Profiler.startTimer(Profiler.getTimerForFunction(kLabelConstant));
+            RuntimeMetrics metrics = context.global().metrics();
+            if (metrics != null) {
+                metrics.start();
+            }
 
             try {
                 KList kList = (KList) kItem.kList;
@@ -450,7 +489,11 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
 
                     // an argument is concrete if it doesn't contain variables or unresolved functions
                     boolean isConcrete = kList.getContents().stream().filter(elem -> !elem.isGround() || !elem.isNormal()).collect(Collectors.toList()).isEmpty();
-                    for (Rule rule : definition.functionRules().get(kLabelConstant)) {
+                    // when auditing, every rule is tried so that the audited rule reports why it failed
+                    Iterable<Rule> rules = RuleAuditing.getAuditingRule() != null || RuleAuditing.isAuditBegun() ?
+                            definition.functionRules().get(kLabelConstant) :
+                            definition.functionRulesFor(kItem);
+                    for (Rule rule : rules) {
                         try {
                             if (rule == RuleAuditing.getAuditingRule()) {
                                 RuleAuditing.beginAudit();
@@ -562,7 +605,9 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
                 }
                 return kItem;
             } finally {
-                Profiler.stopTimer(Profiler.getTimerForFunction(kLabelConstant));
+                if (metrics != null) {
+                    metrics.stop(RuntimeMetrics.Category.FUNCTION, kLabelConstant.label());
+                }
             }
         }
     }
@@ -66,6 +66,12 @@ public class KLabelConstant extends KLabel implements org.kframework.kore.KLabel
      */
     private final boolean isPattern;
 
+    /*
+     * boolean flag set iff a production tagged with "memo" generates
+     * this {@code KLabelConstant}
+     */
+    private final boolean isMemo;
+
     private final boolean isSortPredicate;
 
     private final Sort predicateSort;
@@ -108,6 +114,7 @@ public class KLabelConstant extends KLabel implements org.kframework.kore.KLabel
         this.isFunction = isFunction;
         this.isProjection = isProjection;
         this.isPattern = isPattern;
+        this.isMemo = productionAttributes.contains(Attribute.MEMO_KEY);
         this.smtlib = smtlib;
     }
 
@@ -162,6 +169,13 @@ public class KLabelConstant extends KLabel implements org.kframework.kore.KLabel
         return isPattern;
     }
 
+    /**
+     * Returns true iff the results of the function generating this {@code KLabelConstant} may be memoized.
+     */
+    public boolean isMemo() {
+        return isMemo;
+    }
+
     /**
      * Returns true if this {@code KLabelConstant} is a sort membership
      * predicate; otherwise, false.
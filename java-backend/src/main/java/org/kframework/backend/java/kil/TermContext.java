@@ -11,16 +11,35 @@ import org.kframework.utils.errorsystem.KEMException;
 
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * An object containing context specific to a particular configuration.
  */
 public class TermContext extends JavaSymbolicObject {
 
+    /**
+     * The size of the ranges of fresh constants and of anonymous variables reserved for each branch by
+     * {@link #forkBranches(List)}. A branch is a single node expansion, which is assumed to use fewer values.
+     */
+    public static final long BRANCH_COUNTER_RANGE = 1L << 20;
+
+    /* the first anonymous variable of a branch forked from contexts using the global counter of Variable */
+    private static final long FIRST_SCOPED_VARIABLE = 1L << 31;
+
     private final AtomicLong counter;
 
+    /* the counter of the anonymous variables created under this context, or null for the global counter */
+    private final AtomicLong variableCounter;
+
+    /* the ends of the ranges reserved by forkBranches for this context and its siblings */
+    private final long reservedCounter;
+    private final long reservedVariableCounter;
+
     private final GlobalContext global;
 
     private Set<Variable> initialVariables;
@@ -31,9 +50,13 @@ public class TermContext extends JavaSymbolicObject {
 
     private KOREtoBackendKIL converter;
 
-    private TermContext(GlobalContext global, AtomicLong counter) {
+    private TermContext(GlobalContext global, AtomicLong counter, AtomicLong variableCounter,
+                        long reservedCounter, long reservedVariableCounter) {
         this.global = global;
         this.counter = counter;
+        this.variableCounter = variableCounter;
+        this.reservedCounter = reservedCounter;
+        this.reservedVariableCounter = reservedVariableCounter;
         this.initialVariables = Sets.newHashSet();
     }
 
@@ -51,10 +74,56 @@ public class TermContext extends JavaSymbolicObject {
 
 
     /**
-     * Forks an identical {@link TermContext}.
+     * Forks an identical {@link TermContext}. The fork has its own fresh counter, starting
+     * at the current value of this one, and its own top term and top constraint.
      */
     public TermContext fork() {
-        return counter != null ? new TermContext(global, new AtomicLong(counter.get())) : this;
+        return fork(
+                counter != null ? new AtomicLong(counter.get()) : null,
+                variableCounter != null ? new AtomicLong(variableCounter.get()) : null,
+                reservedCounter,
+                reservedVariableCounter);
+    }
+
+    /**
+     * Forks the given contexts, one for each of the nodes of a frontier expanded concurrently. The i-th fork
+     * numbers its fresh constants and its anonymous variables from the i-th range of {@link #BRANCH_COUNTER_RANGE}
+     * values above everything the given contexts, and the siblings they were forked with, may have used. What a
+     * branch generates therefore depends only on its position in the frontier, and not on the order in which the
+     * branches are scheduled. Each fork has its own top term and top constraint.
+     */
+    public static List<TermContext> forkBranches(List<TermContext> contexts) {
+        long counter = 0;
+        long variableCounter = FIRST_SCOPED_VARIABLE;
+        for (TermContext context : contexts) {
+            if (context.counter != null) {
+                counter = Math.max(counter, Math.max(context.counter.get(), context.reservedCounter));
+            }
+            if (context.variableCounter != null) {
+                variableCounter = Math.max(variableCounter,
+                        Math.max(context.variableCounter.get(), context.reservedVariableCounter));
+            }
+        }
+        long reservedCounter = counter + contexts.size() * BRANCH_COUNTER_RANGE;
+        long reservedVariableCounter = variableCounter + contexts.size() * BRANCH_COUNTER_RANGE;
+        List<TermContext> forks = new ArrayList<>(contexts.size());
+        for (int i = 0; i < contexts.size(); i++) {
+            TermContext context = contexts.get(i);
+            forks.add(context.fork(
+                    context.counter != null ? new AtomicLong(counter + i * BRANCH_COUNTER_RANGE) : null,
+                    new AtomicLong(variableCounter + i * BRANCH_COUNTER_RANGE),
+                    reservedCounter,
+                    reservedVariableCounter));
+        }
+        return forks;
+    }
+
+    private TermContext fork(AtomicLong counter, AtomicLong variableCounter, long reservedCounter,
+                             long reservedVariableCounter) {
+        TermContext fork = new TermContext(global, counter, variableCounter, reservedCounter, reservedVariableCounter);
+        fork.initialVariables = initialVariables;
+        fork.converter = converter;
+        return fork;
     }
 
     public BigInteger freshConstant() {
@@ -68,6 +137,14 @@ public class TermContext extends JavaSymbolicObject {
         return counter.get();
     }
 
+    /**
+     * Runs {@code task} on the current thread with the anonymous variables numbered from the variable counter of
+     * this context, see {@link Variable#withCounter(AtomicLong, Supplier)}.
+     */
+    public <T> T withVariableCounter(Supplier<T> task) {
+        return Variable.withCounter(variableCounter, task);
+    }
+
     public Definition definition() {
         return global.getDefinition();
     }
@@ -120,6 +197,8 @@ public class TermContext extends JavaSymbolicObject {
 
         private AtomicLong counter;
 
+        private AtomicLong variableCounter;
+
         public Builder(GlobalContext globalContext) {
             this.globalContext = globalContext;
         }
@@ -129,8 +208,18 @@ public class TermContext extends JavaSymbolicObject {
             return this;
         }
 
+        /**
+         * Numbers the anonymous variables created under the built context from {@code initialValue} rather than
+         * from the global counter of {@link Variable}. The value must be above {@link Integer#MAX_VALUE}.
+         */
+        public Builder variableCounter(long initialValue) {
+            assert initialValue > Integer.MAX_VALUE;
+            this.variableCounter = new AtomicLong(initialValue);
+            return this;
+        }
+
         public TermContext build() {
-            return new TermContext(globalContext, counter);
+            return new TermContext(globalContext, counter, variableCounter, 0, 0);
         }
 
     }
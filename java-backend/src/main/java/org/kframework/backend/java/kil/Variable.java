@@ -16,6 +16,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import static org.kframework.Collections.Seq;
 
@@ -29,7 +31,9 @@ public class Variable extends Term implements org.kframework.kore.KVariable {
 
     protected static final String VARIABLE_PREFIX = "_";
     protected static final AtomicInteger counter = new AtomicInteger(0);
-    private static final Map<Pair<Integer, Sort>, Variable> deserializationAnonymousVariableMap = new ConcurrentHashMap<>();
+    /* the counter replacing the global one on the current thread, see withCounter */
+    private static final ThreadLocal<AtomicLong> scopedCounter = new ThreadLocal<>();
+    private static final Map<Pair<Long, Sort>, Variable> deserializationAnonymousVariableMap = new ConcurrentHashMap<>();
 
     public static int getCounter() {
         return counter.get();
@@ -39,6 +43,21 @@ public class Variable extends Term implements org.kframework.kore.KVariable {
         counter.set(c);
     }
 
+    /**
+     * Runs {@code task} with the anonymous variables created on the current thread numbered from {@code scoped}
+     * rather than from the global counter, so that their names depend only on the work done by {@code task} and
+     * not on what other threads do meanwhile. A {@code null} counter stands for the global counter.
+     */
+    public static <T> T withCounter(AtomicLong scoped, Supplier<T> task) {
+        AtomicLong previous = scopedCounter.get();
+        scopedCounter.set(scoped);
+        try {
+            return task.get();
+        } finally {
+            scopedCounter.set(previous);
+        }
+    }
+
     /**
      * Given a set of {@link Variable}s, returns a substitution that maps each
      * element inside to a fresh {@code Variable}.
@@ -63,7 +82,9 @@ public class Variable extends Term implements org.kframework.kore.KVariable {
      * @return the fresh variable
      */
     public static Variable getAnonVariable(Sort sort) {
-        return new Variable(VARIABLE_PREFIX + counter.getAndIncrement(), sort, true, -1);
+        AtomicLong scoped = scopedCounter.get();
+        long id = scoped != null ? scoped.getAndIncrement() : counter.getAndIncrement();
+        return new Variable(VARIABLE_PREFIX + id, sort, true, -1);
     }
 
     /* TODO(AndreiS): cache the variables */
@@ -210,13 +231,14 @@ public class Variable extends Term implements org.kframework.kore.KVariable {
      */
     Object readResolve() {
         if (anonymous) {
-            int id = Integer.parseInt(name.substring(VARIABLE_PREFIX.length()));
+            long id = Long.parseLong(name.substring(VARIABLE_PREFIX.length()));
             /* keep polling the counter until we acquire `id` successfully or we know that
-            * `id` has been used and this anonymous variable must be renamed */
+            * `id` has been used and this anonymous variable must be renamed; ids drawn from
+            * a scoped counter are beyond the global counter and always renamed */
             for (int c = counter.get(); ; ) {
-                if (id < c) {
+                if (id < c || id >= Integer.MAX_VALUE) {
                     return deserializationAnonymousVariableMap.computeIfAbsent(Pair.of(id, sort), p -> getFreshCopy());
-                } else if (counter.compareAndSet(c, id + 1)) {
+                } else if (counter.compareAndSet(c, (int) id + 1)) {
                     return this;
                 }
             }
@@ -7,6 +7,7 @@ import org.kframework.backend.java.kil.KLabelConstant;
 import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.util.ImpureFunctionException;
+import org.kframework.backend.java.util.RuntimeMetrics;
 import org.kframework.kil.Attribute;
 import org.kframework.kore.KLabel;
 import org.kframework.kore.KORE;
@@ -34,6 +35,11 @@ public class BuiltinFunction {
      * {@link Method} representation of Java implementation of said operations.
      */
     private final Map<KLabelConstant, MethodHandle> table = new HashMap<>();
+    /**
+     * Map of the builtin operations to the names of their hooks, under which their evaluations are recorded
+     * in the {@link RuntimeMetrics}.
+     */
+    private final Map<KLabelConstant, String> hooks = new HashMap<>();
 
 
     /**
@@ -73,7 +79,9 @@ public class BuiltinFunction {
                     continue;
                 }
 
-                table.put(KLabelConstant.of(KORE.KLabel(entry.getKey()), definition), hookProvider.get(hookAttribute));
+                KLabelConstant label = KLabelConstant.of(KORE.KLabel(entry.getKey()), definition);
+                table.put(label, hookProvider.get(hookAttribute));
+                hooks.put(label, hookAttribute);
             }
         }
     }
@@ -104,7 +112,16 @@ public class BuiltinFunction {
         // TODO(YilongL): is reflection/exception really the best way to
         // deal with builtin functions? builtin functions are supposed to be
         // super-fast...
-        return (Term) table.get(label).invokeWithArguments(args);
+        RuntimeMetrics metrics = context.global().metrics();
+        if (metrics == null) {
+            return (Term) table.get(label).invokeWithArguments(args);
+        }
+        metrics.start();
+        try {
+            return (Term) table.get(label).invokeWithArguments(args);
+        } finally {
+            metrics.stop(RuntimeMetrics.Category.HOOK, hooks.get(label));
+        }
     }
 
     /**
@@ -6,7 +6,6 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang3.tuple.Pair;
-import org.apache.commons.lang3.tuple.Triple;
 import org.kframework.Debugg;
 import org.kframework.backend.java.builtins.BoolToken;
 import org.kframework.backend.java.builtins.IntToken;
@@ -822,18 +821,12 @@ public class ConjunctiveFormula extends Term implements CollectionInternalRepres
         return simplifiedConstraint;
     }
 
-    private static final Map<Triple<ConjunctiveFormula, ConjunctiveFormula, Set<Variable>>, Boolean> impliesSMTCache = Collections.synchronizedMap(new HashMap<>());
-
     private static boolean impliesSMT(
             ConjunctiveFormula left,
             ConjunctiveFormula right,
             Set<Variable> rightOnlyVariables) {
         Debugg.log(Debugg.LogEvent.IMPLICATION, left, right);
-        Triple<ConjunctiveFormula, ConjunctiveFormula, Set<Variable>> triple = Triple.of(left, right, rightOnlyVariables);
-        if (!impliesSMTCache.containsKey(triple)) {
-            impliesSMTCache.put(triple, left.global.constraintOps.impliesSMT(left, right, rightOnlyVariables));
-        }
-        return impliesSMTCache.get(triple);
+        return left.global.constraintOps.impliesSMT(left, right, rightOnlyVariables);
     }
 
     public boolean hasMapEqualities() {
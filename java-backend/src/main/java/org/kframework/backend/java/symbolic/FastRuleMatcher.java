@@ -274,6 +274,11 @@ public class FastRuleMatcher {
             return addUnification(subject, pattern, ruleMask, path);
         }
 
+        // with hash-consing, ground subterms of the subject are often the very instances occurring in the rules
+        if (subject == pattern && pattern.isGround()) {
+            return ruleMask;
+        }
+
         // normalize associative representations
         if (subject instanceof BuiltinList && !(pattern instanceof BuiltinList)) {
             pattern = ((BuiltinList) subject).upElementToList(pattern);
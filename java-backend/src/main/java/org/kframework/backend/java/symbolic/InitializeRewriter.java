@@ -1,7 +1,6 @@
 // Copyright (c) 2015-2018 K Team. All Rights Reserved.
 package org.kframework.backend.java.symbolic;
 
-import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
 import org.kframework.RewriterResult;
 import org.kframework.backend.java.compile.KOREtoBackendKIL;
@@ -28,6 +27,7 @@ import org.kframework.kore.K;
 import org.kframework.kore.KApply;
 import org.kframework.kore.KORE;
 import org.kframework.kprove.KProve;
+import org.kframework.kprove.KProveOptions;
 import org.kframework.krun.KRunOptions;
 import org.kframework.krun.api.io.FileSystem;
 import org.kframework.main.GlobalOptions;
@@ -50,8 +50,11 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.kframework.Collections.*;
 import static org.kframework.kore.KORE.*;
@@ -73,7 +76,13 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
     private final FileUtil files;
     private final InitializeDefinition initializeDefinition;
     private static final int NEGATIVE_VALUE = -1;
+    /**
+     * The number of fresh constants and of anonymous variables reserved for each claim.
+     */
+    private static final long CLAIM_COUNTER_RANGE = 1L << 48;
     private final KompileOptions kompileOptions;
+    private final int proveThreads;
+    private final int frontierThreads;
 
     @Inject
     public InitializeRewriter(
@@ -83,6 +92,7 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
             SMTOptions smtOptions,
             KRunOptions krunOptions,
             KompileOptions kompileOptions,
+            KProveOptions kproveOptions,
             FileUtil files,
             InitializeDefinition initializeDefinition,
             Stopwatch sw) {
@@ -98,6 +108,10 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
         this.krunOptions = krunOptions;
         this.files = files;
         this.initializeDefinition = initializeDefinition;
+        // Debugg logs the current term and rule in global state, so proofs logged with it are kept sequential
+        this.proveThreads = kproveOptions.debugg ? 1 : kproveOptions.proveThreads;
+        this.frontierThreads = kproveOptions.debugg ? 1
+                : Math.max(krunOptions.experimental.frontierThreads, kproveOptions.frontierThreads);
     }
 
     @Override
@@ -106,10 +120,13 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
                 .freshCounter(0).build();
         Definition definition;
         definition = initializeDefinition.invoke(mainModule, kem, initializingContext.global());
+        initializingContext.global().close();
         GlobalContext rewritingContext = new GlobalContext(fs, deterministicFunctions, globalOptions, krunOptions, kem, smtOptions, hookProvider, files, Stage.REWRITING);
         rewritingContext.setDefinition(definition);
 
-        return new SymbolicRewriterGlue(mainModule, definition, definition, transitions, initializingContext.getCounterValue(), rewritingContext, kem, files, kompileOptions, sw);
+        ForkJoinPool frontierPool = frontierThreads > 1 ? new ForkJoinPool(frontierThreads) : null;
+
+        return new SymbolicRewriterGlue(mainModule, definition, definition, transitions, initializingContext.getCounterValue(), rewritingContext, kem, files, kompileOptions, sw, proveThreads, frontierPool);
     }
 
     public static Rule transformFunction(Function<K, K> f, Rule r) {
@@ -133,6 +150,8 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
         private final List<String> transitions;
         private KompileOptions kompileOptions;
         private final Stopwatch sw;
+        private final int proveThreads;
+        private final ForkJoinPool frontierPool;
 
         public SymbolicRewriterGlue(
                 Module module,
@@ -143,8 +162,12 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
                 GlobalContext rewritingContext,
                 KExceptionManager kem,
                 FileUtil files, KompileOptions kompileOptions,
-                Stopwatch sw) {
+                Stopwatch sw,
+                int proveThreads,
+                ForkJoinPool frontierPool) {
             this.transitions = transitions;
+            this.proveThreads = proveThreads;
+            this.frontierPool = frontierPool;
             this.files = files;
             this.kompileOptions = kompileOptions;
             this.sw = sw;
@@ -165,8 +188,35 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
             termContext.setKOREtoBackendKILConverter(converter);
             Term backendKil = converter.convert(macroExpander.expand(resolveCasts.resolve(k))).evaluate(termContext);
             SymbolicRewriter rewriter = new SymbolicRewriter(rewritingContext, transitions, converter);
-            RewriterResult result = rewriter.rewrite(new ConstrainedTerm(backendKil, termContext), depth.orElse(-1));
-            return result;
+            try {
+                return rewriter.rewrite(new ConstrainedTerm(backendKil, termContext), depth.orElse(-1));
+            } finally {
+                writeMetrics();
+            }
+        }
+
+        /**
+         * Writes the metrics recorded so far by the rewriting context, if {@code --metrics-file} is given.
+         * With krun --batch, the metrics of all the runs are written once, by {@link #close()}.
+         */
+        private void writeMetrics() {
+            if (rewritingContext.metrics() != null && rewritingContext.krunOptions.experimental.batch == null) {
+                rewritingContext.metrics().write();
+            }
+        }
+
+        /**
+         * Writes the metrics of a krun --batch, then shuts down the solver sessions and frontier threads.
+         */
+        @Override
+        public void close() {
+            if (rewritingContext.metrics() != null && rewritingContext.krunOptions.experimental.batch != null) {
+                rewritingContext.metrics().write();
+            }
+            rewritingContext.close();
+            if (frontierPool != null) {
+                frontierPool.shutdown();
+            }
         }
 
         @Override
@@ -184,8 +234,12 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
             termContext.setKOREtoBackendKILConverter(converter);
             Term javaTerm = converter.convert(macroExpander.expand(resolveCasts.resolve(initialConfiguration))).evaluate(termContext);
             org.kframework.backend.java.kil.Rule javaPattern = converter.convert(Optional.empty(), transformFunction(JavaBackend::convertKSeqToKApply, pattern));
-            SymbolicRewriter rewriter = new SymbolicRewriter(rewritingContext, transitions, converter);
-            return rewriter.search(javaTerm, javaPattern, bound.orElse(NEGATIVE_VALUE), depth.orElse(NEGATIVE_VALUE), searchType, termContext);
+            SymbolicRewriter rewriter = new SymbolicRewriter(rewritingContext, transitions, converter, frontierPool);
+            try {
+                return rewriter.search(javaTerm, javaPattern, bound.orElse(NEGATIVE_VALUE), depth.orElse(NEGATIVE_VALUE), searchType, termContext);
+            } finally {
+                writeMetrics();
+            }
         }
 
 
@@ -199,7 +253,6 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
             List<Rule> rules = stream(mod.rules()).filter(r -> r.att().contains("specification")).collect(Collectors.toList());
             ProcessProofRules processProofRules = new ProcessProofRules(rules).invoke(rewritingContext, initCounterValue, module, definition);
             List<org.kframework.backend.java.kil.Rule> javaRules = processProofRules.getJavaRules();
-            KOREtoBackendKIL converter = processProofRules.getConverter();
             TermContext termContext = processProofRules.getTermContext();
             List<org.kframework.backend.java.kil.Rule> allRules = javaRules.stream()
                     .map(org.kframework.backend.java.kil.Rule::renameVariables)
@@ -210,25 +263,94 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
                     .map(org.kframework.backend.java.kil.Rule::renameVariables)
                     .collect(Collectors.toList());
 
-            SymbolicRewriter rewriter = new SymbolicRewriter(rewritingContext, transitions, converter);
-
-            List<ConstrainedTerm> proofResults = javaRules.stream()
+            List<org.kframework.backend.java.kil.Rule> claims = javaRules.stream()
                     .filter(r -> !r.att().contains(Attribute.TRUSTED_KEY))
-                    .map(r -> {
-                        ConstrainedTerm lhs = r.createLhsPattern(termContext);
-                        ConstrainedTerm rhs = r.createRhsPattern();
-                        termContext.setInitialVariables(lhs.variableSet());
-                        return rewriter.proveRule(lhs, rhs, allRules);
-                    })
-                    .flatMap(List::stream)
                     .collect(Collectors.toList());
 
+            List<ConstrainedTerm> proofResults;
+            try {
+                long counterValue = termContext.getCounterValue();
+                if (proveThreads <= 1 || claims.size() <= 1) {
+                    proofResults = IntStream.range(0, claims.size())
+                            .mapToObj(i -> proveClaim(claims, i, counterValue, allRules))
+                            .flatMap(List::stream)
+                            .collect(Collectors.toList());
+                } else {
+                    proofResults = proveInParallel(claims, counterValue, allRules);
+                }
+            } finally {
+                writeMetrics();
+            }
+
             return proofResults.stream()
                     .map(ConstrainedTerm::term)
                     .map(t -> (KApply) t)
                     .reduce(((k1, k2) -> KApply(KLabels.ML_AND, k1, k2))).orElse(KApply(KLabels.ML_TRUE));
         }
 
+        /**
+         * Proves the i-th claim with its own {@link SymbolicRewriter}, {@link KOREtoBackendKIL} converter and
+         * {@link TermContext}. The fresh counter of the i-th claim starts at
+         * {@code counterValue + i * CLAIM_COUNTER_RANGE}, and its anonymous variables are numbered from
+         * {@code i * CLAIM_COUNTER_RANGE}, except for the first claim, which uses the global counter of
+         * {@link org.kframework.backend.java.kil.Variable}. What a claim generates therefore depends only on its position in the specification, so
+         * the results are the same whether the claims are proved sequentially or in parallel.
+         */
+        private List<ConstrainedTerm> proveClaim(
+                List<org.kframework.backend.java.kil.Rule> claims,
+                int i,
+                long counterValue,
+                List<org.kframework.backend.java.kil.Rule> allRules) {
+            TermContext.Builder builder = TermContext.builder(rewritingContext)
+                    .freshCounter(counterValue + i * CLAIM_COUNTER_RANGE);
+            if (i > 0) {
+                builder.variableCounter(i * CLAIM_COUNTER_RANGE);
+            }
+            TermContext termContext = builder.build();
+            KOREtoBackendKIL converter = new KOREtoBackendKIL(module, definition, rewritingContext, false);
+            termContext.setKOREtoBackendKILConverter(converter);
+            SymbolicRewriter rewriter = new SymbolicRewriter(rewritingContext, transitions, converter, frontierPool);
+            org.kframework.backend.java.kil.Rule claim = claims.get(i);
+            return termContext.withVariableCounter(() -> {
+                ConstrainedTerm lhs = claim.createLhsPattern(termContext);
+                ConstrainedTerm rhs = claim.createRhsPattern();
+                termContext.setInitialVariables(lhs.variableSet());
+                return rewriter.proveRule(lhs, rhs, allRules);
+            });
+        }
+
+        /**
+         * Proves each claim on a work-stealing pool of {@code proveThreads} threads, see
+         * {@link #proveClaim(List, int, long, List)}. Results are concatenated in claim order.
+         */
+        private List<ConstrainedTerm> proveInParallel(
+                List<org.kframework.backend.java.kil.Rule> claims,
+                long counterValue,
+                List<org.kframework.backend.java.kil.Rule> allRules) {
+            ForkJoinPool pool = new ForkJoinPool(proveThreads);
+            try {
+                return pool.submit(() -> IntStream.range(0, claims.size()).parallel()
+                        .mapToObj(i -> proveClaim(claims, i, counterValue, allRules))
+                        .collect(Collectors.toList()))
+                        .get().stream()
+                        .flatMap(List::stream)
+                        .collect(Collectors.toList());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw KEMException.criticalError("Interrupted while proving specification rules", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw KEMException.criticalError("Failed to prove specification rules", e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+
         @Override
         public boolean equivalence(Rewriter firstDef, Rewriter secondDef, Module firstSpec, Module secondSpec) {
             if (!(firstDef instanceof SymbolicRewriterGlue) || !(secondDef instanceof SymbolicRewriterGlue)) {
@@ -265,8 +387,8 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
 
             ConjunctiveFormula ensure = ConjunctiveFormula.of(global);
 
-            ImmutableList<Term> l1 = getChildren(e1);
-            ImmutableList<Term> l2 = getChildren(e2);
+            List<Term> l1 = getChildren(e1);
+            List<Term> l2 = getChildren(e2);
 
             assert l1.size() == l2.size();
             for (int j = 0; j < l1.size(); j++) {
@@ -279,7 +401,7 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
             return ensure;
         }
 
-        private static ImmutableList<Term> getChildren(ConjunctiveFormula e) {
+        private static List<Term> getChildren(ConjunctiveFormula e) {
             // TODO: make it better
             assert e.equalities().size() == 1;
             assert e.equalities().get(0).leftHandSide() instanceof KItem;
@@ -411,6 +533,17 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
     }
 
 
+    /**
+     * Initializes the backend definitions of the modules of a kompiled definition. Scoped to the kompiled definition,
+     * so that the K server initializes each of them once, for all the requests using it.
+     * <p>
+     * The terms of a shared definition keep the {@link GlobalContext} of the request which initialized it, which they
+     * only use to look up the definition; functions are evaluated with the context of the request rewriting them.
+     * A request reusing a definition only binds its own initializing context to it, and never mutates it: the
+     * definition keeps the {@link KExceptionManager} of the request which built it, which is only used while adding
+     * rules, and each request reports through the {@link KExceptionManager} of its own {@link GlobalContext}.
+     */
+    @DefinitionScoped
     public static class InitializeDefinition {
 
         private final Map<Module, Definition> cache = new LinkedHashMap<Module, Definition>() {
@@ -420,9 +553,11 @@ public class InitializeRewriter implements Function<Module, Rewriter> {
             }
         };
 
-        public Definition invoke(Module module, KExceptionManager kem, GlobalContext global) {
-            if (cache.containsKey(module)) {
-                return cache.get(module);
+        public synchronized Definition invoke(Module module, KExceptionManager kem, GlobalContext global) {
+            Definition cached = cache.get(module);
+            if (cached != null) {
+                global.setDefinition(cached);
+                return cached;
             }
             Definition definition = new Definition(module, kem);
 
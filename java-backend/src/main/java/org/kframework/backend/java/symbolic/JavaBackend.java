@@ -14,6 +14,7 @@ import org.kframework.definition.Module;
 import org.kframework.kompile.CompiledDefinition;
 import org.kframework.kompile.Kompile;
 import org.kframework.kompile.KompileOptions;
+import org.kframework.kompile.PassCache;
 import org.kframework.kore.ADT;
 import org.kframework.kore.KSequence;
 import org.kframework.kore.Sort;
@@ -26,11 +27,13 @@ import org.kframework.kore.SortedADT;
 import org.kframework.backend.java.compile.ConvertDataStructureToLookup;
 import org.kframework.kore.TransformK;
 import org.kframework.main.GlobalOptions;
+import org.kframework.utils.BinaryLoader;
 import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.file.FileUtil;
 import scala.Option;
 
 import static org.kframework.definition.Constructors.*;
+import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -84,24 +87,45 @@ public class JavaBackend implements Backend {
      */
     @Override
     public Function<Definition, Definition> steps() {
-        DefinitionTransformer convertDataStructureToLookup = DefinitionTransformer.fromSentenceTransformer((m, s) -> new ConvertDataStructureToLookup(m, false).convert(s), "convert data structures to lookups");
+        return d -> {
+            if (!kompileOptions.experimental.incremental) {
+                return steps(null).apply(d);
+            }
+            BinaryLoader loader = new BinaryLoader(kem);
+            File cacheFile = files.resolveKompiled("passes.bin");
+            PassCache cache = PassCache.load(loader, cacheFile, kompileOptions, excludedModuleTags(), kem);
+            Definition result = steps(cache).apply(d);
+            cache.save(loader, cacheFile);
+            if (globalOptions.verbose) {
+                System.out.format("Reused %d module passes from the previous compilation%n", cache.hits());
+            }
+            return result;
+        };
+    }
 
-        return d -> DefinitionTransformer.fromRuleBodyTransformer(RewriteToTop::bubbleRewriteToTopInsideCells, "bubble out rewrites below cells")
-                .andThen(DefinitionTransformer.fromSentenceTransformer(JavaBackend::convertListItemToNonFunction, "remove function attribute from ListItem production"))
-                .andThen(DefinitionTransformer.fromSentenceTransformer(new NormalizeAssoc(KORE.c()), "normalize assoc"))
-                .andThen(DefinitionTransformer.from(AddBottomSortForListsWithIdenticalLabels.singleton(), "add bottom sorts for lists"))
-                .andThen(DefinitionTransformer.fromSentenceTransformer((m, s) -> new ExpandMacros(m, kem, files, globalOptions, kompileOptions).expand(s), "expand macros"))
-                .andThen(DefinitionTransformer.fromSentenceTransformer(new NormalizeAssoc(KORE.c()), "normalize assoc"))
-                .andThen(convertDataStructureToLookup)
-                .andThen(DefinitionTransformer.fromRuleBodyTransformer(JavaBackend::ADTKVariableToSortedVariable, "ADT.KVariable to SortedVariable"))
-                .andThen(DefinitionTransformer.fromRuleBodyTransformer(JavaBackend::convertKSeqToKApply, "kseq to kapply"))
-                .andThen(DefinitionTransformer.fromRuleBodyTransformer(NormalizeKSeq.self()::apply, "normalize kseq"))
+    private Function<Definition, Definition> steps(ModuleCache cache) {
+        DefinitionTransformer convertDataStructureToLookup = DefinitionTransformer.fromSentenceTransformer((m, s) -> new ConvertDataStructureToLookup(m, false).convert(s), "convert data structures to lookups");
+        // the coverage instrumentation is written out while expanding macros, so they are expanded again when needed
+        DefinitionTransformer expandMacros = Kompile.withCache(
+                DefinitionTransformer.fromSentenceTransformer((m, s) -> new ExpandMacros(m, kem, files, globalOptions, kompileOptions).expand(s), "expand macros"),
+                kompileOptions.coverage ? null : cache);
+
+        return d -> Kompile.withCache(DefinitionTransformer.fromRuleBodyTransformer(RewriteToTop::bubbleRewriteToTopInsideCells, "bubble out rewrites below cells"), cache)
+                .andThen(Kompile.withCache(DefinitionTransformer.fromSentenceTransformer(JavaBackend::convertListItemToNonFunction, "remove function attribute from ListItem production"), cache))
+                .andThen(Kompile.withCache(DefinitionTransformer.fromSentenceTransformer(new NormalizeAssoc(KORE.c()), "normalize assoc"), cache))
+                .andThen(Kompile.withCache(DefinitionTransformer.from(AddBottomSortForListsWithIdenticalLabels.singleton(), "add bottom sorts for lists"), cache))
+                .andThen(expandMacros)
+                .andThen(Kompile.withCache(DefinitionTransformer.fromSentenceTransformer(new NormalizeAssoc(KORE.c()), "normalize assoc"), cache))
+                .andThen(Kompile.withCache(convertDataStructureToLookup, cache))
+                .andThen(Kompile.withCache(DefinitionTransformer.fromRuleBodyTransformer(JavaBackend::ADTKVariableToSortedVariable, "ADT.KVariable to SortedVariable"), cache))
+                .andThen(Kompile.withCache(DefinitionTransformer.fromRuleBodyTransformer(JavaBackend::convertKSeqToKApply, "kseq to kapply"), cache))
+                .andThen(Kompile.withCache(DefinitionTransformer.fromRuleBodyTransformer(NormalizeKSeq.self()::apply, "normalize kseq"), cache))
                 .andThen(JavaBackend::markRegularRules)
-                .andThen(DefinitionTransformer.fromSentenceTransformer(new AddConfigurationRecoveryFlags(), "add refers_THIS_CONFIGURATION_marker"))
-                .andThen(DefinitionTransformer.fromSentenceTransformer(JavaBackend::markSingleVariables, "mark single variables"))
-                .andThen(DefinitionTransformer.from(new AssocCommToAssoc(), "convert AC matching to A matching"))
-                .andThen(DefinitionTransformer.from(new MergeRules(), "merge rules into one rule with or clauses"))
-                .apply(Kompile.defaultSteps(kompileOptions, kem, files, excludedModuleTags()).apply(d));
+                .andThen(Kompile.withCache(DefinitionTransformer.fromSentenceTransformer(new AddConfigurationRecoveryFlags(), "add refers_THIS_CONFIGURATION_marker"), cache))
+                .andThen(Kompile.withCache(DefinitionTransformer.fromSentenceTransformer(JavaBackend::markSingleVariables, "mark single variables"), cache))
+                .andThen(Kompile.withCache(DefinitionTransformer.from(new AssocCommToAssoc(), "convert AC matching to A matching"), cache))
+                .andThen(Kompile.withCache(DefinitionTransformer.from(new MergeRules(), "merge rules into one rule with or clauses"), cache))
+                .apply(Kompile.defaultSteps(kompileOptions, kem, files, excludedModuleTags(), cache).apply(d));
              // .andThen(KoreToMiniToKore::apply) // for serialization/deserialization test
     }
 
@@ -455,7 +455,7 @@ public class    KILtoSMTLib extends CopyOnWriteTransformer {
                     variable = Variable.getAnonVariable(term.sort());
                     termAbstractionMap.put(term, variable);
                 }
-                return variable.name();
+                return "|" + variable.name() + "|";
             } else {
                 throw e;
             }
@@ -534,7 +534,7 @@ public class    KILtoSMTLib extends CopyOnWriteTransformer {
         switch (label) {
             case "exists":
                 Variable variable = (Variable) kList.get(0);
-                label = "exists ((" + variable.name() + " " + variable.sort() + ")) ";
+                label = "exists ((|" + variable.name() + "| " + variable.sort() + ")) ";
                 arguments = ImmutableList.of(kList.get(1));
                 break;
             case "extract":
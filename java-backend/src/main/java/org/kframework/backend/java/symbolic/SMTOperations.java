@@ -4,8 +4,11 @@ package org.kframework.backend.java.symbolic;
 import org.kframework.main.GlobalOptions;
 import org.kframework.backend.java.kil.Definition;
 import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.util.RuntimeMetrics;
 import org.kframework.backend.java.util.Z3Wrapper;
+import org.kframework.backend.java.z3.Z3Status;
 import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
 import org.kframework.utils.options.SMTOptions;
 import org.kframework.utils.options.SMTSolver;
 
@@ -19,17 +22,32 @@ public class SMTOperations {
     private final Z3Wrapper         z3;
     private final GlobalOptions     global;
     private final KExceptionManager kem;
+    private final SMTQueryCache     cache;
+    private final Provider<RuntimeMetrics> metrics;
+    private boolean closed;
 
     public SMTOperations(
             Provider<Definition> definitionProvider,
+            Provider<RuntimeMetrics> metrics,
             SMTOptions smtOptions,
             Z3Wrapper z3,
             KExceptionManager kem,
-            GlobalOptions global) {
+            GlobalOptions global,
+            FileUtil files) {
         this.smtOptions = smtOptions;
         this.z3         = z3;
         this.kem        = kem;
         this.global     = global;
+        this.metrics    = metrics;
+        this.cache      = SMTQueryCache.of(
+                smtOptions.smtCacheSize,
+                z3.SMT_PRELUDE,
+                smtOptions.smtPersistentCache ? files.resolveKompiled("smt-cache.bin") : null,
+                kem);
+    }
+
+    public SMTQueryCache cache() {
+        return cache;
     }
 
     public boolean checkUnsat(ConjunctiveFormula constraint) {
@@ -44,7 +62,8 @@ public class SMTOperations {
         boolean result = false;
         try {
             String query = KILtoSMTLib.translateConstraint(constraint);
-            result = z3.isUnsat(query, smtOptions.z3CnstrTimeout);
+            result = cache.get("unsat", smtOptions.z3CnstrTimeout, query,
+                    () -> check("checkUnsat", query, smtOptions.z3CnstrTimeout)) == Z3Status.UNSAT;
             if (result && RuleAuditing.isAuditBegun()) {
                 System.err.println("SMT query returned unsat: " + query);
             }
@@ -63,9 +82,9 @@ public class SMTOperations {
             Set<Variable> rightOnlyVariables) {
         if (smtOptions.smt == SMTSolver.Z3) {
             try {
-                return z3.isUnsat(
-                        KILtoSMTLib.translateImplication(left, right, rightOnlyVariables),
-                        smtOptions.z3ImplTimeout);
+                String query = KILtoSMTLib.translateImplication(left, right, rightOnlyVariables);
+                return cache.get("implies", smtOptions.z3ImplTimeout, query,
+                        () -> check("impliesSMT", query, smtOptions.z3ImplTimeout)) == Z3Status.UNSAT;
             } catch (UnsupportedOperationException | SMTTranslationFailure e) {
                 System.err.println(e.getMessage());
                 if (!smtOptions.ignoreMissingSMTLibWarning) {
@@ -78,4 +97,31 @@ public class SMTOperations {
         }
         return false;
     }
+
+    /**
+     * Closes the solver sessions and releases the cache, see {@link SMTQueryCache#release()}.
+     */
+    public synchronized void close() {
+        z3.close();
+        if (!closed) {
+            closed = true;
+            cache.release();
+        }
+    }
+
+    /**
+     * Sends the given query to the solver, recording it under {@code queryType} if metrics are collected.
+     */
+    private Z3Status check(String queryType, String query, int timeout) {
+        RuntimeMetrics m = metrics.get();
+        if (m == null) {
+            return z3.check(query, timeout);
+        }
+        m.start();
+        try {
+            return z3.check(query, timeout);
+        } finally {
+            m.stop(RuntimeMetrics.Category.SMT, queryType);
+        }
+    }
 }
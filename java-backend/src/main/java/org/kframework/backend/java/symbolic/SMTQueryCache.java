@@ -0,0 +1,359 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.kframework.backend.java.z3.Z3Status;
+import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.errorsystem.KEMException;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of SMT query results, keyed on a digest of the normalized SMT-LIB text
+ * of each query (see {@link #normalize(String)}), so that alpha-equivalent queries generated
+ * by different proofs share one entry. Only definitive answers are cached: a query the solver
+ * gave up on, for instance because of a timeout, is sent again the next time.
+ * <p>
+ * Entries are spread over a fixed number of independently locked LRU stripes. The solver is
+ * never invoked while holding a lock; two threads racing on the same missing key may both
+ * query the solver. A capacity of 0 disables the cache.
+ * <p>
+ * Optionally, the cache is loaded from and saved to a file, so that results are reused across
+ * runs; the file is discarded if the SMT prelude has changed. The persistent caches are shared
+ * by all the rewriters of the process using the same file and prelude; a persistent cache is
+ * saved and dropped once all of them have released it, and otherwise when the JVM exits.
+ */
+public class SMTQueryCache {
+
+    private static final int STRIPES = 16;
+
+    private static class Stripe extends LinkedHashMap<String, Z3Status> {
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Z3Status> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private static class PersistentCache implements Serializable {
+        private static final long serialVersionUID = 2L;
+
+        private final String preludeDigest;
+        private final HashMap<String, Z3Status> entries;
+
+        PersistentCache(String preludeDigest, HashMap<String, Z3Status> entries) {
+            this.preludeDigest = preludeDigest;
+            this.entries = entries;
+        }
+    }
+
+    /* guarded by the class lock, as are the users of each persistent cache */
+    private static final Map<String, SMTQueryCache> persistentCaches = new HashMap<>();
+    private static boolean shutdownHookAdded;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final boolean enabled;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final String preludeDigest;
+    private final File file;
+    private int users;
+
+    /**
+     * @param capacity the maximum number of cached results, or 0 to disable the cache
+     * @param prelude  the SMT prelude every query is checked against
+     * @param file     the file to load the cache from and save it to, or null if the cache is not persistent
+     */
+    public SMTQueryCache(int capacity, String prelude, File file, KExceptionManager kem) {
+        this.enabled = capacity > 0;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe((capacity + STRIPES - 1) / STRIPES);
+        }
+        this.preludeDigest = digest(prelude);
+        this.file = enabled ? file : null;
+        if (this.file != null) {
+            load(kem);
+        }
+    }
+
+    /**
+     * Returns a new cache if {@code file} is null, and otherwise the persistent cache of the process for the given
+     * file and prelude, creating it on first use; {@code capacity} only matters when the cache is created. Every
+     * cache returned must be released with {@link #release()} once it is no longer used.
+     */
+    public static synchronized SMTQueryCache of(int capacity, String prelude, File file, KExceptionManager kem) {
+        if (file == null || capacity <= 0) {
+            return new SMTQueryCache(capacity, prelude, null, kem);
+        }
+        SMTQueryCache cache = persistentCaches.computeIfAbsent(file.getAbsolutePath() + "\n" + digest(prelude), k -> {
+            addShutdownHook();
+            return new SMTQueryCache(capacity, prelude, file.getAbsoluteFile(), kem);
+        });
+        cache.users++;
+        return cache;
+    }
+
+    /**
+     * Releases a cache returned by {@link #of(int, String, File, KExceptionManager)}. A persistent cache is saved
+     * and dropped from the process when its last user releases it; it still answers queries afterwards, but what it
+     * learns then is not saved.
+     */
+    public void release() {
+        if (file == null) {
+            return;
+        }
+        synchronized (SMTQueryCache.class) {
+            if (--users == 0 && persistentCaches.remove(file.getPath() + "\n" + preludeDigest, this)) {
+                save();
+            }
+        }
+    }
+
+    private static synchronized void addShutdownHook() {
+        if (shutdownHookAdded) {
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            synchronized (SMTQueryCache.class) {
+                persistentCaches.values().forEach(SMTQueryCache::save);
+            }
+        }));
+        shutdownHookAdded = true;
+    }
+
+    /**
+     * Returns the cached answer to the given query, or computes and returns it, caching it only if it is
+     * {@link Z3Status#SAT} or {@link Z3Status#UNSAT}.
+     *
+     * @param kind    distinguishes queries whose answers have different meanings
+     * @param timeout the solver timeout the query is checked with
+     * @param query   the SMT-LIB text of the query
+     * @param compute evaluates the query on a cache miss
+     */
+    public Z3Status get(String kind, int timeout, String query, Supplier<Z3Status> compute) {
+        if (!enabled) {
+            misses.increment();
+            return compute.get();
+        }
+        String key = kind + ":" + timeout + ":" + digest(normalize(query));
+        Stripe stripe = stripeFor(key);
+        Z3Status result;
+        synchronized (stripe) {
+            result = stripe.get(key);
+        }
+        if (result != null) {
+            hits.increment();
+            return result;
+        }
+        misses.increment();
+        Z3Status computed = compute.get();
+        if (computed != Z3Status.UNKNOWN) {
+            synchronized (stripe) {
+                stripe.put(key, computed);
+            }
+        }
+        return computed;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SMT cache: " + hits() + " hits, " + misses() + " misses";
+    }
+
+    private Stripe stripeFor(String key) {
+        return stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    private void load(KExceptionManager kem) {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            PersistentCache persisted = new BinaryLoader(kem).load(PersistentCache.class, file);
+            if (!persisted.preludeDigest.equals(preludeDigest)) {
+                return;
+            }
+            for (Map.Entry<String, Z3Status> entry : persisted.entries.entrySet()) {
+                Stripe stripe = stripeFor(entry.getKey());
+                synchronized (stripe) {
+                    stripe.put(entry.getKey(), entry.getValue());
+                }
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            kem.registerInternalHiddenWarning("Ignoring unreadable SMT cache " + file, e);
+        }
+    }
+
+    /**
+     * Writes the current contents of the cache to its file, if the cache is persistent. Failures are reported on
+     * the standard error, since the cache is saved after the requests using it have ended.
+     */
+    public void save() {
+        if (file == null) {
+            return;
+        }
+        HashMap<String, Z3Status> entries = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                entries.putAll(stripe);
+            }
+        }
+        try {
+            new BinaryLoader(null).save(file, new PersistentCache(preludeDigest, entries));
+        } catch (IOException | KEMException e) {
+            System.err.println("Could not save SMT cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static String digest(String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return new BigInteger(1, md.digest(text.getBytes(StandardCharsets.UTF_8))).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Puts an SMT-LIB query produced by {@link KILtoSMTLib} into a canonical form:
+     * the quoted symbols declared by the query itself, which are the variables, are renamed
+     * in order of first occurrence in the assertions, and the sort and constant declarations,
+     * whose order depends on hashing, are sorted. Other quoted symbols, such as those of
+     * {@code smtlib} attributes declared in the prelude, are kept. The result is
+     * equisatisfiable with the query.
+     */
+    public static String normalize(String query) {
+        List<String> commands = splitCommands(query);
+        List<String> sortDeclarations = new ArrayList<>();
+        List<String> functionDeclarations = new ArrayList<>();
+        List<String> assertions = new ArrayList<>();
+        for (String command : commands) {
+            if (command.startsWith("(declare-sort") || command.startsWith("(define-sort")) {
+                sortDeclarations.add(command);
+            } else if (command.startsWith("(declare-fun") || command.startsWith("(declare-const")) {
+                functionDeclarations.add(command);
+            } else {
+                assertions.add(command);
+            }
+        }
+
+        Set<String> declared = new HashSet<>();
+        for (String command : functionDeclarations) {
+            String symbol = declaredSymbol(command);
+            if (symbol != null) {
+                declared.add(symbol);
+            }
+        }
+        Map<String, String> renaming = new HashMap<>();
+        List<String> renamedAssertions = new ArrayList<>();
+        for (String command : assertions) {
+            renamedAssertions.add(rename(command, declared, renaming));
+        }
+        List<String> renamedDeclarations = new ArrayList<>();
+        for (String command : functionDeclarations) {
+            renamedDeclarations.add(rename(command, declared, renaming));
+        }
+        Collections.sort(sortDeclarations);
+        Collections.sort(renamedDeclarations);
+
+        StringBuilder sb = new StringBuilder();
+        sortDeclarations.forEach(c -> sb.append(c).append('\n'));
+        renamedDeclarations.forEach(c -> sb.append(c).append('\n'));
+        renamedAssertions.forEach(c -> sb.append(c).append('\n'));
+        return sb.toString();
+    }
+
+    /**
+     * Splits SMT-LIB text into its top-level commands, skipping whitespace between them.
+     */
+    private static List<String> splitCommands(String text) {
+        List<String> commands = new ArrayList<>();
+        int depth = 0;
+        int start = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '|' || c == '"') {
+                int end = text.indexOf(c, i + 1);
+                i = end < 0 ? text.length() - 1 : end;
+            } else if (c == ';') {
+                int end = text.indexOf('\n', i);
+                i = end < 0 ? text.length() - 1 : end;
+            } else if (c == '(') {
+                if (depth++ == 0) {
+                    start = i;
+                }
+            } else if (c == ')') {
+                if (--depth == 0) {
+                    commands.add(text.substring(start, i + 1));
+                }
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * Returns the symbol declared by a {@code declare-fun} or {@code declare-const} command, if it is quoted.
+     */
+    private static String declaredSymbol(String command) {
+        int start = command.indexOf(' ');
+        while (start >= 0 && start < command.length() && Character.isWhitespace(command.charAt(start))) {
+            start++;
+        }
+        if (start < 0 || start >= command.length() || command.charAt(start) != '|') {
+            return null;
+        }
+        int end = command.indexOf('|', start + 1);
+        return end < 0 ? null : command.substring(start, end + 1);
+    }
+
+    private static String rename(String command, Set<String> declared, Map<String, String> renaming) {
+        StringBuilder sb = new StringBuilder(command.length());
+        int i = 0;
+        while (i < command.length()) {
+            char c = command.charAt(i);
+            int end;
+            if ((c == '|' || c == '"') && (end = command.indexOf(c, i + 1)) >= 0) {
+                String token = command.substring(i, end + 1);
+                if (c == '|' && declared.contains(token)) {
+                    token = renaming.computeIfAbsent(token, t -> "|v" + renaming.size() + "|");
+                }
+                sb.append(token);
+                i = end + 1;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+}
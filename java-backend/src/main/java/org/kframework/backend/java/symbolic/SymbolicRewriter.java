@@ -26,6 +26,8 @@ import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Variable;
 import org.kframework.backend.java.strategies.TransitionCompositeStrategy;
+import org.kframework.backend.java.util.Coverage;
+import org.kframework.backend.java.util.RuntimeMetrics;
 import org.kframework.builtin.KLabels;
 import org.kframework.builtin.Sorts;
 import org.kframework.kore.FindK;
@@ -35,10 +37,12 @@ import org.kframework.kore.KRewrite;
 import org.kframework.kore.KORE;
 import org.kframework.rewriter.SearchType;
 import org.kframework.backend.java.utils.BitSet;
+import org.kframework.utils.errorsystem.KEMException;
 
 import static org.kframework.kore.KORE.KRewrite;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -46,6 +50,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -58,22 +65,38 @@ public class SymbolicRewriter {
     private final Stopwatch stopwatch = Stopwatch.createUnstarted();
     private final KOREtoBackendKIL constructor;
     private boolean transition;
-    private final Set<ConstrainedTerm> superheated = Sets.newHashSet();
-    private final Set<ConstrainedTerm> newSuperheated = Sets.newHashSet();
-    private final FastRuleMatcher theFastMatcher;
+    private final Set<ConstrainedTerm> superheated = Sets.newConcurrentHashSet();
+    private final Set<ConstrainedTerm> newSuperheated = Sets.newConcurrentHashSet();
+    private final ThreadLocal<FastRuleMatcher> theFastMatcher;
     private final Definition definition;
     private final BitSet allRuleBits;
+    /**
+     * Pool used to expand the nodes of a search or proof frontier concurrently, or null to expand them serially.
+     */
+    private final ForkJoinPool frontierPool;
+    /**
+     * Records the locations of the applied rules if --coverage-file is given, and is null otherwise.
+     */
+    private final Coverage coverage;
 
     public SymbolicRewriter(GlobalContext global, List<String> transitions,
                             KOREtoBackendKIL constructor) {
+        this(global, transitions, constructor, null);
+    }
+
+    public SymbolicRewriter(GlobalContext global, List<String> transitions,
+                            KOREtoBackendKIL constructor, ForkJoinPool frontierPool) {
         this.constructor = constructor;
+        this.frontierPool = frontierPool;
         this.definition = global.getDefinition();
         this.allRuleBits = BitSet.apply(definition.ruleTable.size());
         this.allRuleBits.makeOnes(definition.ruleTable.size());
         this.strategy = new TransitionCompositeStrategy(transitions);
         this.transitions = transitions;
-        this.theFastMatcher = new FastRuleMatcher(global, definition.ruleTable.size());
+        this.theFastMatcher = ThreadLocal.withInitial(() -> new FastRuleMatcher(global, definition.ruleTable.size()));
         this.transition = true;
+        this.coverage = global.krunOptions == null ? null
+                : Coverage.of(global.krunOptions.experimental.coverage, global.krunOptions.experimental.coverageHistogram);
     }
 
     public KOREtoBackendKIL getConstructor() {
@@ -93,6 +116,10 @@ public class SymbolicRewriter {
         ConstrainedTerm afterVariableRename = new ConstrainedTerm(constrainedTerm.term(), constrainedTerm.termContext());
 
         stopwatch.stop();
+        if (constrainedTerm.termContext().global().krunOptions.experimental.statistics) {
+            System.err.println("[" + step + "steps, " + stopwatch + "]");
+            System.err.println(constrainedTerm.termContext().global().kItemOps.memoCache());
+        }
         return new RewriterResult(Optional.of(step), afterVariableRename.term());
     }
 
@@ -160,7 +187,8 @@ public class SymbolicRewriter {
         if (definition.automaton == null) {
             return results;
         }
-        List<FastRuleMatcher.RuleMatchResult> matches = theFastMatcher.matchRulePattern(
+        RuntimeMetrics metrics = subject.termContext().global().metrics();
+        List<FastRuleMatcher.RuleMatchResult> matches = theFastMatcher.get().matchRulePattern(
                 subject,
                 definition.automaton.leftHandSide(),
                 allRuleBits,
@@ -170,72 +198,96 @@ public class SymbolicRewriter {
                 proofFlag,
                 subject.termContext());
         for (FastRuleMatcher.RuleMatchResult matchResult : matches) {
-            Rule rule = definition.ruleTable.get(matchResult.ruleIndex);
-            Substitution<Variable, Term> substitution =
-                    rule.att().contains(Att.refers_THIS_CONFIGURATION()) ?
-                            matchResult.constraint.substitution().plus(new Variable(KLabels.THIS_CONFIGURATION, Sort.KSEQUENCE), filterOurStrategyCell(subject.term())) :
-                            matchResult.constraint.substitution();
-            // start the optimized substitution
-
-            // get a map from AST paths to (fine-grained, inner) rewrite RHSs
-            assert (matchResult.rewrites.size() > 0);
-            Term theNew;
-            if (matchResult.rewrites.size() == 1)
-            // use the more efficient implementation if we only have one rewrite
-            {
-                theNew = buildRHS(subject.term(), substitution, matchResult.rewrites.keySet().iterator().next(),
-                        matchResult.rewrites.values().iterator().next(), subject.termContext());
+            ConstrainedTerm result;
+            if (metrics == null) {
+                result = applyMatch(subject, matchResult);
             } else {
-                theNew = buildRHS(subject.term(), substitution,
-                        matchResult.rewrites.entrySet().stream().map(e -> Pair.of(e.getKey(), e.getValue())).collect(Collectors.toList()),
-                        subject.termContext());
+                metrics.start();
+                try {
+                    result = applyMatch(subject, matchResult);
+                } finally {
+                    metrics.stopRule(matchResult.ruleIndex);
+                }
             }
-
-            if (!matchResult.isMatching) {
-                theNew = theNew.substituteAndEvaluate(substitution, subject.termContext());
+            if (result != null) {
+                results.add(result);
             }
+        }
 
-            subject.termContext().setTopConstraint(null);
+        if (results.isEmpty()) {
+            addStuckFlagIfNotThere(subject).ifPresent(results::add);
+        }
 
-            theNew = restoreConfigurationIfNecessary(subject, rule, theNew);
+        return results;
+    }
 
-            /* eliminate bindings of the substituted variables */
-            ConjunctiveFormula constraint = matchResult.constraint;
-            constraint = constraint.removeBindings(rule.variableSet());
+    /**
+     * Builds the result of rewriting the subject with the rule of the given match, or returns null if the result
+     * is unsatisfiable or a cooling step of a superheated subject.
+     */
+    private ConstrainedTerm applyMatch(ConstrainedTerm subject, FastRuleMatcher.RuleMatchResult matchResult) {
+        Rule rule = definition.ruleTable.get(matchResult.ruleIndex);
+        Substitution<Variable, Term> substitution =
+                rule.att().contains(Att.refers_THIS_CONFIGURATION()) ?
+                        matchResult.constraint.substitution().plus(new Variable(KLabels.THIS_CONFIGURATION, Sort.KSEQUENCE), filterOurStrategyCell(subject.term())) :
+                        matchResult.constraint.substitution();
+        // start the optimized substitution
+
+        // get a map from AST paths to (fine-grained, inner) rewrite RHSs
+        assert (matchResult.rewrites.size() > 0);
+        Term theNew;
+        if (matchResult.rewrites.size() == 1)
+        // use the more efficient implementation if we only have one rewrite
+        {
+            theNew = buildRHS(subject.term(), substitution, matchResult.rewrites.keySet().iterator().next(),
+                    matchResult.rewrites.values().iterator().next(), subject.termContext());
+        } else {
+            theNew = buildRHS(subject.term(), substitution,
+                    matchResult.rewrites.entrySet().stream().map(e -> Pair.of(e.getKey(), e.getValue())).collect(Collectors.toList()),
+                    subject.termContext());
+        }
 
-            /* get fresh substitutions of rule variables */
-            Map<Variable, Variable> renameSubst = Variable.rename(rule.variableSet());
+        if (!matchResult.isMatching) {
+            theNew = theNew.substituteAndEvaluate(substitution, subject.termContext());
+        }
 
-            /* rename rule variables in both the term and the constraint */
-            theNew = theNew.substituteWithBinders(renameSubst);
-            constraint = ((ConjunctiveFormula) constraint.substituteWithBinders(renameSubst)).simplify(subject.termContext());
+        subject.termContext().setTopConstraint(null);
 
-            ConstrainedTerm result = new ConstrainedTerm(theNew, constraint, subject.termContext());
-            if (!matchResult.isMatching) {
-                // TODO(AndreiS): move these some other place
-                result = result.expandPatterns(true);
-                Debugg.log(Debugg.LogEvent.MATCHRULE, ruleToKRewrite(rule));
-                if (result.constraint().isFalse() || result.constraint().checkUnsat()) {
-                    continue;
-                }
-                Debugg.resetMatchrule();
-            }
+        theNew = restoreConfigurationIfNecessary(subject, rule, theNew);
 
-            /* TODO(AndreiS): remove this hack for super strictness after strategies work */
-            if (rule.att().contains(Att.heat()) && transitions.stream().anyMatch(rule.att()::contains)) {
-                newSuperheated.add(result);
-            } else if (rule.att().contains(Att.cool()) && transitions.stream().anyMatch(rule.att()::contains) && superheated.contains(subject)) {
-                continue;
-            }
+        /* eliminate bindings of the substituted variables */
+        ConjunctiveFormula constraint = matchResult.constraint;
+        constraint = constraint.removeBindings(rule.variableSet());
+
+        /* get fresh substitutions of rule variables */
+        Map<Variable, Variable> renameSubst = Variable.rename(rule.variableSet());
+
+        /* rename rule variables in both the term and the constraint */
+        theNew = theNew.substituteWithBinders(renameSubst);
+        constraint = ((ConjunctiveFormula) constraint.substituteWithBinders(renameSubst)).simplify(subject.termContext());
 
-            results.add(result);
+        ConstrainedTerm result = new ConstrainedTerm(theNew, constraint, subject.termContext());
+        if (!matchResult.isMatching) {
+            // TODO(AndreiS): move these some other place
+            result = result.expandPatterns(true);
+            Debugg.log(Debugg.LogEvent.MATCHRULE, ruleToKRewrite(rule));
+            if (result.constraint().isFalse() || result.constraint().checkUnsat()) {
+                return null;
+            }
+            Debugg.resetMatchrule();
         }
 
-        if (results.isEmpty()) {
-            addStuckFlagIfNotThere(subject).ifPresent(results::add);
+        /* TODO(AndreiS): remove this hack for super strictness after strategies work */
+        if (rule.att().contains(Att.heat()) && transitions.stream().anyMatch(rule.att()::contains)) {
+            newSuperheated.add(result);
+        } else if (rule.att().contains(Att.cool()) && transitions.stream().anyMatch(rule.att()::contains) && superheated.contains(subject)) {
+            return null;
         }
 
-        return results;
+        if (coverage != null) {
+            coverage.record(rule);
+        }
+        return result;
     }
 
     private Term restoreConfigurationIfNecessary(ConstrainedTerm subject, Rule rule, Term theNew) {
@@ -305,12 +357,8 @@ public class SymbolicRewriter {
                 return KItem.of(kItemSubject.kLabel(), KList.concatenate(newContents), context.global()).applyAnywhereRules(context);
             } else if (subject instanceof BuiltinList) {
                 BuiltinList builtinListSubject = (BuiltinList) subject;
-                List<Term> newContents = new ArrayList<>(builtinListSubject.children);
-                newContents.set(path.head().getLeft(), buildRHS(newContents.get(path.head().getLeft()), substitution, (scala.collection.immutable.List<Pair<Integer, Integer>>) path.tail(), rhs, context));
-                return BuiltinList
-                        .builder(builtinListSubject.sort, builtinListSubject.operatorKLabel, builtinListSubject.unitKLabel, builtinListSubject.globalContext())
-                        .addAll(newContents)
-                        .build();
+                int index = path.head().getLeft();
+                return builtinListSubject.update(index, buildRHS(builtinListSubject.get(index), substitution, (scala.collection.immutable.List<Pair<Integer, Integer>>) path.tail(), rhs, context));
             } else {
                 throw new AssertionError("unexpected rewrite in subject: " + subject);
             }
@@ -500,11 +548,15 @@ public class SymbolicRewriter {
             superheated.clear();
             superheated.addAll(newSuperheated);
             newSuperheated.clear();
+            final int currentStep = step;
+            List<List<ConstrainedTerm>> expansions = expandFrontier(queue.keySet(),
+                    term -> computeRewriteStep(term, currentStep, false));
+            int index = 0;
             for (Map.Entry<ConstrainedTerm, Integer> entry : queue.entrySet()) {
                 ConstrainedTerm term = entry.getKey();
                 Integer currentDepth = entry.getValue();
 
-                List<ConstrainedTerm> results = computeRewriteStep(term, step, false);
+                List<ConstrainedTerm> results = expansions.get(index++);
 
                 if (results.isEmpty() && searchType == SearchType.FINAL) {
                     if (addSearchResult(searchResults, term, pattern, bound, context)) {
@@ -544,6 +596,8 @@ public class SymbolicRewriter {
         stopwatch.stop();
         if (context.global().krunOptions.experimental.statistics) {
             System.err.println("[" + visited.size() + "states, " + step + "steps, " + stopwatch + "]");
+            System.err.println(context.global().constraintOps.cache());
+            System.err.println(context.global().kItemOps.memoCache());
         }
         return disjunctResults(searchResults);
     }
@@ -608,81 +662,15 @@ public class SymbolicRewriter {
 
         while (!queue.isEmpty()) {
             step++;
-            for (ConstrainedTerm term : queue) {
-                Debugg.log(Debugg.LogEvent.NODE, term.term(), term.constraint());
-                Debugg.setTarget(true);
-                if (term.implies(targetTerm)) {
-                    Debugg.log(Debugg.LogEvent.IMPLIESTARGET, term.term(), term.constraint());
-                    continue;
+            final boolean guardedStep = guarded;
+            final ConstrainedTerm initial = initialTerm;
+            List<ProofStep> proofSteps = expandFrontier(queue,
+                    term -> proveStep(term, initial, targetTerm, specRules, guardedStep));
+            for (ProofStep proofStep : proofSteps) {
+                if (proofStep.finalTerm != null) {
+                    proofResults.add(proofStep.finalTerm);
                 }
-                Debugg.setTarget(false);
-
-                /* TODO(AndreiS): terminate the proof with failure based on the klabel _~>_
-                List<Term> leftKContents = term.term().getCellContentsByName("<k>");
-                List<Term> rightKContents = targetTerm.term().getCellContentsByName("<k>");
-                // TODO(YilongL): the `get(0)` seems hacky
-                if (leftKContents.size() == 1 && rightKContents.size() == 1) {
-                    Pair<Term, Variable> leftKPattern = KSequence.splitContentAndFrame(leftKContents.get(0));
-                    Pair<Term, Variable> rightKPattern = KSequence.splitContentAndFrame(rightKContents.get(0));
-                    if (leftKPattern.getRight() != null && rightKPattern.getRight() != null
-                            && leftKPattern.getRight().equals(rightKPattern.getRight())) {
-                        BoolToken matchable = MetaK.matchable(
-                                leftKPattern.getLeft(),
-                                rightKPattern.getLeft(),
-                                term.termContext());
-                        if (matchable != null && matchable.booleanValue()) {
-                            proofResults.add(term);
-                            continue;
-                        }
-                    }
-                }*/
-
-                if (guarded) {
-                    ConstrainedTerm result = applySpecRules(term, specRules);
-                    if (result != null) {
-                        if (visited.add(result))
-                            nextQueue.add(result);
-                        continue;
-                    }
-                }
-
-                List<ConstrainedTerm> results = fastComputeRewriteStep(term, false, true, true);
-                if (results.isEmpty()) {
-                    /* final term */
-                    proofResults.add(term);
-                } else {
-//                    for (Rule rule : appliedRules) {
-//                        System.err.println(rule.getLocation() + " " + rule.getSource());
-//                    }
-
-                    /* add helper rule */
-                    HashSet<Variable> ruleVariables = new HashSet<>(initialTerm.variableSet());
-                    ruleVariables.addAll(targetTerm.variableSet());
-
-                    /*
-                    rules.add(new Rule(
-                            term.term().substitute(freshSubstitution, definition),
-                            targetTerm.term().substitute(freshSubstitution, definition),
-                            term.constraint().substitute(freshSubstitution, definition),
-                            Collections.<Variable>emptyList(),
-                            new SymbolicConstraint(definition).substitute(freshSubstitution, definition),
-                            IndexingPair.getIndexingPair(term.term()),
-                            new Attributes()));
-                     */
-                }
-
-                for (ConstrainedTerm cterm : results) {
-                    ConstrainedTerm result = new ConstrainedTerm(
-                            cterm.term(),
-                            cterm.constraint().removeBindings(
-                                    Sets.difference(
-                                            cterm.constraint().substitution().keySet(),
-                                            initialTerm.variableSet())),
-                            cterm.termContext());
-                    Debugg.log(Debugg.LogEvent.RSTEP, term.term(), term.constraint(), result.term(), result.constraint());
-                    if(results.size() > 1) {
-                        Debugg.log(Debugg.LogEvent.BRANCH, result.term(), result.constraint());
-                    }
+                for (ConstrainedTerm result : proofStep.successors) {
                     if (visited.add(result)) {
                         nextQueue.add(result);
                     }
@@ -701,6 +689,143 @@ public class SymbolicRewriter {
         return proofResults;
     }
 
+    /**
+     * The outcome of expanding one node of a proof frontier: the node itself if it is a final
+     * term that does not imply the target, and the successor nodes to explore next.
+     */
+    private static class ProofStep {
+        final ConstrainedTerm finalTerm;
+        final List<ConstrainedTerm> successors;
+
+        ProofStep(ConstrainedTerm finalTerm, List<ConstrainedTerm> successors) {
+            this.finalTerm = finalTerm;
+            this.successors = successors;
+        }
+    }
+
+    private ProofStep proveStep(
+            ConstrainedTerm term,
+            ConstrainedTerm initialTerm,
+            ConstrainedTerm targetTerm,
+            List<Rule> specRules,
+            boolean guarded) {
+        Debugg.log(Debugg.LogEvent.NODE, term.term(), term.constraint());
+        Debugg.setTarget(true);
+        if (term.implies(targetTerm)) {
+            Debugg.log(Debugg.LogEvent.IMPLIESTARGET, term.term(), term.constraint());
+            return new ProofStep(null, Collections.emptyList());
+        }
+        Debugg.setTarget(false);
+
+        /* TODO(AndreiS): terminate the proof with failure based on the klabel _~>_
+        List<Term> leftKContents = term.term().getCellContentsByName("<k>");
+        List<Term> rightKContents = targetTerm.term().getCellContentsByName("<k>");
+        // TODO(YilongL): the `get(0)` seems hacky
+        if (leftKContents.size() == 1 && rightKContents.size() == 1) {
+            Pair<Term, Variable> leftKPattern = KSequence.splitContentAndFrame(leftKContents.get(0));
+            Pair<Term, Variable> rightKPattern = KSequence.splitContentAndFrame(rightKContents.get(0));
+            if (leftKPattern.getRight() != null && rightKPattern.getRight() != null
+                    && leftKPattern.getRight().equals(rightKPattern.getRight())) {
+                BoolToken matchable = MetaK.matchable(
+                        leftKPattern.getLeft(),
+                        rightKPattern.getLeft(),
+                        term.termContext());
+                if (matchable != null && matchable.booleanValue()) {
+                    return new ProofStep(term, Collections.emptyList());
+                }
+            }
+        }*/
+
+        if (guarded) {
+            ConstrainedTerm result = applySpecRules(term, specRules);
+            if (result != null) {
+                return new ProofStep(null, Collections.singletonList(result));
+            }
+        }
+
+        List<ConstrainedTerm> results = fastComputeRewriteStep(term, false, true, true);
+        if (results.isEmpty()) {
+            /* final term */
+            return new ProofStep(term, Collections.emptyList());
+        } else {
+//                    for (Rule rule : appliedRules) {
+//                        System.err.println(rule.getLocation() + " " + rule.getSource());
+//                    }
+
+            /* add helper rule */
+            HashSet<Variable> ruleVariables = new HashSet<>(initialTerm.variableSet());
+            ruleVariables.addAll(targetTerm.variableSet());
+
+            /*
+            rules.add(new Rule(
+                    term.term().substitute(freshSubstitution, definition),
+                    targetTerm.term().substitute(freshSubstitution, definition),
+                    term.constraint().substitute(freshSubstitution, definition),
+                    Collections.<Variable>emptyList(),
+                    new SymbolicConstraint(definition).substitute(freshSubstitution, definition),
+                    IndexingPair.getIndexingPair(term.term()),
+                    new Attributes()));
+             */
+        }
+
+        List<ConstrainedTerm> successors = new ArrayList<>();
+        for (ConstrainedTerm cterm : results) {
+            ConstrainedTerm result = new ConstrainedTerm(
+                    cterm.term(),
+                    cterm.constraint().removeBindings(
+                            Sets.difference(
+                                    cterm.constraint().substitution().keySet(),
+                                    initialTerm.variableSet())),
+                    cterm.termContext());
+            Debugg.log(Debugg.LogEvent.RSTEP, term.term(), term.constraint(), result.term(), result.constraint());
+            if(results.size() > 1) {
+                Debugg.log(Debugg.LogEvent.BRANCH, result.term(), result.constraint());
+            }
+            successors.add(result);
+        }
+        return new ProofStep(null, successors);
+    }
+
+    /**
+     * Applies {@code expand} to every node of the frontier and returns the results in frontier order.
+     * If this rewriter has a frontier pool, the nodes are expanded concurrently, each on a fork of its
+     * {@link TermContext} made by {@link TermContext#forkBranches(List)}, so that the top term of a node is not
+     * shared with its siblings and the fresh constants and variables it generates do not depend on the schedule.
+     */
+    private <T> List<T> expandFrontier(Collection<ConstrainedTerm> frontier, Function<ConstrainedTerm, T> expand) {
+        if (frontierPool == null) {
+            return frontier.stream().map(expand).collect(Collectors.toList());
+        }
+        List<ConstrainedTerm> nodes = new ArrayList<>(frontier);
+        List<TermContext> forks = TermContext.forkBranches(
+                nodes.stream().map(ConstrainedTerm::termContext).collect(Collectors.toList()));
+        List<ConstrainedTerm> branches = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            branches.add(new ConstrainedTerm(nodes.get(i).term(), nodes.get(i).constraint(), forks.get(i)));
+        }
+        Function<ConstrainedTerm, T> expandBranch = t -> t.termContext().withVariableCounter(() -> expand.apply(t));
+        if (branches.size() == 1) {
+            return Collections.singletonList(expandBranch.apply(branches.get(0)));
+        }
+        try {
+            return frontierPool.submit(() -> branches.parallelStream()
+                    .map(expandBranch)
+                    .collect(Collectors.toList()))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw KEMException.criticalError("Interrupted while expanding the frontier", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw KEMException.criticalError("Failed to expand the frontier", e.getCause());
+        }
+    }
+
     /**
      * Applies the first applicable specification rule and returns the result.
      */
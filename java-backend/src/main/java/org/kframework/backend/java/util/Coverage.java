@@ -5,18 +5,104 @@ import org.kframework.backend.java.kil.*;
 import org.kframework.attributes.Source;
 import org.kframework.utils.errorsystem.KEMException;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-
-import static org.apache.commons.io.FileUtils.writeStringToFile;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * For measuring semantic coverage
+ * <p>
+ * The locations recorded for a file are written by a single {@link Coverage} instance, which keeps the file open
+ * and writes it out every {@link #FLUSH_INTERVAL_SECONDS} seconds and when the JVM exits. The file either receives
+ * the trace of the recorded locations, one per line, or a histogram of the number of times each location was
+ * recorded, one {@code count location} line per location in decreasing order of count.
  *
  * @author daejunpark
  */
 public class Coverage {
 
+    private static final long FLUSH_INTERVAL_SECONDS = 1;
+
+    private static final Map<File, Coverage> instances = new ConcurrentHashMap<>();
+    private static volatile ScheduledExecutorService flusher;
+
+    private final File file;
+    /**
+     * The trace written to {@link #file}, or null if it receives a histogram.
+     */
+    private final Writer trace;
+    private final ConcurrentHashMap<String, LongAdder> counts;
+    private volatile boolean histogramChanged;
+
+    private Coverage(File file, boolean histogram) {
+        this.file = file;
+        if (histogram) {
+            this.trace = null;
+            this.counts = new ConcurrentHashMap<>();
+        } else {
+            try {
+                this.trace = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8), 1 << 16);
+            } catch (IOException e) {
+                throw KEMException.internalError("Could not write to " + file, e);
+            }
+            this.counts = null;
+        }
+    }
+
+    /**
+     * Returns the instance recording locations into {@code file}, creating it on first use; {@code histogram}
+     * only matters when the instance is created.
+     *
+     * @param file could be null, in which case this returns null.
+     */
+    public static Coverage of(File file, boolean histogram) {
+        if (file == null) {
+            return null;
+        }
+        return instances.computeIfAbsent(file.getAbsoluteFile(), f -> {
+            Coverage coverage = new Coverage(f, histogram);
+            startFlusher();
+            return coverage;
+        });
+    }
+
+    private static synchronized void startFlusher() {
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Coverage writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(Coverage::flushAll, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(Coverage::flushAll));
+    }
+
+    private static void flushAll() {
+        for (Coverage coverage : instances.values()) {
+            try {
+                coverage.flush();
+            } catch (KEMException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+    }
+
     /**
      * Print location information of {@code constrainedTerm} into {@code file}.
      * - If {@code file} is null, then it does nothing.
@@ -27,7 +113,7 @@ public class Coverage {
      */
     public static void print(File file, ConstrainedTerm constrainedTerm) {
         if (file != null) {
-            print(file, getSourceLocation(constrainedTerm));
+            of(file, false).record(constrainedTerm);
         }
     }
 
@@ -41,7 +127,7 @@ public class Coverage {
      */
     public static void print(File file, Term term) {
         if (file != null) {
-            print(file, getSourceLocation(term));
+            of(file, false).record(term);
         }
     }
 
@@ -55,20 +141,77 @@ public class Coverage {
      */
     public static void print(File file, Rule rule) {
         if (file != null) {
-            print(file, getSourceLocation(rule));
+            of(file, false).record(rule);
         }
     }
 
-    private synchronized static void print(File file, String string) {
-        if (file != null && string != null) {
+    public void record(ConstrainedTerm constrainedTerm) {
+        record(getSourceLocation(constrainedTerm));
+    }
+
+    public void record(Term term) {
+        record(getSourceLocation(term));
+    }
+
+    public void record(Rule rule) {
+        record(getSourceLocation(rule));
+    }
+
+    private void record(String string) {
+        if (string == null) {
+            return;
+        }
+        if (trace == null) {
+            LongAdder count = counts.get(string);
+            if (count == null) {
+                count = counts.computeIfAbsent(string, s -> new LongAdder());
+            }
+            count.increment();
+            if (!histogramChanged) {
+                histogramChanged = true;
+            }
+            return;
+        }
+        synchronized (trace) {
             try {
-                writeStringToFile(file, string + "\n", true);
+                trace.write(string);
+                trace.write('\n');
             } catch (IOException e) {
                 throw KEMException.internalError("Could not write to " + file, e);
             }
         }
     }
 
+    /**
+     * Writes out the locations recorded so far.
+     */
+    public void flush() {
+        try {
+            if (trace != null) {
+                synchronized (trace) {
+                    trace.flush();
+                }
+            } else {
+                synchronized (this) {
+                    if (!histogramChanged) {
+                        return;
+                    }
+                    histogramChanged = false;
+                    List<Map.Entry<String, Long>> entries = new ArrayList<>();
+                    counts.forEach((location, count) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(location, count.sum())));
+                    entries.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+                    List<String> lines = new ArrayList<>(entries.size());
+                    for (Map.Entry<String, Long> entry : entries) {
+                        lines.add(entry.getValue() + " " + entry.getKey());
+                    }
+                    Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+                }
+            }
+        } catch (IOException e) {
+            throw KEMException.internalError("Could not write to " + file, e);
+        }
+    }
+
     private static String getSourceLocation(ConstrainedTerm constrainedTerm) {
         return getSourceLocation(constrainedTerm.term());
     }
@@ -79,7 +222,7 @@ public class Coverage {
         if (t instanceof KSequence && ((KSequence) t).concreteSize() > 0) {
             t = ((KSequence) t).get(0);
         }
-        if (t instanceof KItem) {
+        if (t instanceof KItem && t.getSource() != null && t.getLocation() != null) {
             Source source = t.getSource();
             s = source.toString() + ":" + t.getLocation().toString();
         }
@@ -87,9 +230,11 @@ public class Coverage {
     }
 
     private static String getSourceLocation(Rule rule) {
-        String s; // Return null, if location information is not available.
+        // Return null, if location information is not available.
         Source source = rule.getSource();
-        s = source.toString() + ":" + rule.getLocation().toString();
-        return s;
+        if (source == null || rule.getLocation() == null) {
+            return null;
+        }
+        return source.toString() + ":" + rule.getLocation().toString();
     }
 }
@@ -0,0 +1,84 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.Term;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the results of the functions annotated with the {@code memo} attribute, keyed on their arguments.
+ * <p>
+ * Callers must only look up and store applications whose arguments are ground and normal, so that the
+ * result does not depend on the path condition. Each function has its own bounded LRU table guarded by
+ * its own lock, and its own counters of hits and misses, which are reported by {@code --statistics}.
+ * <p>
+ * A cached result is the same instance for every caller, including callers on other threads, which go on
+ * to record state on it, such as the constraints it has been evaluated under and its lazily computed sort.
+ * That state is kept in concurrent or safely published fields of {@link Term}, so results need not be copied.
+ */
+public class MemoCache {
+
+    private static class Table extends LinkedHashMap<KList, Term> {
+        private final int capacity;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        Table(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<KList, Term> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private final ConcurrentMap<KLabelConstant, Table> tables = new ConcurrentHashMap<>();
+    private final int capacity;
+
+    /**
+     * @param capacity the maximum number of cached results per function
+     */
+    public MemoCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the cached result of applying the given function to the given arguments, or null if there is none.
+     */
+    public Term get(KLabelConstant kLabel, KList arguments) {
+        Table table = tables.computeIfAbsent(kLabel, l -> new Table(capacity));
+        Term result;
+        synchronized (table) {
+            result = table.get(arguments);
+        }
+        (result == null ? table.misses : table.hits).increment();
+        return result;
+    }
+
+    public void put(KLabelConstant kLabel, KList arguments, Term result) {
+        Table table = tables.computeIfAbsent(kLabel, l -> new Table(capacity));
+        synchronized (table) {
+            table.put(arguments, result);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Memo cache:");
+        tables.entrySet().stream()
+                .sorted(Comparator.comparing(e -> e.getKey().name()))
+                .forEach(e -> sb.append("\n\t").append(e.getKey().name()).append(": ")
+                        .append(e.getValue().hits.sum()).append(" hits, ")
+                        .append(e.getValue().misses.sum()).append(" misses"));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,368 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list supporting indexed access and update, concatenation, and slicing
+ * in time logarithmic in its size, with the result sharing most of its structure with its inputs.
+ * <p>
+ * The elements are stored in the leaves of a height-balanced (AVL) binary tree, in chunks of
+ * at most {@link #LEAF_SIZE} elements; every inner node records the number of elements below it.
+ * Concatenation joins two trees along the spine of the taller one, merging adjacent leaves
+ * when they fit in one chunk, so that lists grown one element at a time at either end
+ * keep full leaves.
+ *
+ * @param <E> the type of elements
+ */
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess, Serializable {
+
+    private static final int LEAF_SIZE = 32;
+
+    private abstract static class Node implements Serializable {
+        abstract int size();
+
+        abstract int height();
+    }
+
+    private static final class Leaf extends Node {
+        private final Object[] items;
+
+        Leaf(Object[] items) {
+            this.items = items;
+        }
+
+        @Override
+        int size() {
+            return items.length;
+        }
+
+        @Override
+        int height() {
+            return 0;
+        }
+    }
+
+    private static final class Branch extends Node {
+        private final Node left;
+        private final Node right;
+        private final int size;
+        private final int height;
+
+        Branch(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+            this.size = left.size() + right.size();
+            this.height = Math.max(left.height(), right.height()) + 1;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        int height() {
+            return height;
+        }
+    }
+
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(null);
+
+    /**
+     * The root of the tree, or null if this list is empty.
+     */
+    private final Node root;
+
+    private PersistentVector(Node root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    public static <E> PersistentVector<E> singleton(E element) {
+        return new PersistentVector<>(new Leaf(new Object[]{element}));
+    }
+
+    /**
+     * Returns a list with the elements of the given collection, in iteration order.
+     * Returns the collection itself if it is already a {@code PersistentVector}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> from(Collection<? extends E> elements) {
+        if (elements instanceof PersistentVector) {
+            return (PersistentVector<E>) elements;
+        }
+        Object[] array = elements.toArray();
+        return array.length == 0 ? empty() : new PersistentVector<>(fromArray(array, 0, array.length));
+    }
+
+    @Override
+    public int size() {
+        return root == null ? 0 : root.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index);
+        Node node = root;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int leftSize = branch.left.size();
+            if (index < leftSize) {
+                node = branch.left;
+            } else {
+                index -= leftSize;
+                node = branch.right;
+            }
+        }
+        return (E) ((Leaf) node).items[index];
+    }
+
+    /**
+     * Returns a list that differs from this one only in having {@code element} at position {@code index}.
+     */
+    public PersistentVector<E> with(int index, E element) {
+        checkIndex(index);
+        return new PersistentVector<>(with(root, index, element));
+    }
+
+    /**
+     * Returns this list followed by {@code element}.
+     */
+    public PersistentVector<E> plus(E element) {
+        return concat(singleton(element));
+    }
+
+    /**
+     * Returns this list followed by the elements of {@code other}.
+     */
+    public PersistentVector<E> concat(PersistentVector<? extends E> other) {
+        if (other.root == null) {
+            return this;
+        } else if (root == null) {
+            @SuppressWarnings("unchecked")
+            PersistentVector<E> result = (PersistentVector<E>) other;
+            return result;
+        }
+        return new PersistentVector<>(concat(root, other.root));
+    }
+
+    /**
+     * Returns the elements between {@code fromIndex}, inclusive, and {@code toIndex}, exclusive,
+     * as a new persistent list that shares structure with this one.
+     */
+    @Override
+    public PersistentVector<E> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + size());
+        }
+        if (fromIndex == 0 && toIndex == size()) {
+            return this;
+        }
+        return new PersistentVector<>(drop(take(root, toIndex), fromIndex));
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iter<>(root);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof List)) {
+            return false;
+        }
+        List<?> list = (List<?>) object;
+        if (list.size() != size()) {
+            return false;
+        }
+        Iterator<?> iterator = list.iterator();
+        for (E element : this) {
+            if (!Objects.equals(element, iterator.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+    }
+
+    private static Node fromArray(Object[] array, int from, int to) {
+        if (to - from <= LEAF_SIZE) {
+            return new Leaf(Arrays.copyOfRange(array, from, to));
+        }
+        int middle = (from + to) >>> 1;
+        return new Branch(fromArray(array, from, middle), fromArray(array, middle, to));
+    }
+
+    private static Node with(Node node, int index, Object element) {
+        if (node instanceof Leaf) {
+            Object[] items = ((Leaf) node).items.clone();
+            items[index] = element;
+            return new Leaf(items);
+        }
+        Branch branch = (Branch) node;
+        int leftSize = branch.left.size();
+        return index < leftSize ?
+                new Branch(with(branch.left, index, element), branch.right) :
+                new Branch(branch.left, with(branch.right, index - leftSize, element));
+    }
+
+    /**
+     * Joins two trees. Either may be null.
+     */
+    private static Node concat(Node left, Node right) {
+        if (left == null) {
+            return right;
+        } else if (right == null) {
+            return left;
+        }
+
+        if (left instanceof Leaf && right instanceof Leaf) {
+            Object[] leftItems = ((Leaf) left).items;
+            Object[] rightItems = ((Leaf) right).items;
+            if (leftItems.length + rightItems.length <= LEAF_SIZE) {
+                Object[] items = Arrays.copyOf(leftItems, leftItems.length + rightItems.length);
+                System.arraycopy(rightItems, 0, items, leftItems.length, rightItems.length);
+                return new Leaf(items);
+            }
+            return new Branch(left, right);
+        }
+
+        if (left.height() > right.height() + 1 || right instanceof Leaf) {
+            Branch branch = (Branch) left;
+            return balance(branch.left, concat(branch.right, right));
+        } else if (right.height() > left.height() + 1 || left instanceof Leaf) {
+            Branch branch = (Branch) right;
+            return balance(concat(left, branch.left), branch.right);
+        } else {
+            return new Branch(left, right);
+        }
+    }
+
+    /**
+     * Builds a branch from two trees whose heights differ by at most two.
+     */
+    private static Node balance(Node left, Node right) {
+        if (left.height() > right.height() + 1) {
+            Branch branch = (Branch) left;
+            if (branch.left.height() >= branch.right.height()) {
+                return new Branch(branch.left, new Branch(branch.right, right));
+            }
+            Branch middle = (Branch) branch.right;
+            return new Branch(new Branch(branch.left, middle.left), new Branch(middle.right, right));
+        } else if (right.height() > left.height() + 1) {
+            Branch branch = (Branch) right;
+            if (branch.right.height() >= branch.left.height()) {
+                return new Branch(new Branch(left, branch.left), branch.right);
+            }
+            Branch middle = (Branch) branch.left;
+            return new Branch(new Branch(left, middle.left), new Branch(middle.right, branch.right));
+        } else {
+            return new Branch(left, right);
+        }
+    }
+
+    /**
+     * Returns the first {@code count} elements of the given tree, or null if there are none.
+     */
+    private static Node take(Node node, int count) {
+        if (count <= 0) {
+            return null;
+        } else if (count >= node.size()) {
+            return node;
+        } else if (node instanceof Leaf) {
+            return new Leaf(Arrays.copyOf(((Leaf) node).items, count));
+        }
+        Branch branch = (Branch) node;
+        int leftSize = branch.left.size();
+        return count <= leftSize ?
+                take(branch.left, count) :
+                concat(branch.left, take(branch.right, count - leftSize));
+    }
+
+    /**
+     * Returns the given tree without its first {@code count} elements, or null if there are none left.
+     */
+    private static Node drop(Node node, int count) {
+        if (node == null || count >= node.size()) {
+            return null;
+        } else if (count <= 0) {
+            return node;
+        } else if (node instanceof Leaf) {
+            Object[] items = ((Leaf) node).items;
+            return new Leaf(Arrays.copyOfRange(items, count, items.length));
+        }
+        Branch branch = (Branch) node;
+        int leftSize = branch.left.size();
+        return count >= leftSize ?
+                drop(branch.right, count - leftSize) :
+                concat(drop(branch.left, count), branch.right);
+    }
+
+    /**
+     * Iterates over the leaves from left to right, keeping the right siblings
+     * of the current path on an explicit stack.
+     */
+    private static final class Iter<E> implements Iterator<E> {
+        private final Node[] stack;
+        private int depth = 0;
+        private Object[] items = new Object[0];
+        private int position = 0;
+
+        Iter(Node root) {
+            stack = new Node[root == null ? 0 : root.height() + 1];
+            if (root != null) {
+                stack[depth++] = root;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < items.length || depth > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (position == items.length) {
+                if (depth == 0) {
+                    throw new NoSuchElementException();
+                }
+                Node node = stack[--depth];
+                while (node instanceof Branch) {
+                    stack[depth++] = ((Branch) node).right;
+                    node = ((Branch) node).left;
+                }
+                items = ((Leaf) node).items;
+                position = 0;
+            }
+            return (E) items[position++];
+        }
+    }
+}
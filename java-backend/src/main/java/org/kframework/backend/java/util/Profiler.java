@@ -1,23 +1,16 @@
 // Copyright (c) 2014-2018 K Team. All Rights Reserved.
 package org.kframework.backend.java.util;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.collections4.comparators.ReverseComparator;
-import org.kframework.backend.java.kil.KLabelConstant;
-
 import com.google.common.base.Stopwatch;
 
 /**
  * Profiling class.
  * <p>
  * TODO(YilongL): for now, it's only used for profiling krun without search; I
- * will need to refactor it later to make it general.
+ * will need to refactor it later to make it general. The applications of rules and the evaluations of functions
+ * are measured by {@link RuntimeMetrics} instead.
  *
  * @author YilongL
  *
@@ -44,23 +37,6 @@ public class Profiler {
 
     public static final ReentrantStopwatch DEEP_CLONE_TIMER                 =   new ReentrantStopwatch("Deep clone");
 
-    private static final Map<KLabelConstant, ReentrantStopwatch> FUNCTION_PROFILING_TIMERS = new HashMap<>();
-
-    public static ReentrantStopwatch getTimerForFunction(KLabelConstant klabel) {
-        if (enableProfilingMode.get()) {
-            synchronized(FUNCTION_PROFILING_TIMERS) {
-                ReentrantStopwatch stopwatch = FUNCTION_PROFILING_TIMERS.get(klabel);
-                if (stopwatch == null) {
-                   stopwatch = new ReentrantStopwatch(klabel.label());
-                   FUNCTION_PROFILING_TIMERS.put(klabel, stopwatch);
-                }
-                return stopwatch;
-            }
-        } else {
-            return null;
-        }
-    }
-
     public static void startTimer(ReentrantStopwatch timer) {
         if (enableProfilingMode.get()) {
             timer.start();
@@ -89,16 +65,6 @@ public class Profiler {
                     REWRITE_WITH_UNKOMPILED_RULES_TIMER);
             System.err.println(QUERY_RULE_INDEXING_TIMER);
             System.err.println(DEEP_CLONE_TIMER);
-            System.err.println("Top 10 most expensive functions:");
-            SortedSet<ReentrantStopwatch> sorted = new TreeSet<>(new ReverseComparator<>());
-            synchronized (FUNCTION_PROFILING_TIMERS) {
-                sorted.addAll(FUNCTION_PROFILING_TIMERS.values());
-            }
-            Iterator<ReentrantStopwatch> iter = sorted.iterator();
-            for (int i = 0; i < 10 && iter.hasNext(); i++) {
-                ReentrantStopwatch stopwatch = iter.next();
-                System.err.printf("%s = %s%n", stopwatch.name, stopwatch.toString());
-            }
         }
     }
 
@@ -0,0 +1,223 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.utils.errorsystem.KEMException;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the applications of each rule, and the evaluations of each function, builtin hook and type of SMT query,
+ * along with the time spent in them, and writes them to the file given by {@code --metrics-file}.
+ * <p>
+ * Counters are {@link LongAdder}s, in an array indexed by the index of the rule in {@link Definition#ruleTable} for
+ * rules and in concurrent maps for the other categories, so threads record concurrently without locking. Times are
+ * self times: the time spent in a measured call nested in another one, e.g. a function evaluated while building the
+ * right-hand side of a rule, counts for the nested call only. The times of a category therefore add up to at most
+ * the time of the run, and a recursive function is not counted once per level of recursion.
+ */
+public final class RuntimeMetrics {
+
+    public enum Category {
+        RULE, FUNCTION, HOOK, SMT;
+
+        private String key() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final class Counter {
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+    }
+
+    /**
+     * The measured calls in progress on a thread, with the time spent so far in the calls nested in each of them.
+     */
+    private static final class Frames {
+        long[] starts = new long[16];
+        long[] nested = new long[16];
+        int depth;
+    }
+
+    private final Definition definition;
+    private final File file;
+    private final Counter[] rules;
+    private final Map<Category, ConcurrentHashMap<String, Counter>> counters = new ConcurrentHashMap<>();
+    private final ThreadLocal<Frames> frames = ThreadLocal.withInitial(Frames::new);
+
+    public RuntimeMetrics(Definition definition, File file) {
+        this.definition = definition;
+        this.file = file;
+        int size = definition.ruleTable.keySet().stream().mapToInt(i -> i + 1).max().orElse(0);
+        this.rules = new Counter[size];
+        for (int i = 0; i < size; i++) {
+            rules[i] = new Counter();
+        }
+        for (Category category : Category.values()) {
+            if (category != Category.RULE) {
+                counters.put(category, new ConcurrentHashMap<>());
+            }
+        }
+    }
+
+    /**
+     * Starts measuring a call, which must be ended by {@link #stopRule} or {@link #stop} on the same thread,
+     * typically in a {@code finally} block.
+     */
+    public void start() {
+        Frames f = frames.get();
+        if (f.depth == f.starts.length) {
+            f.starts = Arrays.copyOf(f.starts, f.depth * 2);
+            f.nested = Arrays.copyOf(f.nested, f.depth * 2);
+        }
+        f.starts[f.depth] = System.nanoTime();
+        f.nested[f.depth] = 0;
+        f.depth++;
+    }
+
+    public void stopRule(int ruleIndex) {
+        long selfTime = stopFrame();
+        if (ruleIndex < rules.length) {
+            record(rules[ruleIndex], selfTime);
+        }
+    }
+
+    public void stop(Category category, String name) {
+        assert category != Category.RULE;
+        long selfTime = stopFrame();
+        ConcurrentHashMap<String, Counter> map = counters.get(category);
+        Counter counter = map.get(name);
+        if (counter == null) {
+            counter = map.computeIfAbsent(name, n -> new Counter());
+        }
+        record(counter, selfTime);
+    }
+
+    /**
+     * Ends the innermost call in progress on this thread and returns its self time.
+     */
+    private long stopFrame() {
+        Frames f = frames.get();
+        f.depth--;
+        long elapsed = System.nanoTime() - f.starts[f.depth];
+        if (f.depth > 0) {
+            f.nested[f.depth - 1] += elapsed;
+        }
+        return elapsed - f.nested[f.depth];
+    }
+
+    private static void record(Counter counter, long selfTime) {
+        counter.count.increment();
+        counter.nanos.add(selfTime);
+    }
+
+    private static final class Row {
+        final String name;
+        final String source;
+        final long count;
+        final long nanos;
+
+        Row(String name, String source, Counter counter) {
+            this.name = name;
+            this.source = source;
+            this.count = counter.count.sum();
+            this.nanos = counter.nanos.sum();
+        }
+    }
+
+    /**
+     * Returns the rows of the given category with a nonzero count, by decreasing time.
+     */
+    private List<Row> rows(Category category) {
+        List<Row> rows = new ArrayList<>();
+        if (category == Category.RULE) {
+            for (int i = 0; i < rules.length; i++) {
+                Rule rule = definition.ruleTable.get(i);
+                if (rule != null && rules[i].count.sum() > 0) {
+                    String source = rule.getSource() == null ? null
+                            : rule.getSource() + (rule.getLocation() == null ? "" : ":" + rule.getLocation());
+                    rows.add(new Row(Integer.toString(i), source, rules[i]));
+                }
+            }
+        } else {
+            counters.get(category).forEach((name, counter) -> rows.add(new Row(name, null, counter)));
+        }
+        rows.sort((r1, r2) -> Long.compare(r2.nanos, r1.nanos));
+        return rows;
+    }
+
+    /**
+     * Writes the metrics recorded so far to the metrics file: as a JSON object with an array of rows per category
+     * if its name ends with {@code .json}, and as CSV otherwise.
+     */
+    public synchronized void write() {
+        try (OutputStream out = new FileOutputStream(file)) {
+            if (file.getName().endsWith(".json")) {
+                writeJson(out);
+            } else {
+                writeCsv(out);
+            }
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not write metrics to " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private void writeJson(OutputStream out) {
+        JsonObjectBuilder metrics = Json.createObjectBuilder();
+        for (Category category : Category.values()) {
+            JsonArrayBuilder array = Json.createArrayBuilder();
+            for (Row row : rows(category)) {
+                JsonObjectBuilder object = Json.createObjectBuilder();
+                if (category == Category.RULE) {
+                    object.add("index", Integer.parseInt(row.name));
+                    if (row.source != null) {
+                        object.add("source", row.source);
+                    }
+                } else {
+                    object.add("name", row.name);
+                }
+                object.add("count", row.count);
+                object.add("nanos", row.nanos);
+                array.add(object);
+            }
+            metrics.add(category.key(), array);
+        }
+        JsonWriter writer = Json.createWriter(out);
+        writer.write(metrics.build());
+        writer.close();
+    }
+
+    private void writeCsv(OutputStream out) {
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.println("category,name,source,count,nanos");
+        for (Category category : Category.values()) {
+            for (Row row : rows(category)) {
+                writer.println(category.key() + "," + quote(row.name) + "," + (row.source == null ? "" : quote(row.source))
+                        + "," + row.count + "," + row.nanos);
+            }
+        }
+        writer.flush();
+    }
+
+    private static String quote(String field) {
+        return "\"" + field.replace("\"", "\"\"") + "\"";
+    }
+}
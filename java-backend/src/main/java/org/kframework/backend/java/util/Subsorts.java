@@ -1,23 +1,22 @@
 // Copyright (c) 2014-2018 K Team. All Rights Reserved.
 package org.kframework.backend.java.util;
 
-import com.google.common.collect.ArrayTable;
 import com.google.common.collect.Sets;
-import com.google.common.collect.Table;
 import org.kframework.Collections;
+import org.kframework.POSetMatrix;
 import org.kframework.backend.java.kil.Sort;
 import org.kframework.definition.Module;
 import org.kframework.utils.errorsystem.KEMException;
-import scala.collection.JavaConversions;
+import scala.Tuple2;
 
 import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 
 /**
- * Subsort relation.
+ * Subsort relation, as a bit matrix over the defined sorts with cached least upper bounds and greatest lower
+ * bounds.
  *
  * TODO(YilongL): delegates this to KORE/Context
  *
@@ -28,41 +27,43 @@ public class Subsorts implements Serializable {
     private final Set<Sort> sorts;
 
     /**
-     * {@code subsort[sort1][sort2] = true} iff {@code sort1} is bigger than
-     * {@code sort2}.
+     * {@code sort1 < sort2} iff {@code sort1} is a proper subsort of {@code sort2}.
      */
-    private final Table<Sort, Sort, Boolean> subsort;
+    private final POSetMatrix<Sort> subsort;
 
     public Subsorts(Module module) {
-        sorts = JavaConversions.asJavaCollection(module.definedSorts()).stream()
-                .map(Sort::of)
-                .collect(Collectors.toSet());
-
-        this.subsort = ArrayTable.create(sorts, sorts);
-        for (org.kframework.kore.Sort sort1 : Collections.iterable(module.definedSorts())) {
-            for (org.kframework.kore.Sort sort2 : Collections.iterable(module.definedSorts())) {
-                subsort.put(
-                        Sort.of(sort1),
-                        Sort.of(sort2),
-                        module.subsorts().$greater(sort1, sort2));
+        POSetMatrix.Builder<Sort> builder = POSetMatrix.builder();
+        for (org.kframework.kore.Sort sort : Collections.iterable(module.definedSorts())) {
+            builder.add(Sort.of(sort));
+        }
+        for (Tuple2<org.kframework.kore.Sort, scala.collection.Set<org.kframework.kore.Sort>> relation : Collections.iterable(module.subsorts().relations())) {
+            if (!module.definedSorts().contains(relation._1())) {
+                continue;
+            }
+            for (org.kframework.kore.Sort bigSort : Collections.iterable(relation._2())) {
+                if (module.definedSorts().contains(bigSort)) {
+                    builder.addRelation(Sort.of(relation._1()), Sort.of(bigSort));
+                }
             }
         }
+        subsort = builder.build();
+        sorts = new HashSet<>(subsort.elements());
     }
 
     public Set<Sort> allSorts() {
         return sorts;
     }
 
-    public boolean isSubsorted(Sort bigSort, Sort smallSort) {
-        Boolean isSubsorted = subsort.get(bigSort, smallSort);
-        if (isSubsorted == null) {
-            if (subsort.containsRow(bigSort)) {
-                throw KEMException.criticalError("Sort " + smallSort.toString() + " is undefined.");
-            } else {
-                throw KEMException.criticalError("Sort " + bigSort.toString() + " is undefined.");
-            }
+    private void checkDefined(Sort sort) {
+        if (!subsort.contains(sort)) {
+            throw KEMException.criticalError("Sort " + sort.toString() + " is undefined.");
         }
-        return isSubsorted;
+    }
+
+    public boolean isSubsorted(Sort bigSort, Sort smallSort) {
+        checkDefined(bigSort);
+        checkDefined(smallSort);
+        return subsort.lessThan(smallSort, bigSort);
     }
 
     public boolean isSubsortedEq(Sort bigSort, Sort smallSort) {
@@ -102,13 +103,12 @@ public class Subsorts implements Serializable {
     }
 
     public boolean hasCommonSubsort(Sort sort1, Sort sort2) {
-        Set<Sort> lowerBounds = getLowerBounds(sort1, sort2);
-        return !lowerBounds.isEmpty() &&
-                !(lowerBounds.size() == 1 && lowerBounds.iterator().next().equals(Sort.BOTTOM));
-    }
-
-    private boolean inRelation(Sort sort1, Sort sort2, boolean direction) {
-        return direction ? isSubsorted(sort2, sort1) : isSubsorted(sort1, sort2);
+        if (sort1.equals(sort2)) {
+            return !sort1.equals(Sort.BOTTOM);
+        }
+        checkDefined(sort1);
+        checkDefined(sort2);
+        return subsort.hasCommonLowerBound(sort1, sort2, Sort.BOTTOM);
     }
 
     private Set<Sort> getBounds(Set<Sort> subset, boolean direction) {
@@ -119,21 +119,8 @@ public class Subsorts implements Serializable {
             return java.util.Collections.singleton(subset.iterator().next());
         }
 
-        Set<Sort> bounds = new HashSet<>();
-        for (Sort candidate : sorts) {
-            boolean isBound = true;
-            for (Sort sort : subset) {
-                if (!(inRelation(candidate, sort, direction) || candidate.equals(sort))) {
-                    isBound = false;
-                    break;
-                }
-            }
-            if (isBound) {
-                bounds.add(candidate);
-            }
-        }
-
-        return bounds;
+        subset.forEach(this::checkDefined);
+        return direction ? subsort.lowerBounds(subset) : subsort.upperBounds(subset);
     }
 
     public Sort getTopSort(Set<Sort> subset, boolean direction) {
@@ -144,34 +131,8 @@ public class Subsorts implements Serializable {
             return subset.iterator().next();
         }
 
-        Set<Sort> bounds = getBounds(subset, direction);
-        if (bounds.size() == 0) {
-            return null;
-        }
-
-        Sort candidate = null;
-        for (Sort bound : bounds) {
-            if (candidate == null) {
-                candidate = bound;
-            } else {
-                if (inRelation(candidate, bound, direction)) {
-                    candidate = bound;
-                } else if (!inRelation(bound, candidate, direction)) {
-                    /* no relation between bound and candidate; none of them is the top element */
-                    candidate = null;
-                }
-            }
-        }
-        /* if there is a top element, it must be candidate */
-        if (candidate != null) {
-            for (Sort bound : bounds) {
-                if (bound != candidate && !inRelation(bound, candidate, direction)) {
-                    candidate = null;
-                    break;
-                }
-            }
-        }
-        return candidate;
+        subset.forEach(this::checkDefined);
+        return direction ? subsort.glb(subset) : subsort.lub(subset);
     }
 
 }
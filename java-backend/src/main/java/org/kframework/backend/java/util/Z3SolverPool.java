@@ -0,0 +1,238 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.kframework.backend.java.z3.Z3Context;
+import org.kframework.backend.java.z3.Z3Exception;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A bounded pool of long-lived Z3 solver sessions.
+ * <p>
+ * Each session loads the SMT prelude once and then answers every query inside a
+ * {@code (push)}/{@code (pop)} scope, so the prelude is not re-parsed per query.
+ * Sessions are created lazily, up to the configured maximum, and are checked out
+ * by one thread at a time; a session that crashes, hangs, or produces unexpected
+ * output is discarded and replaced by a fresh one on the next checkout.
+ */
+public class Z3SolverPool {
+
+    /**
+     * A single solver instance that has already loaded the SMT prelude.
+     */
+    abstract static class Session implements AutoCloseable {
+
+        private int currentTimeout = -1;
+
+        /**
+         * Checks satisfiability of {@code query} in a fresh scope and returns the
+         * solver's answer (normally one of {@code sat}, {@code unsat}, or {@code unknown}),
+         * or {@code null} if the solver terminated without answering.
+         */
+        abstract String checkSat(String query, int timeout) throws IOException;
+
+        @Override
+        public abstract void close();
+
+        String scopedQuery(String query, int timeout, String checkSat) {
+            StringBuilder sb = new StringBuilder();
+            if (timeout != currentTimeout) {
+                sb.append("(set-option :timeout ").append(timeout).append(")\n");
+                currentTimeout = timeout;
+            }
+            sb.append("(push)\n").append(query).append(checkSat).append("\n(pop)\n");
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Thrown by a session whose solver did not answer before its deadline. The solver
+     * has been killed, and the query is considered undecided.
+     */
+    static class SessionTimeoutException extends IOException {
+        SessionTimeoutException(String message) {
+            super(message);
+        }
+    }
+
+    @FunctionalInterface
+    interface SessionFactory {
+        Session create() throws IOException;
+    }
+
+    /**
+     * A session backed by a Z3 library context that is confined to the thread
+     * currently holding it, so calls from different sessions run in parallel.
+     */
+    static class LibrarySession extends Session {
+        private final Z3Context context;
+        private final String checkSat;
+
+        LibrarySession(String prelude, String checkSat) {
+            this.checkSat = checkSat;
+            this.context = Z3Context.threadConfined();
+            try {
+                context.evalSmtlib2(prelude);
+            } catch (Z3Exception e) {
+                context.close();
+                throw e;
+            }
+        }
+
+        @Override
+        String checkSat(String query, int timeout) {
+            return context.evalSmtlib2(scopedQuery(query, timeout, checkSat)).trim();
+        }
+
+        @Override
+        public void close() {
+            context.close();
+        }
+    }
+
+    /**
+     * A session backed by an external {@code z3 -in} process. The process is killed if it
+     * does not answer within {@link #RESPONSE_GRACE_MILLIS} of the query's soft timeout,
+     * since Z3 does not always honor that timeout.
+     */
+    static class ProcessSession extends Session {
+
+        static final long RESPONSE_GRACE_MILLIS = 10000;
+
+        /* reads the answers of the solvers, so that a solver which stops responding can be abandoned */
+        private static final ExecutorService READER = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "z3-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private final Process process;
+        private final BufferedWriter input;
+        private final BufferedReader output;
+        private final String checkSat;
+
+        ProcessSession(ProcessBuilder pb, String prelude, String checkSat) throws IOException {
+            this.checkSat = checkSat;
+            pb.redirectInput(ProcessBuilder.Redirect.PIPE);
+            pb.redirectOutput(ProcessBuilder.Redirect.PIPE);
+            process = pb.start();
+            input = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+            output = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            try {
+                input.write(prelude);
+                input.write("\n");
+                input.flush();
+            } catch (IOException e) {
+                process.destroy();
+                throw e;
+            }
+        }
+
+        @Override
+        String checkSat(String query, int timeout) throws IOException {
+            input.write(scopedQuery(query, timeout, checkSat));
+            input.flush();
+            Future<String> answer = READER.submit(output::readLine);
+            try {
+                return answer.get(timeout + RESPONSE_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                process.destroyForcibly();
+                throw new SessionTimeoutException("Z3 did not answer within " + timeout + "ms");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            process.destroy();
+        }
+    }
+
+    private final SessionFactory factory;
+    private final Semaphore available;
+    private final BlockingQueue<Session> idle = new LinkedBlockingQueue<>();
+    private volatile boolean closed;
+
+    Z3SolverPool(int maxSize, SessionFactory factory) {
+        this.factory = factory;
+        this.available = new Semaphore(maxSize);
+    }
+
+    /**
+     * Runs {@code query} on an idle session, creating one if none is idle and the pool is
+     * not full, and blocking otherwise. Returns the solver's answer, {@code unknown} if the
+     * solver hung past its deadline, or {@code null} if the session crashed. Sessions that
+     * crash, hang, or answer anything other than a check-sat result are closed and not
+     * returned to the pool.
+     *
+     * @throws Z3Exception if a library session reports an error
+     */
+    String checkSat(String query, int timeout) throws InterruptedException {
+        available.acquire();
+        Session session = null;
+        boolean healthy = false;
+        try {
+            session = idle.poll();
+            if (session == null) {
+                session = factory.create();
+            }
+            String result = session.checkSat(query, timeout);
+            healthy = Z3Wrapper.Z3_QUERY_RESULTS.contains(result);
+            return result;
+        } catch (SessionTimeoutException e) {
+            return "unknown";
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (session != null) {
+                if (healthy && !closed) {
+                    idle.add(session);
+                    if (closed) {
+                        // raced with close(), which may have drained the idle sessions before this one was added
+                        closeIdle();
+                    }
+                } else {
+                    session.close();
+                }
+            }
+            available.release();
+        }
+    }
+
+    /**
+     * Closes all idle sessions, and every session checked out when it is returned. Queries
+     * still run after the pool is closed, each on a session created and closed for it.
+     */
+    public void close() {
+        closed = true;
+        closeIdle();
+    }
+
+    private void closeIdle() {
+        Session session;
+        while ((session = idle.poll()) != null) {
+            session.close();
+        }
+    }
+}
@@ -29,13 +29,14 @@ public class Z3Wrapper {
 
     private static final int Z3_RESTART_LIMIT = 3;
 
-    private static final Set<String> Z3_QUERY_RESULTS = ImmutableSet.of("unknown", "sat", "unsat");
+    static final Set<String> Z3_QUERY_RESULTS = ImmutableSet.of("unknown", "sat", "unsat");
 
     public final String SMT_PRELUDE, CHECK_SAT;
     private final SMTOptions options;
     private final GlobalOptions globalOptions;
     private final KExceptionManager kem;
     private final FileUtil files;
+    private final Z3SolverPool pool;
 
     public Z3Wrapper(
             SMTOptions options,
@@ -49,25 +50,108 @@ public class Z3Wrapper {
 
         SMT_PRELUDE = options.smtPrelude == null ? "" : files.loadFromWorkingDirectory(options.smtPrelude);
         CHECK_SAT = options.z3Tactic == null ? "(check-sat)" : "(check-sat-using " + options.z3Tactic + ")";
+        if (options.smtPoolSize <= 0) {
+            pool = null;
+        } else if (options.z3Executable) {
+            pool = new Z3SolverPool(options.smtPoolSize,
+                    () -> new Z3SolverPool.ProcessSession(z3ProcessBuilder(), SMT_PRELUDE, CHECK_SAT));
+        } else {
+            pool = new Z3SolverPool(options.smtPoolSize,
+                    () -> new Z3SolverPool.LibrarySession(SMT_PRELUDE, CHECK_SAT));
+        }
     }
 
-    public synchronized boolean isUnsat(String query, int timeout) {
-        if (options.z3Executable) {
-            return checkQueryWithExternalProcess(query, timeout);
-        } else {
-            return checkQueryWithLibrary(query, timeout);
+    /**
+     * Closes the pooled solver sessions, if any.
+     */
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * Checks the satisfiability of {@code query} under the SMT prelude. Returns {@link Z3Status#UNKNOWN} if the
+     * solver gives up, times out, or fails to parse the query.
+     */
+    public Z3Status check(String query, int timeout) {
+        if (pool != null) {
+            if (options.z3Executable) {
+                return checkQueryWithPooledProcess(query, timeout);
+            } else {
+                return checkQueryWithPooledLibrary(query, timeout);
+            }
+        }
+        synchronized (this) {
+            if (options.z3Executable) {
+                return checkQueryWithExternalProcess(query, timeout);
+            } else {
+                return checkQueryWithLibrary(query, timeout);
+            }
+        }
+    }
+
+    private ProcessBuilder z3ProcessBuilder() {
+        return files.getProcessBuilder().command(
+                OS.current().getNativeExecutable("z3"),
+                "-in",
+                "-smt2");
+    }
+
+    private String checkSatWithPool(String query, int timeout) {
+        try {
+            return pool.checkSat(query, timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw KEMException.internalError("Interrupted while waiting for a Z3 solver", e);
+        }
+    }
+
+    private static Z3Status status(String result) {
+        return "unsat".equals(result) ? Z3Status.UNSAT : "sat".equals(result) ? Z3Status.SAT : Z3Status.UNKNOWN;
+    }
+
+    private Z3Status checkQueryWithPooledLibrary(String query, int timeout) {
+        try {
+            String result = checkSatWithPool(query, timeout);
+            if (Z3_QUERY_RESULTS.contains(result)) {
+                return status(result);
+            }
+            // a library session reports the errors in the query as (error ...) output rather than by throwing
+            kem.registerCriticalWarning(
+                    "failed to translate smtlib expression:\n" + SMT_PRELUDE + query + "\nresult:\n" + result);
+        } catch (Z3Exception e) {
+            kem.registerCriticalWarning(
+                    "failed to translate smtlib expression:\n" + SMT_PRELUDE + query, e);
+        } catch (UnsatisfiedLinkError e) {
+            System.err.println(System.getProperty("java.library.path"));
+            throw e;
+        }
+        return Z3Status.UNKNOWN;
+    }
+
+    private Z3Status checkQueryWithPooledProcess(String query, int timeout) {
+        Debugg.log(Debugg.LogEvent.Z3QUERY, KToken(SMT_PRELUDE + query + CHECK_SAT + "\n", Sorts.Z3Query()));
+        String result = null;
+        for (int i = 0; i < Z3_RESTART_LIMIT && result == null; i++) {
+            result = checkSatWithPool(query, timeout);
+        }
+        Debugg.log(Debugg.LogEvent.Z3RESULT, KToken(result == null ? "" : result, Sorts.Z3Result()));
+        if (!Z3_QUERY_RESULTS.contains(result)) {
+            throw KEMException.criticalError("Z3 crashed on input query:\n" + query + "\nresult:\n" + result);
         }
+        return status(result);
     }
 
-    private boolean checkQueryWithLibrary(String query, int timeout) {
-        boolean result = false;
+    private Z3Status checkQueryWithLibrary(String query, int timeout) {
+        Z3Status result = Z3Status.UNKNOWN;
         try (Z3Context context = new Z3Context()) {
             Z3Solver solver = new Z3Solver(context);
             Z3Params params = new Z3Params(context);
             params.add("timeout", timeout);
             solver.setParams(params);
             solver._assert(context.parseSmtlib2(SMT_PRELUDE + query));
-            result = solver.check() == Z3Status.UNSAT;
+            result = solver.check();
         } catch (Z3Exception e) {
             kem.registerCriticalWarning(
                     "failed to translate smtlib expression:\n" + SMT_PRELUDE + query, e);
@@ -78,7 +162,7 @@ public class Z3Wrapper {
         return result;
     }
 
-    private boolean checkQueryWithExternalProcess(String query, int timeout) {
+    private Z3Status checkQueryWithExternalProcess(String query, int timeout) {
         String result = "";
         Debugg.log(Debugg.LogEvent.Z3QUERY, KToken(SMT_PRELUDE + query + CHECK_SAT + "\n", Sorts.Z3Query()));
         try {
@@ -110,7 +194,7 @@ public class Z3Wrapper {
         if (!Z3_QUERY_RESULTS.contains(result)) {
             throw KEMException.criticalError("Z3 crashed on input query:\n" + query + "\nresult:\n" + result);
         }
-        return "unsat".equals(result);
+        return status(result);
     }
 }
 
@@ -12,6 +12,12 @@ interface LibZ3 extends Library {
                 Native.loadLibrary("z3",
                     LibZ3.class));
 
+    /**
+     * Unsynchronized binding, for contexts that are confined to a single thread at a time.
+     * Z3 itself is thread-safe as long as no two threads share a context.
+     */
+    LibZ3 UNSYNCHRONIZED = (LibZ3) Native.loadLibrary("z3", LibZ3.class);
+
     interface Z3_error_handler extends Callback {
         void invoke(Pointer context, int errorCode);
     }
@@ -34,6 +40,7 @@ interface LibZ3 extends Library {
     void Z3_dec_ref(Pointer context, Pointer ast);
     void Z3_solver_assert(Pointer context, Pointer solver, Pointer ast);
     int Z3_solver_check(Pointer context, Pointer solver);
+    String Z3_eval_smtlib2_string(Pointer context, String str);
 
     void Z3_set_error_handler(Pointer context, Z3_error_handler handler);
     String Z3_get_error_msg(Pointer context, int errno);
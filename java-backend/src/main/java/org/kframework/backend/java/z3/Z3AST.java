@@ -9,7 +9,7 @@ public class Z3AST {
     Z3AST(Pointer ast, Z3Context context) {
         this.ast = ast;
         this.context = context;
-        LibZ3.INSTANCE.Z3_inc_ref(context.context, ast);
+        context.lib.Z3_inc_ref(context.context, ast);
         context.checkError();
     }
 
@@ -17,7 +17,7 @@ public class Z3AST {
     protected void finalize() {
         synchronized(context) {
             if (!context.closed) {
-                LibZ3.INSTANCE.Z3_dec_ref(context.context, ast);
+                context.lib.Z3_dec_ref(context.context, ast);
             }
         }
     }
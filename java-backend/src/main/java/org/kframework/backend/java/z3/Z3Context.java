@@ -6,6 +6,7 @@ import java.util.Optional;
 import java.util.OptionalInt;
 
 public class Z3Context implements AutoCloseable {
+    final LibZ3 lib;
     final Pointer config;
     final Pointer context;
 
@@ -14,31 +15,55 @@ public class Z3Context implements AutoCloseable {
     private OptionalInt errno = OptionalInt.empty();
 
     public Z3Context() {
-        config = LibZ3.INSTANCE.Z3_mk_config();
-        context = LibZ3.INSTANCE.Z3_mk_context_rc(config);
-        LibZ3.INSTANCE.Z3_set_error_handler(context, (ctx, errno) -> {
+        this(LibZ3.INSTANCE);
+    }
+
+    private Z3Context(LibZ3 lib) {
+        this.lib = lib;
+        config = lib.Z3_mk_config();
+        context = lib.Z3_mk_context_rc(config);
+        lib.Z3_set_error_handler(context, (ctx, errno) -> {
             this.errno = OptionalInt.of(errno);
         });
         checkError();
     }
 
+    /**
+     * Creates a context whose native calls are not serialized by a global lock.
+     * The caller must guarantee that the context is used by at most one thread at a time.
+     */
+    public static Z3Context threadConfined() {
+        return new Z3Context(LibZ3.UNSYNCHRONIZED);
+    }
+
     @Override
     protected void finalize() {
         close();
     }
 
     public Z3AST parseSmtlib2(String query) {
-        Pointer ast = LibZ3.INSTANCE.Z3_parse_smtlib2_string(context, query, 0, Pointer.NULL, Pointer.NULL, 0, Pointer.NULL, Pointer.NULL);
+        Pointer ast = lib.Z3_parse_smtlib2_string(context, query, 0, Pointer.NULL, Pointer.NULL, 0, Pointer.NULL, Pointer.NULL);
         checkError();
         return new Z3AST(ast, this);
     }
 
+    /**
+     * Evaluates a sequence of SMT-LIB 2 commands against the command context
+     * associated with this context, which persists across calls (so declarations,
+     * assertions and push/pop scopes are retained). Returns the solver output.
+     */
+    public String evalSmtlib2(String commands) {
+        String output = lib.Z3_eval_smtlib2_string(context, commands);
+        checkError();
+        return output;
+    }
+
     @Override
     public synchronized void close() {
         if (!closed) {
             closed = true;
-            LibZ3.INSTANCE.Z3_del_context(context);
-            LibZ3.INSTANCE.Z3_del_config(config);
+            lib.Z3_del_context(context);
+            lib.Z3_del_config(config);
         }
     }
 
@@ -46,7 +71,7 @@ public class Z3Context implements AutoCloseable {
         if (errno.isPresent()) {
             int err = errno.getAsInt();
             errno = OptionalInt.empty();
-            throw new Z3Exception(LibZ3.INSTANCE.Z3_get_error_msg(context, err));
+            throw new Z3Exception(lib.Z3_get_error_msg(context, err));
         }
     }
 }
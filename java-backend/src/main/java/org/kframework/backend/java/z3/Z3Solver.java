@@ -8,8 +8,8 @@ public class Z3Solver {
 
     public Z3Solver(Z3Context context) {
         this.context = context;
-        solver = LibZ3.INSTANCE.Z3_mk_solver(context.context);
-        LibZ3.INSTANCE.Z3_solver_inc_ref(context.context, solver);
+        solver = context.lib.Z3_mk_solver(context.context);
+        context.lib.Z3_solver_inc_ref(context.context, solver);
         context.checkError();
     }
 
@@ -17,23 +17,23 @@ public class Z3Solver {
     protected void finalize() {
         synchronized(context) {
             if (!context.closed) {
-                LibZ3.INSTANCE.Z3_solver_dec_ref(context.context, solver);
+                context.lib.Z3_solver_dec_ref(context.context, solver);
             }
         }
     }
 
     public void setParams(Z3Params params) {
-        LibZ3.INSTANCE.Z3_solver_set_params(context.context, solver, params.params);
+        context.lib.Z3_solver_set_params(context.context, solver, params.params);
         context.checkError();
     }
 
     public void _assert(Z3AST ast) {
-        LibZ3.INSTANCE.Z3_solver_assert(context.context, solver, ast.ast);
+        context.lib.Z3_solver_assert(context.context, solver, ast.ast);
         context.checkError();
     }
 
     public Z3Status check() {
-        int status = LibZ3.INSTANCE.Z3_solver_check(context.context, solver);
+        int status = context.lib.Z3_solver_check(context.context, solver);
         context.checkError();
         return Z3Status.of(status);
     }
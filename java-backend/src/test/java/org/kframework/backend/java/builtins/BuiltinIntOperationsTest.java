@@ -0,0 +1,109 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.kframework.backend.java.kil.TermContext;
+import org.mockito.Mock;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+public class BuiltinIntOperationsTest {
+
+    @Mock
+    TermContext context;
+
+    private final Random random = new Random(0);
+
+    /**
+     * Returns a random integer, biased towards the boundaries of the fixed-width representation.
+     */
+    private BigInteger randomInteger() {
+        BigInteger magnitude;
+        switch (random.nextInt(4)) {
+        case 0:
+            magnitude = new BigInteger(random.nextInt(70), random);
+            break;
+        case 1:
+            magnitude = new BigInteger(250 + random.nextInt(12), random);
+            break;
+        case 2:
+            magnitude = BigInteger.ONE.shiftLeft(random.nextInt(260)).subtract(BigInteger.valueOf(random.nextInt(3)));
+            break;
+        default:
+            magnitude = new BigInteger(random.nextInt(300), random);
+        }
+        return random.nextBoolean() ? magnitude : magnitude.negate();
+    }
+
+    private static void assertInt(BigInteger expected, IntToken actual) {
+        assertEquals(expected, actual.bigIntegerValue());
+        assertEquals(IntToken.of(expected), actual);
+        assertEquals(IntToken.of(expected).hashCode(), actual.hashCode());
+    }
+
+    @Test
+    public void testAgreesWithBigInteger() {
+        for (int i = 0; i < 100000; i++) {
+            BigInteger a = randomInteger();
+            BigInteger b = randomInteger();
+            IntToken x = IntToken.of(a);
+            IntToken y = IntToken.of(b);
+            int shift = random.nextInt(300);
+
+            assertInt(a.add(b), BuiltinIntOperations.add(x, y, context));
+            assertInt(a.subtract(b), BuiltinIntOperations.sub(x, y, context));
+            assertInt(a.multiply(b), BuiltinIntOperations.mul(x, y, context));
+            assertInt(a.and(b), BuiltinIntOperations.and(x, y, context));
+            assertInt(a.or(b), BuiltinIntOperations.or(x, y, context));
+            assertInt(a.xor(b), BuiltinIntOperations.xor(x, y, context));
+            assertInt(a.not(), BuiltinIntOperations.not(x, context));
+            assertInt(a.abs(), BuiltinIntOperations.abs(x, context));
+            assertInt(a.min(b), BuiltinIntOperations.min(x, y, context));
+            assertInt(a.shiftLeft(shift), BuiltinIntOperations.shl(x, IntToken.of(shift), context));
+            assertInt(a.shiftRight(shift), BuiltinIntOperations.shr(x, IntToken.of(shift), context));
+            assertEquals(a.compareTo(b) < 0, BuiltinIntOperations.lt(x, y, context).booleanValue());
+            assertEquals(a.equals(b), BuiltinIntOperations.eq(x, y, context).booleanValue());
+            if (b.signum() != 0) {
+                assertInt(a.divide(b), BuiltinIntOperations.div(x, y, context));
+                assertInt(a.remainder(b), BuiltinIntOperations.rem(x, y, context));
+            } else {
+                assertNull(BuiltinIntOperations.div(x, y, context));
+            }
+            if (b.signum() > 0) {
+                assertInt(a.mod(b), BuiltinIntOperations.mod(x, y, context));
+            }
+            if (a.signum() > 0) {
+                assertInt(BigInteger.valueOf(a.bitLength() - 1), BuiltinIntOperations.log2(x, context));
+            }
+            assertEquals(a.toString(), x.javaBackendValue());
+        }
+    }
+
+    @Test
+    public void testPowersOfTwoDivision() {
+        IntToken x = IntToken.of(BigInteger.ONE.shiftLeft(255).add(BigInteger.valueOf(12345)));
+        for (int i = 0; i < 256; i++) {
+            BigInteger divisor = BigInteger.ONE.shiftLeft(i);
+            IntToken y = IntToken.of(divisor);
+            assertInt(x.bigIntegerValue().divide(divisor), BuiltinIntOperations.div(x, y, context));
+            assertInt(x.bigIntegerValue().mod(divisor), BuiltinIntOperations.mod(x, y, context));
+        }
+    }
+
+    @Test
+    public void testLongBoundaries() {
+        for (long value : new long[]{Long.MIN_VALUE, Long.MAX_VALUE, Integer.MIN_VALUE, -129, -128, 1024, 1025}) {
+            IntToken token = IntToken.of(value);
+            assertEquals(value, token.longValue());
+            assertEquals(IntToken.of(BigInteger.valueOf(value)), token);
+        }
+        try {
+            IntToken.of(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE)).longValue();
+            fail();
+        } catch (ArithmeticException e) {
+        }
+    }
+}
@@ -0,0 +1,115 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.kframework.attributes.Att;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.kore.KORE;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Collections;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BytesTokenTest {
+
+    @Mock
+    TermContext context;
+    @Mock
+    Definition definition;
+
+    @Before
+    public void setUp() {
+        when(context.definition()).thenReturn(definition);
+        when(definition.bytesTokens()).thenReturn(true);
+        when(definition.signaturesOf("bigEndianBytes")).thenReturn(Collections.emptySet());
+        when(definition.kLabelAttributesOf(KORE.KLabel("bigEndianBytes"))).thenReturn(Att.empty());
+    }
+
+    @Test
+    public void testSliceSharesContents() {
+        BytesToken bytes = BytesToken.ofLatin1("hello world");
+        BytesToken slice = bytes.slice(6, 11);
+        assertEquals(BytesToken.ofLatin1("world"), slice);
+        assertEquals(BytesToken.ofLatin1("world").hashCode(), slice.hashCode());
+        assertSame(bytes.array(), slice.array());
+        assertEquals(5, slice.length());
+        assertEquals('w', slice.get(0));
+        assertSame(BytesToken.EMPTY, bytes.slice(3, 3));
+        assertEquals(BytesToken.ofLatin1("hello"), BuiltinBytesOperations.substr(bytes,
+                IntToken.of(0), IntToken.of(5), context));
+        assertNull(BuiltinBytesOperations.substr(bytes, IntToken.of(6), IntToken.of(12), context));
+    }
+
+    @Test
+    public void testConcat() {
+        BytesToken bytes = BytesToken.ofLatin1("hello world");
+        assertEquals(bytes, bytes.slice(0, 5).concat(bytes.slice(5, 11)));
+        assertSame(bytes, bytes.concat(BytesToken.EMPTY));
+    }
+
+    @Test
+    public void testLatin1() {
+        String latin1 = "\u0000\u007f\u0080\u00ff";
+        BytesToken bytes = BuiltinBytesOperations.string2bytes(StringToken.of(latin1), context);
+        assertArrayEquals(new byte[]{0, 0x7f, (byte) 0x80, (byte) 0xff}, bytes.byteArrayValue());
+        assertEquals(StringToken.of(latin1), BuiltinBytesOperations.bytes2string(bytes, context));
+        assertNull(BuiltinBytesOperations.string2bytes(StringToken.of("\u0100"), context));
+    }
+
+    @Test
+    public void testInt2Bytes() {
+        KItem bigEndian = new KItem(KLabelConstant.of(KORE.KLabel("bigEndianBytes"), definition), KList.EMPTY, Sort.KITEM, true);
+        assertEquals(BytesToken.ofLatin1("\u0000\u0001\u0002"),
+                BuiltinBytesOperations.int2bytes(IntToken.of(3), IntToken.of(0x0102), bigEndian, context));
+        assertEquals(BytesToken.ofLatin1("\u00ff\u00ff\u00fe"),
+                BuiltinBytesOperations.int2bytes(IntToken.of(3), IntToken.of(-2), bigEndian, context));
+        // like the rules of BYTES-SYMBOLIC, leading zero bytes of a negative value are replaced by 255
+        assertEquals(BytesToken.ofLatin1("\u00ff\u00ff\u0001"),
+                BuiltinBytesOperations.int2bytes(IntToken.of(3), IntToken.of(-0xffffff), bigEndian, context));
+    }
+
+    @Test
+    public void testConstructorsWithoutBytesTokens() {
+        when(definition.bytesTokens()).thenReturn(false);
+        assertNull(BuiltinBytesOperations.empty(context));
+        assertNull(BuiltinBytesOperations.string2bytes(StringToken.of("ab"), context));
+        assertEquals(BytesToken.ofLatin1("b"), BuiltinBytesOperations.substr(BytesToken.ofLatin1("ab"),
+                IntToken.of(1), IntToken.of(2), context));
+    }
+
+    @Test
+    public void testPadAndReplace() {
+        BytesToken bytes = BytesToken.ofLatin1("ab");
+        assertEquals(BytesToken.ofLatin1("\u0000\u0000ab"), BuiltinBytesOperations.padLeft(bytes, IntToken.of(4), IntToken.of(0), context));
+        assertEquals(BytesToken.ofLatin1("abxx"), BuiltinBytesOperations.padRight(bytes, IntToken.of(4), IntToken.of('x'), context));
+        assertSame(bytes, BuiltinBytesOperations.padRight(bytes, IntToken.of(1), IntToken.of(0), context));
+        assertEquals(BytesToken.ofLatin1("azcd"), BuiltinBytesOperations.replaceAt(BytesToken.ofLatin1("abcd"),
+                IntToken.of(1), BytesToken.ofLatin1("xyz").slice(2, 3), context));
+        assertNull(BuiltinBytesOperations.replaceAt(bytes, IntToken.of(1), BytesToken.ofLatin1("xy"), context));
+        assertEquals(BytesToken.ofLatin1("ba"), BuiltinBytesOperations.reverse(bytes, context));
+    }
+
+    @Test
+    public void testDigestsAgreeWithStringHooks() {
+        BytesToken input = BytesToken.ofLatin1("xxThe quick brown fox jumps over the lazy dogxx").slice(2, 45);
+        StringToken stringInput = StringToken.of(input.stringValue());
+        assertEquals(BuiltinCryptoOperations.keccak256(stringInput, context).stringValue(),
+                Hex.toHexString(BuiltinCryptoOperations.keccak256Raw(input, context).byteArrayValue()));
+        assertEquals(BuiltinCryptoOperations.sha256(stringInput, context).stringValue(),
+                Hex.toHexString(BuiltinCryptoOperations.sha256Raw(input, context).byteArrayValue()));
+        assertEquals(BuiltinCryptoOperations.ripemd160(stringInput, context).stringValue(),
+                Hex.toHexString(BuiltinCryptoOperations.ripemd160Raw(input, context).byteArrayValue()));
+    }
+}
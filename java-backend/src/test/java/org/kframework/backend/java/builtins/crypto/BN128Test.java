@@ -0,0 +1,103 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins.crypto;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+public class BN128Test {
+
+    private static final BigInteger P = Params.P;
+
+    private static final BigInteger G2_X_A = new BigInteger("10857046999023057135944570762232829481370756359578518086990519993285655852781");
+    private static final BigInteger G2_X_B = new BigInteger("11559732032986387107991004021392285783925812861821192530917403151452391805634");
+    private static final BigInteger G2_Y_A = new BigInteger("8495653923123431417604973247489272438418190587263600148770280649306958101930");
+    private static final BigInteger G2_Y_B = new BigInteger("4082367875863433681332203403145435568316851327593401208105741076214120093531");
+
+    private final Random random = new Random(0);
+
+    private BigInteger randomElement() {
+        switch (random.nextInt(4)) {
+        case 0:
+            return BigInteger.valueOf(random.nextInt(3));
+        case 1:
+            return P.subtract(BigInteger.valueOf(1 + random.nextInt(3)));
+        default:
+            return new BigInteger(P.bitLength(), random).mod(P);
+        }
+    }
+
+    @Test
+    public void testFpAgreesWithBigInteger() {
+        for (int i = 0; i < 10000; i++) {
+            BigInteger a = randomElement();
+            BigInteger b = randomElement();
+            Fp x = Fp.create(a);
+            Fp y = Fp.create(b);
+            assertEquals(a, x.v());
+            assertEquals(a.add(b).mod(P), x.add(y).v());
+            assertEquals(a.subtract(b).mod(P), x.sub(y).v());
+            assertEquals(a.multiply(b).mod(P), x.mul(y).v());
+            assertEquals(a.multiply(a).mod(P), x.squared().v());
+            assertEquals(a.shiftLeft(1).mod(P), x.dbl().v());
+            assertEquals(a.negate().mod(P), x.negate().v());
+            if (a.signum() != 0) {
+                assertEquals(a.modInverse(P), x.inverse().v());
+            }
+            assertEquals(a.equals(b), x.equals(y));
+            assertEquals(a.signum() == 0, x.isZero());
+        }
+    }
+
+    @Test
+    public void testFpUnreduced() {
+        assertFalse(Fp.create(P).isValid());
+        assertFalse(Fp.create(P).isZero());
+        assertNotEquals(Fp.ZERO, Fp.create(P));
+        assertTrue(Fp.create(BigInteger.ONE.negate()).isValid());
+        assertEquals(P.subtract(BigInteger.ONE), Fp.create(BigInteger.ONE.negate()).mul(Fp._1).v());
+        assertNull(BN128Fp.create(P.add(BigInteger.ONE), BigInteger.valueOf(2)));
+    }
+
+    @Test
+    public void testMulAgreesWithRepeatedAddition() {
+        BN128<Fp> g = BN128Fp.create(BigInteger.ONE, BigInteger.valueOf(2));
+        BN128<Fp> sum = BN128Fp.ZERO;
+        for (int s = 0; s < 40; s++) {
+            assertEquals(sum.toEthNotation(), g.mul(BigInteger.valueOf(s)).toEthNotation());
+            sum = sum.add(g);
+        }
+        assertTrue(g.mul(Params.R).isZero());
+        assertEquals(g.toEthNotation(), g.mul(Params.R.add(BigInteger.ONE)).toEthNotation());
+    }
+
+    @Test
+    public void testPairingBilinearity() {
+        BN128<Fp> g1 = BN128Fp.create(BigInteger.ONE, BigInteger.valueOf(2));
+        BN128G2 g2 = BN128G2.create(G2_X_A, G2_X_B, G2_Y_A, G2_Y_B);
+        assertNotNull(g2);
+
+        BigInteger a = new BigInteger(128, random);
+        BigInteger b = new BigInteger(128, random);
+        BN128<Fp> ag1 = g1.mul(a).toEthNotation();
+        BN128<Fp> abg1 = g1.mul(a.multiply(b).negate().mod(Params.R)).toEthNotation();
+        BN128<Fp2> bg2 = g2.mul(b).toEthNotation();
+        BN128G2 bg2Point = BN128G2.create(bg2.x().a.v(), bg2.x().b.v(), bg2.y().a.v(), bg2.y().b.v());
+
+        // e(a * G1, b * G2) * e(-ab * G1, G2) == 1
+        PairingCheck check = PairingCheck.create();
+        check.addPair(BN128G1.create(ag1.x().v(), ag1.y().v()), bg2Point);
+        check.addPair(BN128G1.create(abg1.x().v(), abg1.y().v()), g2);
+        check.run();
+        assertEquals(1, check.result());
+
+        check = PairingCheck.create();
+        check.addPair(BN128G1.create(ag1.x().v(), ag1.y().v()), bg2Point);
+        check.addPair(BN128G1.create(abg1.x().v(), abg1.y().v()), bg2Point);
+        check.run();
+        assertEquals(0, check.result());
+    }
+}
@@ -54,4 +54,20 @@ public class BuiltinListTest {
 
         Assert.assertEquals(builtinList.children, ImmutableList.of(new Variable("L", Sort.LIST), IntToken.of(9), IntToken.of(9)));
     }
+
+    @Test
+    public void testListUpdate() throws Exception {
+        BuiltinList builtinList = (BuiltinList) BuiltinList.builder(Sort.LIST, null, null, globalContext)
+                .addAll(IntToken.of(0), IntToken.of(1), IntToken.of(2))
+                .build();
+
+        BuiltinList updatedList = (BuiltinList) builtinList.update(
+                1,
+                BuiltinList.builder(Sort.LIST, null, null, globalContext)
+                        .addAll(IntToken.of(7), new Variable("L", Sort.LIST))
+                        .build());
+
+        Assert.assertEquals(ImmutableList.of(IntToken.of(0), IntToken.of(7), new Variable("L", Sort.LIST), IntToken.of(2)), updatedList.children);
+        Assert.assertEquals(ImmutableList.of(IntToken.of(0), IntToken.of(1), IntToken.of(2)), builtinList.children);
+    }
 }
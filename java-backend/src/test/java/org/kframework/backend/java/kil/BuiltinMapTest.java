@@ -91,4 +91,26 @@ public class BuiltinMapTest {
         Assert.assertEquals(null, resultMap);
     }
 
+    @Test
+    public void testMapHashCodeIndependentOfConstruction() throws Exception {
+        BuiltinMap.Builder builder = BuiltinMap.builder(termContext.global());
+        builder.put(IntToken.of(0), IntToken.of(0));
+        builder.put(IntToken.of(1), IntToken.of(0));
+        builder.put(IntToken.of(2), IntToken.of(0));
+        BuiltinMap builtinMap = (BuiltinMap) builder.build();
+
+        builder = BuiltinMap.builder(termContext.global());
+        builder.put(IntToken.of(2), IntToken.of(1));
+        builder.put(IntToken.of(1), IntToken.of(0));
+        builder.put(IntToken.of(3), IntToken.of(0));
+        builder.remove(IntToken.of(3));
+        builder.put(IntToken.of(2), IntToken.of(0));
+        builder.concatenate((BuiltinMap) BuiltinMapOperations.entry(IntToken.of(0), IntToken.of(0), termContext));
+        BuiltinMap otherMap = (BuiltinMap) builder.build();
+
+        Assert.assertEquals(builtinMap, otherMap);
+        Assert.assertEquals(builtinMap.hashCode(), otherMap.hashCode());
+        Assert.assertEquals(builtinMap.getEntries().hashCode(), otherMap.getEntries().hashCode());
+    }
+
 }
@@ -0,0 +1,93 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.kframework.attributes.Att;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.symbolic.Stage;
+import org.kframework.kore.KORE;
+import org.kframework.krun.KRunOptions;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.options.SMTOptions;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GlobalContextTest {
+
+    @Mock
+    Definition definition;
+    @Mock
+    KExceptionManager kem;
+
+    private static final org.kframework.kore.KLabel foo = KORE.KLabel("foo");
+
+    private final KRunOptions krunOptions = new KRunOptions();
+
+    @Before
+    public void setUp() {
+        when(definition.signaturesOf("foo")).thenReturn(Collections.emptySet());
+        when(definition.allSorts()).thenReturn(Collections.emptySet());
+        when(definition.kLabelAttributesOf(foo)).thenReturn(Att.empty());
+        Map<GlobalContext, Interner<KItem>> interners = new HashMap<>();
+        when(definition.kItemInterner(any(GlobalContext.class)))
+                .thenAnswer(invocation -> interners.computeIfAbsent(
+                        (GlobalContext) invocation.getArguments()[0], g -> Interners.newWeakInterner()));
+        krunOptions.experimental.hashCons = true;
+    }
+
+    private GlobalContext context(Stage stage) {
+        GlobalContext global = new GlobalContext(null, false, new GlobalOptions(), krunOptions, kem, new SMTOptions(),
+                Collections.emptyMap(), null, stage);
+        global.setDefinition(definition);
+        return global;
+    }
+
+    private KItem foo(GlobalContext global) {
+        return KItem.of(KLabelConstant.of(foo, definition), KList.concatenate(IntToken.of(1)), global);
+    }
+
+    @Test
+    public void testRuntimeTermsAreShared() {
+        GlobalContext rewritingContext = context(Stage.REWRITING);
+        KItem term = foo(rewritingContext);
+        assertSame(term, foo(rewritingContext));
+        rewritingContext.close();
+    }
+
+    @Test
+    public void testRuntimeTermIsNotRuleTerm() {
+        GlobalContext initializingContext = context(Stage.INITIALIZING);
+        GlobalContext rewritingContext = context(Stage.REWRITING);
+        KItem ruleTerm = foo(initializingContext);
+        KItem runtimeTerm = foo(rewritingContext);
+        assertEquals(ruleTerm, runtimeTerm);
+        assertNotSame(ruleTerm, runtimeTerm);
+        assertSame(initializingContext, ruleTerm.globalContext());
+        assertSame(rewritingContext, runtimeTerm.globalContext());
+        initializingContext.close();
+        rewritingContext.close();
+    }
+
+    @Test
+    public void testHashConsDisabled() {
+        krunOptions.experimental.hashCons = false;
+        GlobalContext global = context(Stage.REWRITING);
+        KItem term = foo(global);
+        assertEquals(term, foo(global));
+        assertNotSame(term, foo(global));
+        global.close();
+    }
+}
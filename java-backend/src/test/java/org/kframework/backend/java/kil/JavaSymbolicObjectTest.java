@@ -11,6 +11,7 @@ import org.kframework.utils.BaseTestCase;
 import org.mockito.Mock;
 
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -96,4 +97,29 @@ public class JavaSymbolicObjectTest extends BaseTestCase {
         assertTrue(k2.kLabel().isNormal());
         assertTrue(k2.kList().isNormal());
     }
+
+    @Test
+    public void testIsEvaluatedWithoutConstraint() {
+        KItem k1 = new KItem(KLabelConstant.of(foo, definition), KList.EMPTY, Sort.of(KORE.Sort("bar@FOO")), true);
+        assertFalse(k1.isEvaluated(null));
+        k1.markEvaluated(null);
+        assertTrue(k1.isEvaluated(null));
+    }
+
+    @Test
+    public void testScopedVariableCounter() {
+        Sort sort = Sort.of(KORE.Sort("bar@FOO"));
+        AtomicLong counter = new AtomicLong(1L << 32);
+        Variable outer = Variable.withCounter(counter, () -> {
+            Variable scoped = Variable.getAnonVariable(sort);
+            assertFalse(Variable.withCounter(null, () -> Variable.getAnonVariable(sort)).equals(Variable.getAnonVariable(sort)));
+            return scoped;
+        });
+        assertEquals(new Variable("_" + (1L << 32), sort), outer);
+        assertEquals((1L << 32) + 2, counter.get());
+        int global = Variable.getCounter();
+        Variable.getAnonVariable(sort);
+        assertEquals(global + 1, Variable.getCounter());
+        assertEquals((1L << 32) + 2, counter.get());
+    }
 }
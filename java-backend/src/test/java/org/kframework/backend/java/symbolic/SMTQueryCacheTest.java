@@ -0,0 +1,70 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.kframework.backend.java.z3.Z3Status;
+
+public class SMTQueryCacheTest {
+
+    @Test
+    public void testNormalizeAlphaEquivalent() {
+        String q1 = "(declare-sort Map)\n"
+                + "(declare-fun |x_1| () Int)\n"
+                + "(declare-fun |y_2| () Int)\n"
+                + "(assert (and (< |y_2| 3) (= |x_1| |y_2|)))";
+        String q2 = "(declare-sort Map)\n"
+                + "(declare-fun |b| () Int)\n"
+                + "(declare-fun |a| () Int)\n"
+                + "(assert (and (< |a| 3) (= |b| |a|)))";
+        assertEquals(SMTQueryCache.normalize(q1), SMTQueryCache.normalize(q2));
+    }
+
+    @Test
+    public void testNormalizeDistinguishesStructure() {
+        String q1 = "(declare-fun |x| () Int)\n(declare-fun |y| () Int)\n(assert (< |x| |y|))";
+        String q2 = "(declare-fun |x| () Int)\n(declare-fun |y| () Int)\n(assert (< |x| |x|))";
+        assertNotEquals(SMTQueryCache.normalize(q1), SMTQueryCache.normalize(q2));
+    }
+
+    @Test
+    public void testNormalizeKeepsUndeclaredSymbols() {
+        String q1 = "(declare-fun |x| () Int)\n(assert (< |x| (|foo| 0)))";
+        String q2 = "(declare-fun |x| () Int)\n(assert (< |x| (|bar| 0)))";
+        assertNotEquals(SMTQueryCache.normalize(q1), SMTQueryCache.normalize(q2));
+        assertTrue(SMTQueryCache.normalize(q1).contains("|foo|"));
+    }
+
+    private static final String A = "(declare-fun |a| () Int)\n(assert (< |a| |a|))";
+    private static final String B = "(declare-fun |b| () Int)\n(assert (< |b| |b|))";
+
+    @Test
+    public void testHitsAndMisses() {
+        SMTQueryCache cache = new SMTQueryCache(16, "", null, null);
+        assertEquals(Z3Status.UNSAT, cache.get("unsat", 50, A, () -> Z3Status.UNSAT));
+        assertEquals(Z3Status.UNSAT, cache.get("unsat", 50, B, () -> Z3Status.SAT));
+        assertEquals(Z3Status.SAT, cache.get("implies", 50, B, () -> Z3Status.SAT));
+        assertEquals(Z3Status.SAT, cache.get("unsat", 100, B, () -> Z3Status.SAT));
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+    }
+
+    @Test
+    public void testUnknownNotCached() {
+        SMTQueryCache cache = new SMTQueryCache(16, "", null, null);
+        assertEquals(Z3Status.UNKNOWN, cache.get("unsat", 50, A, () -> Z3Status.UNKNOWN));
+        assertEquals(Z3Status.UNSAT, cache.get("unsat", 50, A, () -> Z3Status.UNSAT));
+        assertEquals(Z3Status.UNSAT, cache.get("unsat", 50, A, () -> Z3Status.UNKNOWN));
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    public void testDisabled() {
+        SMTQueryCache cache = new SMTQueryCache(0, "", null, null);
+        assertEquals(Z3Status.UNSAT, cache.get("unsat", 50, A, () -> Z3Status.UNSAT));
+        assertEquals(Z3Status.SAT, cache.get("unsat", 50, A, () -> Z3Status.SAT));
+        assertEquals(0, cache.hits());
+    }
+}
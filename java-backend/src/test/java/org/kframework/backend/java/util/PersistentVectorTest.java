@@ -0,0 +1,165 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PersistentVectorTest {
+
+    private static PersistentVector<Integer> range(int from, int to) {
+        List<Integer> elements = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            elements.add(i);
+        }
+        return PersistentVector.from(elements);
+    }
+
+    /**
+     * Checks the size, indexed access and iteration order of the given vector against the expected elements.
+     */
+    private static void assertElements(List<Integer> expected, PersistentVector<Integer> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+        }
+        Iterator<Integer> iterator = actual.iterator();
+        for (Integer element : expected) {
+            assertTrue(iterator.hasNext());
+            assertEquals(element, iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+        assertEquals(expected, actual);
+        assertEquals(expected.hashCode(), actual.hashCode());
+    }
+
+    @Test
+    public void testEmpty() {
+        PersistentVector<Integer> empty = PersistentVector.empty();
+        assertElements(Collections.emptyList(), empty);
+        assertSame(empty, PersistentVector.from(Collections.<Integer>emptyList()));
+        assertSame(empty, empty.concat(empty));
+        assertElements(Collections.emptyList(), range(0, 10).subList(5, 5));
+        try {
+            empty.iterator().next();
+            fail();
+        } catch (NoSuchElementException e) {
+        }
+        try {
+            empty.get(0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    @Test
+    public void testAppendOneAtATime() {
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        PersistentVector<Integer> prepended = PersistentVector.empty();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            vector = vector.plus(i);
+            prepended = PersistentVector.singleton(999 - i).concat(prepended);
+            expected.add(i);
+        }
+        assertElements(expected, vector);
+        assertElements(expected, prepended);
+    }
+
+    @Test
+    public void testConcatAndSplit() {
+        PersistentVector<Integer> left = range(0, 5);
+        PersistentVector<Integer> right = range(5, 3000);
+        PersistentVector<Integer> vector = left.concat(right);
+        assertElements(range(0, 3000), vector);
+        assertElements(range(0, 3000), range(0, 2995).concat(range(2995, 3000)));
+        for (int split : new int[]{0, 1, 31, 32, 33, 1500, 2999, 3000}) {
+            assertElements(range(0, split), vector.subList(0, split));
+            assertElements(range(split, 3000), vector.subList(split, 3000));
+            assertElements(range(0, 3000), vector.subList(0, split).concat(vector.subList(split, 3000)));
+        }
+        assertSame(vector, vector.subList(0, 3000));
+        assertElements(range(100, 2000), vector.subList(50, 2500).subList(50, 1950));
+    }
+
+    @Test
+    public void testUpdateIsPersistent() {
+        PersistentVector<Integer> vector = range(0, 100);
+        PersistentVector<Integer> updated = vector.with(40, -1);
+        List<Integer> expected = new ArrayList<>(range(0, 100));
+        expected.set(40, -1);
+        assertElements(expected, updated);
+        assertElements(range(0, 100), vector);
+        try {
+            vector.with(100, 0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    /**
+     * Checks random sequences of concatenations, slices and updates against {@link ArrayList}, so that the trees
+     * are rebalanced in many different shapes.
+     */
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(0);
+        List<PersistentVector<Integer>> vectors = new ArrayList<>();
+        List<List<Integer>> expected = new ArrayList<>();
+        vectors.add(range(0, 70));
+        expected.add(new ArrayList<>(range(0, 70)));
+        for (int step = 0; step < 2000; step++) {
+            int i = random.nextInt(vectors.size());
+            PersistentVector<Integer> vector = vectors.get(i);
+            List<Integer> list = expected.get(i);
+            PersistentVector<Integer> result;
+            List<Integer> resultList;
+            switch (random.nextInt(4)) {
+            case 0: {
+                int j = random.nextInt(vectors.size());
+                result = vector.concat(vectors.get(j));
+                resultList = new ArrayList<>(list);
+                resultList.addAll(expected.get(j));
+                break;
+            }
+            case 1: {
+                int from = random.nextInt(list.size() + 1);
+                int to = from + random.nextInt(list.size() - from + 1);
+                result = vector.subList(from, to);
+                resultList = new ArrayList<>(list.subList(from, to));
+                break;
+            }
+            case 2: {
+                if (list.isEmpty()) {
+                    continue;
+                }
+                int index = random.nextInt(list.size());
+                result = vector.with(index, -step);
+                resultList = new ArrayList<>(list);
+                resultList.set(index, -step);
+                break;
+            }
+            default:
+                result = vector.plus(step);
+                resultList = new ArrayList<>(list);
+                resultList.add(step);
+            }
+            if (resultList.size() > 5000) {
+                continue;
+            }
+            assertElements(resultList, result);
+            vectors.add(result);
+            expected.add(resultList);
+        }
+        for (int i = 0; i < vectors.size(); i++) {
+            assertElements(expected.get(i), vectors.get(i));
+        }
+    }
+}
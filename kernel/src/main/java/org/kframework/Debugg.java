@@ -11,20 +11,8 @@ import org.kframework.unparser.OutputModes;
 import org.kframework.utils.file.FileUtil;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.io.OutputStream;
-import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
-import org.apache.commons.io.output.WriterOutputStream;
-
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Set;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.lang.Math;
 
 public class Debugg {
 
@@ -35,11 +23,13 @@ public class Debugg {
     private static KPrint   kprint;
     private static boolean  loggingOn;
 
-    private static String      loggingPath;
-    private static String      sessionId;
-    private static File        sessionDir;
-    private static File        nodesDir;
-    private static PrintWriter sessionLog;
+    private static String       loggingPath;
+    private static String       sessionId;
+    private static File         sessionDir;
+    private static File         nodesDir;
+    private static DebuggWriter writer;
+    private static Thread       shutdownHook;
+    // the following fields are only accessed by the writer thread after init
     private static String      currentTerm;
     private static String      currentRule;
     private static String      currentMatchRule;
@@ -65,15 +55,25 @@ public class Debugg {
             String path       = sessionDir.getAbsolutePath();
             Debugg.nodesDir   = new File(Debugg.sessionDir, "blobs/");
             Debugg.nodesDir.mkdirs();
-            Debugg.sessionLog = new PrintWriter(Debugg.sessionDir.getAbsolutePath() + "/" + kproveOptions.debuggId + ".log");
+            if (Debugg.kprint.options.output == OutputModes.PRETTY) {
+                System.err.println("Cannot output in `pretty` mode when using Debugg. Defaulting to `json`.");
+                Debugg.kprint.options.output = OutputModes.JSON;
+            }
+            Debugg.writer = new DebuggWriter(
+                    new File(Debugg.sessionDir, kproveOptions.debuggId + ".log"),
+                    Debugg.nodesDir,
+                    Debugg.kprint.options.output.ext(),
+                    kproveOptions.debuggArchive ? new File(Debugg.sessionDir, kproveOptions.debuggId + ".blobs.gz") : null,
+                    kproveOptions.debuggQueueSize,
+                    term -> kprint.prettyPrint(parsingModule, term));
+            // the log of a proof ending with an unexpected exception is still written out
+            Debugg.shutdownHook = new Thread(Debugg::closeWriter);
+            Runtime.getRuntime().addShutdownHook(Debugg.shutdownHook);
             System.out.println("Debugg: " + kproveOptions.debuggId);
-        } catch (FileNotFoundException e) {
+        } catch (IOException e) {
             e.printStackTrace();
-        }
-
-        if (Debugg.kprint.options.output == OutputModes.PRETTY) {
-            System.err.println("Cannot output in `pretty` mode when using Debugg. Defaulting to `json`.");
-            Debugg.kprint.options.output = OutputModes.JSON;
+            Debugg.loggingOn = false;
+            return;
         }
 
         Debugg.currentImplication = "NOTERM";
@@ -85,11 +85,14 @@ public class Debugg {
     }
 
     public static void setTarget(boolean b) {
-        if(b) {
-            Debugg.currentMatchRule = "IMPLIESTARGET";
-        } else {
-            Debugg.currentMatchRule = "NORULE";
-        }
+        if (! Debugg.loggingOn) return;
+        Debugg.writer.submit(() -> {
+            if(b) {
+                Debugg.currentMatchRule = "IMPLIESTARGET";
+            } else {
+                Debugg.currentMatchRule = "NORULE";
+            }
+        });
     }
 
     public static enum LogEvent {
@@ -97,20 +100,28 @@ public class Debugg {
     }
 
     public static void resetMatchrule() {
-        currentMatchRule = "NORULE";
+        if (! Debugg.loggingOn) return;
+        Debugg.writer.submit(() -> currentMatchRule = "NORULE");
     }
 
     public static void log(String logItem) {
         if (! Debugg.loggingOn) return;
-        Debugg.sessionLog.println((System.currentTimeMillis() - Debugg.startTime) + " " + logItem);
-        Debugg.sessionLog.flush();
+        long time = System.currentTimeMillis() - Debugg.startTime;
+        Debugg.writer.submit(() -> Debugg.writer.line(time, logItem));
     }
 
     public static void log(LogEvent logCode, K... terms) {
         if (! Debugg.loggingOn) return;
+        long time = System.currentTimeMillis() - Debugg.startTime;
+        // the caller may reuse the array, but the terms themselves are immutable
+        K[] snapshot = terms.clone();
+        Debugg.writer.submit(() -> writeEvent(time, logCode, snapshot));
+    }
+
+    private static void writeEvent(long time, LogEvent logCode, K... terms) {
         ArrayList<String> nodeIds = new ArrayList<String>();
         for (K term: terms) {
-            nodeIds.add(writeNode(term));
+            nodeIds.add(Debugg.writer.store(term));
         }
         String nodeId = String.join("_", nodeIds);
         String logPrefix = "";
@@ -171,47 +182,25 @@ public class Debugg {
                 logPrefix = "close";
                 break;
         }
-        Debugg.log(logPrefix + " " + currentTerm + " " + nodeId);
+        Debugg.writer.line(time, logPrefix + " " + currentTerm + " " + nodeId);
     }
 
     public static void close() {
         if (! Debugg.loggingOn) return;
         Debugg.log(LogEvent.CLOSE);
-        Debugg.sessionLog.close();
-    }
-
-    private static String hash(K in) {
-        MessageDigest m = null;
-        String hashtext;
+        Debugg.loggingOn = false;
+        closeWriter();
         try {
-            m = MessageDigest.getInstance("MD5");
-            m.reset();
-            m.update(in.toString().getBytes());
-            byte[] digest = m.digest();
-            BigInteger bigInt = new BigInteger(1,digest);
-            hashtext = bigInt.toString(16);
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            hashtext = "__";
+            Runtime.getRuntime().removeShutdownHook(Debugg.shutdownHook);
+        } catch (IllegalStateException e) {
+            // the JVM is already shutting down
         }
-        return hashtext;
     }
 
-    private static String writeNode(K contents) {
-        String fileCode   = Integer.toString(Math.abs(contents.hashCode()));
-        //String fileCode   = hash(contents);
-        File   outputFile = new File(Debugg.nodesDir, fileCode + "." + Debugg.kprint.options.output.ext());
-        if (! outputFile.exists()) {
-            try {
-                String out = new String(Debugg.kprint.prettyPrint(Debugg.parsingModule, contents), StandardCharsets.UTF_8);
-                PrintWriter fOut = new PrintWriter(outputFile);
-                fOut.println(out);
-                fOut.close();
-            } catch (FileNotFoundException e) {
-                System.err.println("Could not open node output file: " + outputFile.getAbsolutePath());
-                e.printStackTrace();
-            }
+    private static void closeWriter() {
+        String stats = Debugg.writer.close();
+        if (stats != null) {
+            System.err.println("Debugg: " + stats);
         }
-        return fileCode;
     }
 }
@@ -0,0 +1,238 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.kframework.kore.K;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the output of {@link Debugg} on a background thread, so that pretty printing the logged terms and writing
+ * them to disk happen off the proving threads. The logging thread only hands over references to the terms, which are
+ * immutable; the caches the backend fills in lazily are safe to read from the writer thread. Tasks wait in a bounded
+ * queue: when it is full, the logging thread blocks until the writer catches up, and the number and duration of those
+ * waits are reported on {@link #close()}. The session log is flushed once per batch of tasks rather than once per
+ * line.
+ * <p>
+ * Each distinct term is stored once, under the hex SHA-256 digest of its pretty printed contents, either as a file
+ * of the blobs directory or as a record {@code <digest> <length>\n<contents>\n} of a single gzip-compressed archive.
+ */
+final class DebuggWriter {
+
+    private static final Runnable STOP = () -> { };
+    private static final int PRINTED_CACHE_SIZE = 4096;
+
+    private final BlockingQueue<Runnable> queue;
+    private final int queueSize;
+    private final Thread thread;
+    private final PrintWriter sessionLog;
+    private final File blobsDir;
+    private final String blobExtension;
+    private final OutputStream archive;
+    private final Function<K, byte[]> printer;
+    private final MessageDigest digest;
+
+    /**
+     * The digests of the recently stored terms, so that equal terms are not pretty printed again.
+     */
+    private final Map<K, String> printed = new LinkedHashMap<K, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, String> eldest) {
+            return size() > PRINTED_CACHE_SIZE;
+        }
+    };
+    private final Set<String> stored = new HashSet<>();
+    private long blobsWritten;
+    private long blobsDeduplicated;
+    private long batches;
+
+    private final AtomicLong tasks = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+    private final AtomicLong stalledNanos = new AtomicLong();
+    private final AtomicInteger maxQueued = new AtomicInteger();
+    private boolean closed;
+
+    /**
+     * @param blobsDir the directory to write a file per term to, or null if {@code archive} is not null.
+     * @param archive  the compressed file to write all the terms to, or null to write them to {@code blobsDir}.
+     */
+    DebuggWriter(File sessionLog, File blobsDir, String blobExtension, File archive, int queueSize,
+                 Function<K, byte[]> printer) throws IOException {
+        this.sessionLog = new PrintWriter(sessionLog);
+        this.blobsDir = blobsDir;
+        this.blobExtension = blobExtension;
+        this.archive = archive == null ? null
+                : new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(archive)), 1 << 16);
+        this.printer = printer;
+        this.queueSize = queueSize;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        this.thread = new Thread(this::run, "Debugg writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues the given task, which is run on the writer thread after all the previously submitted tasks.
+     * Blocks while the queue is full, and drops the task if the writer is closed.
+     */
+    synchronized void submit(Runnable task) {
+        if (closed) {
+            return;
+        }
+        tasks.incrementAndGet();
+        if (!queue.offer(task)) {
+            stalls.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                queue.put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                stalledNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+        maxQueued.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    /**
+     * Appends a line to the session log. Must be called on the writer thread.
+     */
+    void line(long time, String line) {
+        sessionLog.println(time + " " + line);
+    }
+
+    /**
+     * Stores the given term unless a term with the same contents was already stored, and returns its id.
+     * Must be called on the writer thread.
+     */
+    String store(K term) {
+        String id = printed.get(term);
+        if (id != null) {
+            blobsDeduplicated++;
+            return id;
+        }
+        byte[] contents = printer.apply(term);
+        id = Hex.toHexString(digest.digest(contents));
+        printed.put(term, id);
+        if (!stored.add(id)) {
+            blobsDeduplicated++;
+            return id;
+        }
+        try {
+            if (archive != null) {
+                archive.write((id + " " + (contents.length + 1) + "\n").getBytes(StandardCharsets.UTF_8));
+                archive.write(contents);
+                archive.write('\n');
+                blobsWritten++;
+            } else {
+                File outputFile = new File(blobsDir, id + "." + blobExtension);
+                if (outputFile.exists()) {
+                    blobsDeduplicated++;
+                } else {
+                    byte[] line = new byte[contents.length + 1];
+                    System.arraycopy(contents, 0, line, 0, contents.length);
+                    line[contents.length] = '\n';
+                    Files.write(outputFile.toPath(), line);
+                    blobsWritten++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write node " + id + ": " + e.getMessage());
+        }
+        return id;
+    }
+
+    private void run() {
+        List<Runnable> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                batches++;
+                for (Runnable task : batch) {
+                    if (task == STOP) {
+                        return;
+                    }
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+                batch.clear();
+                sessionLog.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the queued tasks to be written, closes the output files and returns a summary of the work done.
+     * Does nothing and returns null if the writer is already closed. The tasks submitted afterwards are dropped.
+     */
+    synchronized String close() {
+        if (closed) {
+            return null;
+        }
+        closed = true;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(STOP);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        sessionLog.close();
+        if (archive != null) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                System.err.println("Could not write Debugg archive: " + e.getMessage());
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return String.format("%d events in %d batches, %d nodes written, %d duplicate nodes skipped; "
+                        + "logging waited %d times for %d ms, at most %d of %d events queued",
+                tasks.get(), batches, blobsWritten, blobsDeduplicated,
+                stalls.get(), stalledNanos.get() / 1000000, maxQueued.get(), queueSize);
+    }
+}
@@ -43,7 +43,14 @@ public class KEq {
         Rewriter rewriter2 = gen2.apply(compiled2._1().mainModule());
         Module spec2 = compiled2._2();
 
-        boolean isEquivalent = commonRewriter.equivalence(rewriter1, rewriter2, spec1, spec2);
+        boolean isEquivalent;
+        try {
+            isEquivalent = commonRewriter.equivalence(rewriter1, rewriter2, spec1, spec2);
+        } finally {
+            commonRewriter.close();
+            rewriter1.close();
+            rewriter2.close();
+        }
         System.out.println(isEquivalent ? "#True" : "#False");
         return isEquivalent ? 0 : 1;
     }
@@ -54,6 +54,7 @@ public class Attribute<T> extends ASTNode {
     public static final String STRICT_KEY = "strict";
     public static final String SEQSTRICT_KEY = "seqstrict";
     public static final String CONCRETE_FUNCTION_KEY = "concrete";
+    public static final String MEMO_KEY = "memo";
 
     public static final Attribute<String> BRACKET = Attribute.of("bracket", "");
     public static final Attribute<String> FUNCTION = Attribute.of(FUNCTION_KEY, "");
@@ -58,6 +58,11 @@ public class CompiledDefinition implements Serializable {
     public final Rule exitCodePattern;
     private Map<String, Rule> cachedcompiledPatterns = new ConcurrentHashMap<>();
     private Map<String, Rule> cachedParsedPatterns = new ConcurrentHashMap<>();
+    /**
+     * The program parsers of {@link #getProgramParser(String, Sort, KExceptionManager)}, by module name. Not serialized,
+     * hence initialized lazily.
+     */
+    private transient volatile Map<String, ParseInModule> cachedProgramParsers;
 
 
     public CompiledDefinition(KompileOptions kompileOptions, Definition parsedDefinition, Definition kompiledDefinition, FileUtil files, KExceptionManager kem, KLabel topCellInitializer) {
@@ -170,8 +175,35 @@ public class CompiledDefinition implements Serializable {
      */
 
     public BiFunction<String, Source, K> getParser(Module module, Sort programStartSymbol, KExceptionManager kem) {
-        ParseInModule parseInModule = RuleGrammarGenerator.getCombinedGrammar(module, kompileOptions.strict());
+        return getParser(RuleGrammarGenerator.getCombinedGrammar(module, kompileOptions.strict()), programStartSymbol, kem);
+    }
+
+    /**
+     * Returns a parser for programs of the given sort in the program parsing module of the module named moduleName,
+     * as used by kast. The grammar and scanner of the parser are cached, so that parsing several programs does not
+     * rebuild them.
+     */
+    public BiFunction<String, Source, K> getProgramParser(String moduleName, Sort programStartSymbol, KExceptionManager kem) {
+        Map<String, ParseInModule> parsers = cachedProgramParsers;
+        if (parsers == null) {
+            synchronized (this) {
+                if (cachedProgramParsers == null) {
+                    cachedProgramParsers = new ConcurrentHashMap<>();
+                }
+                parsers = cachedProgramParsers;
+            }
+        }
+        ParseInModule parseInModule = parsers.computeIfAbsent(moduleName, name -> {
+            Option<Module> module = programParsingModuleFor(name, kem);
+            if (module.isEmpty()) {
+                throw KEMException.innerParserError("Module " + name + " not found. Specify a module with -m.");
+            }
+            return RuleGrammarGenerator.getCombinedGrammar(module.get(), kompileOptions.strict());
+        });
+        return getParser(parseInModule, programStartSymbol, kem);
+    }
 
+    private BiFunction<String, Source, K> getParser(ParseInModule parseInModule, Sort programStartSymbol, KExceptionManager kem) {
         return (BiFunction<String, Source, K> & Serializable) (s, source) -> {
             Tuple2<Either<Set<ParseFailedException>, K>, Set<ParseFailedException>> res = parseInModule.parseString(s, programStartSymbol, source);
             kem.addAllKException(res._2().stream().map(e -> e.getKException()).collect(Collectors.toSet()));
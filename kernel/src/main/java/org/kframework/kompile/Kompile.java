@@ -145,38 +145,67 @@ public class Kompile {
         return DefinitionTransformer.from(mod -> excludeModulesByTag(excludedModuleTags, mod), "remove modules based on attributes");
     }
 
+    /**
+     * The compilation pipeline. Passes which only depend on the module they transform are applied to the modules of
+     * the definition in parallel (see {@link DefinitionTransformer#inParallel()}); the others are applied sequentially.
+     * When verbose, the time taken by each pass is printed.
+     */
     public static Function<Definition, Definition> defaultSteps(KompileOptions kompileOptions, KExceptionManager kem, FileUtil files, Set<String> excludedModuleTags) {
-        DefinitionTransformer resolveStrict = DefinitionTransformer.from(new ResolveStrict(kompileOptions)::resolve, "resolving strict and seqstrict attributes");
-        DefinitionTransformer resolveHeatCoolAttribute = DefinitionTransformer.fromSentenceTransformer(new ResolveHeatCoolAttribute(new HashSet<>(kompileOptions.transition))::resolve, "resolving heat and cool attributes");
+        return defaultSteps(kompileOptions, kem, files, excludedModuleTags, null);
+    }
+
+    /**
+     * The compilation pipeline, with the results of the passes which only depend on the module they transform
+     * looked up in the given cache, if not null.
+     */
+    public static Function<Definition, Definition> defaultSteps(KompileOptions kompileOptions, KExceptionManager kem, FileUtil files, Set<String> excludedModuleTags, ModuleCache cache) {
+        DefinitionTransformer resolveStrict = withCache(DefinitionTransformer.from(new ResolveStrict(kompileOptions)::resolve, "resolving strict and seqstrict attributes").inParallel(), cache);
+        DefinitionTransformer resolveHeatCoolAttribute = withCache(DefinitionTransformer.fromSentenceTransformer(new ResolveHeatCoolAttribute(new HashSet<>(kompileOptions.transition))::resolve, "resolving heat and cool attributes").inParallel(), cache);
         DefinitionTransformer resolveAnonVars = DefinitionTransformer.fromSentenceTransformer(new ResolveAnonVar()::resolve, "resolving \"_\" vars");
+        boolean skipSortPredicates = kompileOptions.backend.equals(Backends.JAVA);
         DefinitionTransformer resolveSemanticCasts =
-                DefinitionTransformer.fromSentenceTransformer(new ResolveSemanticCasts(kompileOptions.backend.equals(Backends.JAVA))::resolve, "resolving semantic casts");
+                withCache(DefinitionTransformer.fromSentenceTransformer(s -> new ResolveSemanticCasts(skipSortPredicates).resolve(s), "resolving semantic casts").inParallel(), cache);
         DefinitionTransformer resolveFun = DefinitionTransformer.from(new ResolveFun()::resolve, "resolving #fun");
-        DefinitionTransformer generateSortPredicateSyntax = DefinitionTransformer.from(new GenerateSortPredicateSyntax()::gen, "adding sort predicate productions");
-        DefinitionTransformer subsortKItem = DefinitionTransformer.from(Kompile::subsortKItem, "subsort all sorts to KItem");
+        DefinitionTransformer generateSortPredicateSyntax = withCache(DefinitionTransformer.from(new GenerateSortPredicateSyntax()::gen, "adding sort predicate productions").inParallel(), cache);
+        DefinitionTransformer subsortKItem = withCache(DefinitionTransformer.from(Kompile::subsortKItem, "subsort all sorts to KItem").inParallel(), cache);
         GenerateCoverage cov = new GenerateCoverage(kompileOptions.coverage, files);
         DefinitionTransformer genCoverage = DefinitionTransformer.fromRuleBodyTransformerWithRule(cov::gen, "generate coverage instrumentation");
-        DefinitionTransformer numberSentences = DefinitionTransformer.fromSentenceTransformer(new NumberSentences()::number, "number sentences uniquely");
-
-        return def -> excludeModulesByTag(excludedModuleTags, def)
-                .andThen(d -> Kompile.resolveIOStreams(kem, d))
-                .andThen(resolveFun)
-                .andThen(resolveStrict)
-                .andThen(resolveAnonVars)
-                .andThen(d -> new ResolveContexts(kompileOptions).resolve(d))
-                .andThen(numberSentences)
-                .andThen(resolveHeatCoolAttribute)
-                .andThen(resolveSemanticCasts)
-                .andThen(generateSortPredicateSyntax)
-                .andThen(Kompile::resolveFreshConstants)
-                .andThen(AddImplicitComputationCell::transformDefinition)
-                .andThen(new Strategy(kompileOptions.experimental.heatCoolStrategies).addStrategyCellToRulesTransformer())
-                .andThen(ConcretizeCells::transformDefinition)
-                .andThen(genCoverage)
-                .andThen(d -> { cov.close(); return d; })
-                .andThen(subsortKItem)
-                .andThen(Kompile::addSemanticsModule)
-                .apply(def);
+        DefinitionTransformer numberSentences = withCache(DefinitionTransformer.fromSentenceTransformer(new NumberSentences()::number, "number sentences uniquely").inParallel(), cache);
+
+        return def -> {
+            Stopwatch sw = new Stopwatch(kompileOptions.global);
+            return timed(sw, "Remove excluded modules", excludeModulesByTag(excludedModuleTags, def).inParallel())
+                    .andThen(timed(sw, "Resolve IO streams", d -> Kompile.resolveIOStreams(kem, d)))
+                    .andThen(timed(sw, "Resolve #fun", resolveFun))
+                    .andThen(timed(sw, "Resolve strictness", resolveStrict))
+                    .andThen(timed(sw, "Resolve anonymous variables", resolveAnonVars))
+                    .andThen(timed(sw, "Resolve contexts", d -> new ResolveContexts(kompileOptions).resolve(d)))
+                    .andThen(timed(sw, "Number sentences", numberSentences))
+                    .andThen(timed(sw, "Resolve heat and cool attributes", resolveHeatCoolAttribute))
+                    .andThen(timed(sw, "Resolve semantic casts", resolveSemanticCasts))
+                    .andThen(timed(sw, "Generate sort predicate syntax", generateSortPredicateSyntax))
+                    .andThen(timed(sw, "Resolve fresh constants", Kompile::resolveFreshConstants))
+                    .andThen(timed(sw, "Add implicit computation cell", AddImplicitComputationCell::transformDefinition))
+                    .andThen(timed(sw, "Add strategy cell", new Strategy(kompileOptions.experimental.heatCoolStrategies).addStrategyCellToRulesTransformer()))
+                    .andThen(timed(sw, "Concretize cells", ConcretizeCells::transformDefinition))
+                    .andThen(timed(sw, "Generate coverage instrumentation", genCoverage))
+                    .andThen(d -> { cov.close(); return d; })
+                    .andThen(timed(sw, "Subsort sorts to KItem", subsortKItem))
+                    .andThen(timed(sw, "Add semantics module", Kompile::addSemanticsModule))
+                    .apply(def);
+        };
+    }
+
+    public static DefinitionTransformer withCache(DefinitionTransformer transformer, ModuleCache cache) {
+        return cache == null ? transformer : transformer.withCache(cache);
+    }
+
+    private static scala.Function1<Definition, Definition> timed(Stopwatch sw, String pass, scala.Function1<Definition, Definition> step) {
+        return d -> {
+            Definition result = step.apply(d);
+            sw.printIntermediate("  " + pass);
+            return result;
+        };
     }
 
     public static Module subsortKItem(Module module) {
@@ -119,5 +119,9 @@ public class KompileOptions implements Serializable {
 
         @Parameter(names="--kore-prove", description="Compile with the KORE pipeline for proving.")
         public boolean koreProve = false;
+
+        @Parameter(names="--incremental", description="Reuse the modules compiled by the previous compilation of the definition " +
+                "when neither they nor their imports changed.")
+        public boolean incremental = false;
     }
 }
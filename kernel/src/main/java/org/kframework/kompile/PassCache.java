@@ -0,0 +1,202 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.kompile;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.kframework.attributes.Att;
+import org.kframework.definition.Context;
+import org.kframework.definition.Module;
+import org.kframework.definition.ModuleCache;
+import org.kframework.definition.Production;
+import org.kframework.definition.Rule;
+import org.kframework.definition.Sentence;
+import org.kframework.kore.K;
+import org.kframework.kore.VisitK;
+import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.errorsystem.KException;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import scala.Function1;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.kframework.Collections.*;
+
+/**
+ * The modules produced by the module passes of the previous compilation of a definition, for incremental compilation.
+ * <p>
+ * Modules are looked up by pass and by fingerprint. The fingerprint of a module is a digest of its name, its
+ * attributes, its local sentences, including the attributes of the sentences and of their subterms, and the
+ * fingerprints of its imports; it changes whenever the module or one of its transitive imports does. The whole
+ * cache is discarded when the options it was created with differ from the current ones. Only the modules used
+ * by the current compilation are saved back.
+ * <p>
+ * The warnings registered by a pass are saved along with its output, and registered again when it is reused.
+ */
+public class PassCache implements ModuleCache, Serializable {
+
+    private final String options;
+    private final transient PassCache previous;
+    private final Map<String, Module> current = new ConcurrentHashMap<>();
+    private final Map<String, List<KException>> currentWarnings = new ConcurrentHashMap<>();
+    private final transient Map<Module, String> fingerprints = new IdentityHashMap<>();
+    private final transient AtomicInteger hits = new AtomicInteger();
+    private final transient KExceptionManager kem;
+
+    private PassCache(String options, PassCache previous, KExceptionManager kem) {
+        this.options = options;
+        this.previous = previous;
+        this.kem = kem;
+    }
+
+    /**
+     * Loads the cache of the previous compilation from the given file, or returns an empty cache if there is none
+     * or if it was created with different options.
+     */
+    public static PassCache load(BinaryLoader loader, File file, KompileOptions kompileOptions, Set<String> excludedModuleTags, KExceptionManager kem) {
+        String options = relevantOptions(kompileOptions, excludedModuleTags);
+        PassCache cache = null;
+        try {
+            cache = loader.load(PassCache.class, file);
+        } catch (FileNotFoundException e) {
+        } catch (IOException | ClassNotFoundException e) {
+            kem.registerInternalHiddenWarning("Invalidating serialized pass cache due to corruption.", e);
+        }
+        return new PassCache(options, cache != null && cache.options.equals(options) ? cache : null, kem);
+    }
+
+    public void save(BinaryLoader loader, File file) {
+        loader.saveOrDie(file, this);
+    }
+
+    /**
+     * The options which change the result of the compilation of a module.
+     */
+    private static String relevantOptions(KompileOptions options, Set<String> excludedModuleTags) {
+        return String.join("\n", options.backend, options.transition.toString(), String.valueOf(options.strict()),
+                String.valueOf(options.coverage), String.valueOf(options.outerParsing.noPrelude),
+                String.valueOf(options.experimental.addTopCell), String.valueOf(options.experimental.heatCoolStrategies),
+                options.experimental.kCells.toString(), excludedModuleTags.toString());
+    }
+
+    /**
+     * The number of applications of a pass to a module found in the cache so far.
+     */
+    public int hits() {
+        return hits.get();
+    }
+
+    @Override
+    public Module apply(String pass, Module input, Function1<Module, Module> f) {
+        String key = pass + "\n" + fingerprint(input);
+        Module output = previous == null ? null : previous.current.get(key);
+        List<KException> warnings;
+        if (output != null) {
+            hits.incrementAndGet();
+            warnings = previous.currentWarnings.getOrDefault(key, Collections.emptyList());
+            kem.addAllKException(warnings);
+        } else {
+            warnings = new ArrayList<>();
+            output = kem.recording(() -> f.apply(input), warnings);
+        }
+        current.put(key, output);
+        currentWarnings.put(key, warnings);
+        return output;
+    }
+
+    private String fingerprint(Module module) {
+        synchronized (fingerprints) {
+            String fingerprint = fingerprints.get(module);
+            if (fingerprint != null) {
+                return fingerprint;
+            }
+        }
+        List<String> contents = new ArrayList<>();
+        for (Module imported : iterable(module.imports())) {
+            contents.add("imports " + fingerprint(imported));
+        }
+        for (Sentence s : iterable(module.localSentences())) {
+            contents.add(fingerprint(s));
+        }
+        Collections.sort(contents);
+        MessageDigest digest = sha256();
+        digest.update((module.name() + attributes(module.att())).getBytes(StandardCharsets.UTF_8));
+        for (String s : contents) {
+            digest.update((byte) '\n');
+            digest.update(s.getBytes(StandardCharsets.UTF_8));
+        }
+        String fingerprint = Hex.toHexString(digest.digest());
+        synchronized (fingerprints) {
+            fingerprints.put(module, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Returns a string which changes whenever the sentence does; the string representation of sentences
+     * omits the attributes of their subterms and the labels of productions.
+     */
+    private static String fingerprint(Sentence s) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(s.getClass().getSimpleName()).append(' ').append(s).append(attributes(s.att()));
+        if (s instanceof Production) {
+            sb.append(' ').append(((Production) s).klabel());
+        } else if (s instanceof Rule) {
+            Rule r = (Rule) s;
+            appendAttributes(sb, r.body());
+            appendAttributes(sb, r.requires());
+            appendAttributes(sb, r.ensures());
+        } else if (s instanceof Context) {
+            Context c = (Context) s;
+            appendAttributes(sb, c.body());
+            appendAttributes(sb, c.requires());
+        }
+        return sb.toString();
+    }
+
+    private static void appendAttributes(StringBuilder sb, K term) {
+        new VisitK() {
+            @Override
+            public void apply(K k) {
+                sb.append(attributes(k.att())).append(';');
+                super.apply(k);
+            }
+        }.apply(term);
+    }
+
+    /**
+     * Returns the attributes in sorted order. {@link Att#postfixString} is not used since attributes are keyed on
+     * their class too, whose identity hash code makes the order of the attribute map vary between runs.
+     */
+    private static String attributes(Att att) {
+        List<String> attributes = new ArrayList<>();
+        for (Map.Entry<Tuple2<String, Class<?>>, Object> e : mutable(att.att()).entrySet()) {
+            if (!e.getKey()._1().equals("productionId")) {
+                attributes.add(e.getKey()._1() + ":" + e.getKey()._2().getName() + "(" + e.getValue() + ")");
+            }
+        }
+        Collections.sort(attributes);
+        return String.join(" ", attributes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -67,6 +67,8 @@ public class KProve {
             Debugg.log(Debugg.LogEvent.CRASH);
             Debugg.close();
             throw e;
+        } finally {
+            rewriter.close();
         }
         int exit;
         if (results instanceof KApply) {
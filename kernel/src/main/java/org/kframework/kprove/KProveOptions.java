@@ -57,9 +57,25 @@ public class KProveOptions {
     @Parameter(names={"--debugg-id"}, description="Id of the current proof")
     public String debuggId;
 
+    @Parameter(names={"--debugg-archive"}, description="Store the debugg nodes in a single gzip-compressed file instead of a file per node")
+    public boolean debuggArchive = false;
+
+    @Parameter(names={"--debugg-queue-size"}, description="Number of debugg events waiting to be written before the prover blocks")
+    public int debuggQueueSize = 4096;
+
     @Parameter(names={"--spec-module", "-sm"}, description="Name of module containing specification to prove")
     public String specModule;
 
     @Parameter(names={"--def-module", "-m"}, description="Name of module containing definition to prove under")
     public String defModule;
+
+    @Parameter(names="--prove-threads", description="Number of threads used to prove independent specification rules in parallel. " +
+            "Each claim is proved with its own rewriter and ranges of fresh constants and variable names, so the results do not depend on the number of threads. " +
+            "Ignored with --debugg.")
+    public int proveThreads = 1;
+
+    @Parameter(names="--frontier-threads", description="Number of threads used to expand the nodes of a proof frontier in parallel. " +
+            "Each node is expanded with its own range of fresh constants and variable names, so the results do not depend on the schedule. " +
+            "Ignored with --debugg.")
+    public int frontierThreads = 1;
 }
@@ -39,6 +39,8 @@ import scala.Tuple2;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -47,6 +49,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -97,7 +103,17 @@ public class KRun {
         InitialConfiguration config = new InitialConfiguration(program);
         program = null;
 
-        Tuple2<K, Integer> result = executionMode.execute(config, rewriterGenerator, compiledDef);
+        List<Rewriter> rewriters = new ArrayList<>();
+        Tuple2<K, Integer> result;
+        try {
+            result = executionMode.execute(config, module -> {
+                Rewriter rewriter = rewriterGenerator.apply(module);
+                rewriters.add(rewriter);
+                return rewriter;
+            }, compiledDef);
+        } finally {
+            rewriters.forEach(Rewriter::close);
+        }
 
 
         if (result != null) {
@@ -107,6 +123,147 @@ public class KRun {
         return 0;
     }
 
+    /**
+     * Runs every program of the manifest given by --batch, on a pool of --batch-threads threads sharing one
+     * rewriter. The result of each run is written to its own output file, and its exit code is printed as soon as
+     * it ends; a run failing with an error gets the exit code 113 and the error message as its output. The runs
+     * do not use real IO, since they share the standard input and output.
+     * <p>
+     * Each run gets its own term context and rewriting engine from the rewriter. What the runs share, the rules of
+     * the definition, the caches of the rewriting context and the state memoized on shared terms, is safe to use
+     * from several threads, as it is when claims are proved in parallel.
+     *
+     * @return 0 if every run exited with 0, and 1 otherwise.
+     */
+    public int runBatch(CompiledDefinition compiledDef, KRunOptions options, Function<Module, Rewriter> rewriterGenerator, ExecutionMode executionMode) {
+        if (options.configurationCreation.pgm() != null || options.configurationCreation.term()) {
+            throw KEMException.criticalError("Cannot specify both --batch and a program or term to run.");
+        }
+        if (options.experimental.debugger() || options.experimental.ltlmc()) {
+            throw KEMException.criticalError("Cannot specify --batch with --debugger or --ltlmc.");
+        }
+        List<BatchRun> runs = readManifest(options, compiledDef);
+        Map<KToken, K> ioConfigVars = ioConfigVars(options);
+        Rewriter rewriter = rewriterGenerator.apply(compiledDef.executionModule());
+        ExecutorService pool = Executors.newFixedThreadPool(options.experimental.batchThreads);
+        try {
+            List<Future<Integer>> exitCodes = new ArrayList<>();
+            for (BatchRun run : runs) {
+                exitCodes.add(pool.submit(() -> runBatchEntry(run, ioConfigVars, options, compiledDef, rewriter, executionMode)));
+            }
+            int exitCode = 0;
+            for (Future<Integer> runExitCode : exitCodes) {
+                if (runExitCode.get() != 0) {
+                    exitCode = 1;
+                }
+            }
+            return exitCode;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw KEMException.criticalError("Interrupted while running " + options.experimental.batch, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw KEMException.criticalError("Failed to run " + options.experimental.batch, e.getCause());
+        } finally {
+            pool.shutdownNow();
+            rewriter.close();
+        }
+    }
+
+    /**
+     * A line of the manifest of --batch: the file the result of the run is written to, and the values of its
+     * configuration variables with the commands parsing them.
+     */
+    private static class BatchRun {
+        final String output;
+        final Map<String, Pair<String, String>> configVars;
+
+        BatchRun(String output, Map<String, Pair<String, String>> configVars) {
+            this.output = output;
+            this.configVars = configVars;
+        }
+    }
+
+    private List<BatchRun> readManifest(KRunOptions options, CompiledDefinition compiledDef) {
+        String mainModuleName = compiledDef.getParsedDefinition().mainModule().name();
+        // the configuration variables given with -c are shared by all the runs
+        Map<String, Pair<String, String>> commonConfigVars = options.configurationCreation.configVars(mainModuleName, files);
+        String[] lines = FileUtil.read(files.readFromWorkingDirectory(options.experimental.batch)).split("\\r?\\n");
+        List<BatchRun> runs = new ArrayList<>();
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length < 2) {
+                throw KEMException.criticalError("Line " + (i + 1) + " of " + options.experimental.batch
+                        + " should start with an output file and a program file or -.");
+            }
+            Map<String, Pair<String, String>> configVars = new HashMap<>();
+            if (!fields[1].equals("-")) {
+                configVars.put("PGM", Pair.of(fields[1], options.configurationCreation.parser(mainModuleName, files)));
+            }
+            for (int j = 2; j < fields.length; j++) {
+                int eq = fields[j].indexOf('=');
+                if (eq <= 0) {
+                    throw KEMException.criticalError("Expected NAME=VALUE in line " + (i + 1) + " of "
+                            + options.experimental.batch + ", found " + fields[j] + ".");
+                }
+                String name = fields[j].substring(0, eq);
+                if (name.equals("STDIN") || name.equals("IO")) {
+                    throw KEMException.criticalError("Cannot specify STDIN or IO which are reserved for the builtin K-IO module.");
+                }
+                if (configVars.put(name, Pair.of(fields[j].substring(eq + 1),
+                        options.configurationCreation.configVarParser(name, mainModuleName, files))) != null) {
+                    throw KEMException.criticalError("Configuration variable " + name + " is specified twice in line "
+                            + (i + 1) + " of " + options.experimental.batch + ".");
+                }
+            }
+            for (Map.Entry<String, Pair<String, String>> entry : commonConfigVars.entrySet()) {
+                configVars.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            runs.add(new BatchRun(fields[0], configVars));
+        }
+        return runs;
+    }
+
+    private int runBatchEntry(BatchRun run, Map<KToken, K> ioConfigVars, KRunOptions options, CompiledDefinition compiledDef,
+                              Rewriter rewriter, ExecutionMode executionMode) {
+        byte[] output;
+        int exitCode;
+        try {
+            InitialConfiguration config = new InitialConfiguration(parseConfigVars(run.configVars, ioConfigVars, options, compiledDef));
+            Tuple2<K, Integer> result = executionMode.execute(config, m -> rewriter, compiledDef);
+            if (result != null) {
+                output = KPrint.prettyPrint(compiledDef.languageParsingModule(), result._1());
+                exitCode = result._2();
+            } else {
+                output = new byte[0];
+                exitCode = 0;
+            }
+        } catch (KEMException e) {
+            output = (e.getMessage() + "\n").getBytes();
+            exitCode = 113;
+        } catch (RuntimeException e) {
+            // an unexpected exception only fails its own run, rather than cancelling the runs of the other threads
+            StringWriter stackTrace = new StringWriter();
+            e.printStackTrace(new PrintWriter(stackTrace));
+            output = stackTrace.toString().getBytes();
+            exitCode = 113;
+        }
+        files.saveToWorkingDirectory(run.output, output);
+        synchronized (System.out) {
+            System.out.println(exitCode + "\t" + run.output);
+        }
+        return exitCode;
+    }
+
     /**
      * Function to return the exit code specified by the user given a substitution
      *
@@ -165,9 +322,13 @@ public class KRun {
     }
 
     private K parseConfigVars(KRunOptions options, CompiledDefinition compiledDef) {
+        return parseConfigVars(options.configurationCreation.configVars(compiledDef.getParsedDefinition().mainModule().name(), files),
+                ioConfigVars(options), options, compiledDef);
+    }
+
+    private K parseConfigVars(Map<String, Pair<String, String>> configVars, Map<KToken, K> ioConfigVars, KRunOptions options, CompiledDefinition compiledDef) {
         HashMap<KToken, K> output = new HashMap<>();
-        for (Map.Entry<String, Pair<String, String>> entry
-                : options.configurationCreation.configVars(compiledDef.getParsedDefinition().mainModule().name(), files).entrySet()) {
+        for (Map.Entry<String, Pair<String, String>> entry : configVars.entrySet()) {
             String name = entry.getKey();
             String value = entry.getValue().getLeft();
             String parser = entry.getValue().getRight();
@@ -176,6 +337,16 @@ public class KRun {
             K configVar = externalParse(parser, value, sort, Source.apply("<command line: -c" + name + ">"), compiledDef);
             output.put(KToken(configVarName, Sorts.KConfigVar()), configVar);
         }
+        output.putAll(ioConfigVars);
+        if (options.global.debug) {
+            // on the critical path, so don't perform this check because it's slow unless we're debugging.
+            checkConfigVars(output.keySet(), compiledDef);
+        }
+        return plugConfigVars(compiledDef, output);
+    }
+
+    private Map<KToken, K> ioConfigVars(KRunOptions options) {
+        Map<KToken, K> output = new HashMap<>();
         if (options.io()) {
             output.put(KToken("$STDIN", Sorts.KConfigVar()), KToken("\"\"", Sorts.String()));
             output.put(KToken("$IO", Sorts.KConfigVar()), KToken("\"on\"", Sorts.String()));
@@ -184,11 +355,7 @@ public class KRun {
             output.put(KToken("$STDIN", Sorts.KConfigVar()), KToken("\"" + stdin + "\"", Sorts.String()));
             output.put(KToken("$IO", Sorts.KConfigVar()), KToken("\"off\"", Sorts.String()));
         }
-        if (options.global.debug) {
-            // on the critical path, so don't perform this check because it's slow unless we're debugging.
-            checkConfigVars(output.keySet(), compiledDef);
-        }
-        return plugConfigVars(compiledDef, output);
+        return output;
     }
 
     private void checkConfigVars(Set<KToken> inputConfigVars, CompiledDefinition compiledDef) {
@@ -237,6 +404,10 @@ public class KRun {
 
     public K externalParse(String parser, String value, Sort startSymbol, Source source, CompiledDefinition compiledDef) {
         List<String> tokens = new ArrayList<>(Arrays.asList(parser.split(" ")));
+        K parsed = parseWithKast(tokens, value, startSymbol, compiledDef);
+        if (parsed != null) {
+            return parsed;
+        }
         tokens.add(value);
         Map<String, String> environment = new HashMap<>();
         environment.put("KRUN_SORT", startSymbol.toString());
@@ -255,4 +426,49 @@ public class KRun {
             return KoreParser.parse(new String(kast), source);
         }
     }
+
+    /**
+     * Parses the value in this process as the given parser command would if it runs the kast of this distribution,
+     * with at most the options -m and -e, reusing the parsers of the definition.
+     *
+     * @return the parsed value, or null if the parser command is not such a kast command.
+     */
+    private K parseWithKast(List<String> tokens, String value, Sort startSymbol, CompiledDefinition compiledDef) {
+        if (!tokens.get(0).equals(KRunOptions.getKast(files))) {
+            return null;
+        }
+        String module = compiledDef.mainSyntaxModuleName();
+        boolean expression = false;
+        for (int i = 1; i < tokens.size(); i++) {
+            switch (tokens.get(i)) {
+            case "-m":
+            case "--module":
+                if (++i == tokens.size()) {
+                    return null;
+                }
+                module = tokens.get(i);
+                break;
+            case "-e":
+            case "--expression":
+                // the value is the argument of -e
+                if (i != tokens.size() - 1) {
+                    return null;
+                }
+                expression = true;
+                break;
+            default:
+                return null;
+            }
+        }
+        String input;
+        Source source;
+        if (expression) {
+            input = value;
+            source = Source.apply("<command line: -e>");
+        } else {
+            input = FileUtil.read(files.readFromWorkingDirectory(value));
+            source = Source.apply(files.resolveWorkingDirectory(value).getAbsolutePath());
+        }
+        return compiledDef.getProgramParser(module, startSymbol, kem).apply(input, source);
+    }
 }
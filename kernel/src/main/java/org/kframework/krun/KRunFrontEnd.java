@@ -83,6 +83,12 @@ public class KRunFrontEnd extends FrontEnd {
         scope.enter(kompiledDir.get());
         KPrint kprint = new KPrint(kem, files, tty, krunOptions.print);
         try {
+            if (krunOptions.experimental.batch != null) {
+                return new KRun(kem, kprint, files, tty).runBatch(compiledDef.get(),
+                        krunOptions,
+                        initializeRewriter.get(),
+                        executionMode.get());
+            }
             for (int i = 0; i < krunOptions.experimental.profile - 1; i++) {
                 new KRun(kem, kprint, files, tty).run(compiledDef.get(),
                         krunOptions,
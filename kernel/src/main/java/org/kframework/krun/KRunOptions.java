@@ -85,15 +85,20 @@ public final class KRunOptions {
         @DynamicParameter(names={"--config-var", "-c"}, description="Specify values for variables in the configuration.")
         private Map<String, String> configVars = new HashMap<>();
 
+        /**
+         * Returns the command used to parse the value of the configuration variable with the given name.
+         */
+        public String configVarParser(String name, String mainModuleName, FileUtil files) {
+            if (configVarParsers.get(name) != null) {
+                return configVarParsers.get(name);
+            }
+            return getKast(files) + " -m " + mainModuleName + " -e";
+        }
+
         public Map<String, Pair<String, String>> configVars(String mainModuleName, FileUtil files) {
-            String kastBinary = getKast(files);
             Map<String, Pair<String, String>> result = new HashMap<>();
             for (Map.Entry<String, String> entry : configVars.entrySet()) {
-                String cfgParser = kastBinary + " -m " + mainModuleName + " -e";
-                if (configVarParsers.get(entry.getKey()) != null) {
-                    cfgParser = configVarParsers.get(entry.getKey());
-                }
-                result.put(entry.getKey(), Pair.of(entry.getValue(), cfgParser));
+                result.put(entry.getKey(), Pair.of(entry.getValue(), configVarParser(entry.getKey(), mainModuleName, files)));
             }
             if (!term() && pgm() != null) {
                 if (configVars.containsKey("PGM")) {
@@ -121,7 +126,7 @@ public final class KRunOptions {
         }
     }
 
-    private static String getKast(FileUtil files) {
+    static String getKast(FileUtil files) {
         String binary = "kast";
         if (OS.current() == OS.WINDOWS) {
             binary = "kast.bat";
@@ -143,9 +148,13 @@ public final class KRunOptions {
         if (io != null && io == true && experimental.debugger()) {
             throw KEMException.criticalError("You cannot specify both --io on and --debugger");
         }
+        if (io != null && io == true && experimental.batch != null) {
+            throw KEMException.criticalError("You cannot specify both --io on and --batch");
+        }
         if (search()
                 || experimental.ltlmc()
-                || experimental.debugger()) {
+                || experimental.debugger()
+                || experimental.batch != null) {
             return false;
         }
         if (io == null) {
@@ -251,17 +260,49 @@ public final class KRunOptions {
         @ParametersDelegate
         public SMTOptions smt = new SMTOptions();
 
+        @Parameter(names="--frontier-threads", description="Number of threads used to expand the nodes of a search frontier in parallel.")
+        public int frontierThreads = 1;
+
+        @Parameter(names="--hash-cons", description="Share a single instance among structurally equal terms "
+                + "constructed by the Java backend. Reduces memory usage on long runs.")
+        public boolean hashCons = false;
+
+        @Parameter(names="--memo-cache-size", description="Maximum number of results cached for each function "
+                + "annotated with the memo attribute by the Java backend.")
+        public int memoCacheSize = 10000;
+
         @Parameter(names="--trace", description="Print a trace of every rule applied.")
         public boolean trace = false;
 
         @Parameter(names="--coverage-file", description="Record a trace of locations of all rules and terms applied.")
         public File coverage = null;
 
+        @Parameter(names="--coverage-histogram", description="Write the number of times each location was applied "
+                + "to the file given by --coverage-file, instead of the trace of locations.")
+        public boolean coverageHistogram = false;
+
+        @Parameter(names="--metrics-file", description="Write the number of applications of each rule and of evaluations "
+                + "of each function, builtin hook and type of SMT query, with the time spent in them, to the given file "
+                + "when rewriting ends: as JSON if its name ends with .json, and as CSV otherwise. Only supported by the "
+                + "Java backend.")
+        public File metricsFile = null;
+
         @Parameter(names="--native-libraries", description="Flags to pass to linker. Useful in defining rewriter plugins.",
                 listConverter=StringListConverter.class)
         public List<String> nativeLibraries = Collections.emptyList();
 
         @Parameter(names="--profile", description="Run krun multiple times to gather better performance metrics.")
         public int profile = 1;
+
+        @Parameter(names="--batch", description="Run every program listed in the given manifest against the definition, "
+                + "which is loaded once. Each line of the manifest is an output file, a program file or -, and any number "
+                + "of NAME=VALUE configuration variables, separated by whitespace; lines starting with # are ignored. "
+                + "Configuration variables given with -c apply to every program. "
+                + "The result of each run is written to its output file, and its exit code is printed with the name of "
+                + "that file as soon as the run ends.")
+        public String batch;
+
+        @Parameter(names="--batch-threads", description="Number of programs of --batch run in parallel.")
+        public int batchThreads = Runtime.getRuntime().availableProcessors();
     }
 }
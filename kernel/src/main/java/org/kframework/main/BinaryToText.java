@@ -10,8 +10,6 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 
 /**
  * Created by dwightguth on 3/29/16.
@@ -24,17 +22,13 @@ public class BinaryToText {
     public static void nailMain(NGContext context) throws IOException {
         FileUtil files = new FileUtil(null,null,new File(context.getWorkingDirectory()),null,null,null);
         File f = files.resolveWorkingDirectory(context.getArgs()[0]);
-        FileChannel channel = FileChannel.open(f.toPath());
-        ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
-        K result = BinaryParser.parse(buf);
+        K result = BinaryParser.parse(f);
         ToKast.apply(result, new PrintStream(new FileOutputStream(files.resolveWorkingDirectory(context.getArgs()[1]))));
     }
 
     public static void main(String[] args) throws IOException {
         File f = new File(args[0]);
-        FileChannel channel = FileChannel.open(f.toPath());
-        ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
-        K result = BinaryParser.parse(buf);
+        K result = BinaryParser.parse(f);
         ToKast.apply(result, new PrintStream(new FileOutputStream(new File(args[1]))));
     }
 }
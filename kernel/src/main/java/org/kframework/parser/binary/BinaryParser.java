@@ -12,8 +12,12 @@ import org.kframework.kore.mini.KVariable;
 import org.kframework.parser.outer.Outer;
 import org.kframework.utils.errorsystem.KEMException;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -60,6 +64,9 @@ import java.util.Map;
  * simply by concatenating the terms together after stripping their MAGIC prefix and suffix. This will not be as
  * space-compact as if the term was outputted all at once, but can be done in constant time without requiring the terms
  * to be modified internally, and will still deserialze correctly.
+ *
+ * Terms are read directly from a {@link ByteBuffer}; use {@link #parse(File)} to read a term from a memory-mapped
+ * file without copying it into the heap first.
  */
 public class BinaryParser {
 
@@ -163,11 +170,10 @@ public class BinaryParser {
         int idx = data.getInt();
         if (idx == 0) {
             int len = data.getInt();
-            char[] buf = new char[len];
-            for (int i = 0; i < len; i++) {
-                buf[i] = data.getChar();
-            }
-            String s = new String(buf);
+            CharBuffer chars = data.asCharBuffer();
+            chars.limit(len);
+            String s = chars.toString();
+            data.position(data.position() + len * 2);
             interns.add(s);
             return s;
         } else {
@@ -183,6 +189,17 @@ public class BinaryParser {
         return parse(ByteBuffer.wrap(in));
     }
 
+    public static K parse(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw KEMException.criticalError("KAST binary file " + file + " is larger than 2GB.");
+            }
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not read K term from " + file, e);
+        }
+    }
+
     public static K parse(ByteBuffer data) {
         try {
             byte[] magic = new byte[5];
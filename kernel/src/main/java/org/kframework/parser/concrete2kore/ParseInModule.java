@@ -57,6 +57,7 @@ public class ParseInModule implements Serializable {
      */
     private final Module parsingModule;
     private volatile Grammar grammar = null;
+    private volatile Scanner scanner = null;
     private final boolean strict;
     public ParseInModule(Module seedModule) {
         this(seedModule, seedModule, seedModule, seedModule, true);
@@ -114,7 +115,12 @@ public class ParseInModule implements Serializable {
     }
 
     public Scanner getScanner() {
-        return new Scanner(this);
+        Scanner s = scanner;
+        if (s == null) {
+            s = new Scanner(this);
+            scanner = s;
+        }
+        return s;
     }
 
     public Tuple2<Either<Set<ParseFailedException>, K>, Set<ParseFailedException>>
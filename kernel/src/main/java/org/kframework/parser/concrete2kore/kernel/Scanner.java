@@ -1,10 +1,6 @@
 // Copyright (c) 2016-2018 K Team. All Rights Reserved.
 package org.kframework.parser.concrete2kore.kernel;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ListMultimap;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.kframework.attributes.Location;
 import org.kframework.attributes.Source;
 import org.kframework.builtin.Sorts;
@@ -13,38 +9,37 @@ import org.kframework.definition.RegexTerminal;
 import org.kframework.definition.Terminal;
 import org.kframework.definition.TerminalLike;
 import org.kframework.parser.concrete2kore.ParseInModule;
-import org.kframework.utils.StringUtil;
-import org.kframework.utils.OS;
-import org.kframework.utils.errorsystem.KEMException;
 import org.kframework.utils.errorsystem.KException;
 import org.kframework.utils.errorsystem.ParseFailedException;
 import scala.Tuple2;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.*;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * Created by dwightguth on 7/21/16.
+ *
+ * Splits the input of the parser into tokens. The terminals and regular expressions of the parsing module
+ * are compiled into a {@link TokenAutomaton} once, and the input is scanned in process, taking the
+ * longest match at each position and breaking ties like flex would for the equivalent rules:
+ * layout first, then terminals, then regular expressions by decreasing precedence.
  */
-public class Scanner implements AutoCloseable {
+public class Scanner implements AutoCloseable, Serializable {
+
+    private static final int LAYOUT = -2;
 
     private final Map<TerminalLike, Tuple2<Integer, Integer>> tokens;
-    private final File scanner;
+    private final TokenAutomaton automaton;
     private final Module module;
 
-    private static final String FLEX_LIB = OS.current().equals(OS.OSX) ? "-ll" : "-lfl";
-
     public Scanner(ParseInModule module) {
         this.tokens  = KSyntax2GrammarStatesFilter.getTokens(module.getParsingModule());
         this.module  = module.seedModule();
-        this.scanner = getScanner();
+        this.automaton = getAutomaton();
     }
 
     public Module getModule() {
@@ -56,101 +51,22 @@ public class Scanner implements AutoCloseable {
         return tokens.entrySet().stream().filter(e -> e.getValue()._1() == kind).findAny().get().getKey();
     }
 
-    public File getScanner() {
-        File scanner;
-        // tokenization
-        try {
-            File scannerSource = File.createTempFile("tmp-kompile-", ".l");
-            scannerSource.deleteOnExit();
-            StringBuilder flex = new StringBuilder();
-            flex.append("%{\n" +
-                    "#include<stdio.h>\n" +
-                    "#include<stddef.h>\n" +
-                    "#define ECHO do " +
-                    " {" +
-                    "   long long start_pos = yytext - buffer;" +
-                    "   long long end_pos = start_pos + yyleng;" +
-                    "   fwrite(&start_pos, sizeof(start_pos), 1, stdout);" +
-                    "   fwrite(&end_pos, sizeof(end_pos), 1, stdout);" +
-                    "   int kind = -1;" +
-                    "   fwrite(&kind, sizeof(kind), 1, stdout);" +
-                    "   int len = strlen(yytext);" +
-                    "   fwrite(&len, sizeof(len), 1, stdout);" +
-                    "   fwrite(yytext, 1, len, stdout);" +
-                    " } while (0) \n" +
-                    "char *buffer;\n" +
-                    "%}\n\n" +
-                    "%%\n\n");
-            if (this.module.definedSorts().contains(Sorts.Layout())) {
-                flex.append(this.module.layout() + " ;\n");
-            }
-            List<TerminalLike> ordered = tokens.keySet().stream().sorted((t1, t2) -> tokens.get(t2)._2() - tokens.get(t1)._2()).collect(Collectors.toList());
-            for (TerminalLike key : ordered) {
-                if (key instanceof Terminal) {
-                    Terminal t = (Terminal) key;
-                    flex.append(StringUtil.enquoteCString(t.value()));
-                } else {
-                    RegexTerminal t = (RegexTerminal) key;
-                    flex.append(t.regex());
-                }
-                writeAction(flex, key);
-            }
-            flex.append("\n\n%%\n\n" +
-                    "int main(int argc, char **argv) {\n" +
-                    "  freopen(NULL, \"rb\", stdin);\n" +
-                    "  freopen(NULL, \"wb\", stdout);\n" +
-                    "  while(1) {\n" +
-                    "    int length;\n" +
-                    "    size_t nread = fread(&length, sizeof(length), 1, stdin);\n" +
-                    "    if (nread < 1) exit(0);\n" +
-                    "    buffer = malloc(length + 2);\n" +
-                    "    buffer[length] = 0;\n" +
-                    "    buffer[length+1] = 0;\n" +
-                    "    fread(buffer, length, 1, stdin);\n" +
-                    "    YY_BUFFER_STATE bs = yy_scan_buffer(buffer, length + 2);\n" +
-                    "    yy_switch_to_buffer(bs);\n" +
-                    "    yylex();\n" +
-                    "    long long exit = -1;\n" +
-                    "    fwrite(&exit, sizeof(exit), 1, stdout);\n" +
-                    "    fwrite(&exit, sizeof(exit), 1, stdout);\n" +
-                    "    fwrite(&exit, sizeof(exit), 1, stdout);\n" +
-                    "    fflush(stdout);\n" +
-                    "  }\n" +
-                    "}");
-            FileUtils.write(scannerSource, flex);
-            File scannerCSource = File.createTempFile("tmp-kompile-", ".c");
-            scannerCSource.deleteOnExit();
-            ProcessBuilder pb = new ProcessBuilder("flex", "--nowarn", "-Ca", "-o", scannerCSource.getAbsolutePath(), scannerSource.getAbsolutePath()).inheritIO();
-            int exit = pb.start().waitFor();
-            if (exit != 0) {
-                throw KEMException.internalError("Flex returned nonzero exit code. See output for details.");
-            }
-            scanner = File.createTempFile("tmp-kompile-", "");
-            scanner.deleteOnExit();
-            pb = new ProcessBuilder("gcc", scannerCSource.getAbsolutePath(), "-o", scanner.getAbsolutePath(), FLEX_LIB);
-            exit = pb.start().waitFor();
-            scanner.setExecutable(true);
-            if (exit != 0) {
-                throw KEMException.internalError("gcc returned nonzero exit code. See output for details.");
+    private TokenAutomaton getAutomaton() {
+        TokenAutomaton.Builder builder = new TokenAutomaton.Builder();
+        if (this.module.definedSorts().contains(Sorts.Layout())) {
+            builder.addRegex(this.module.layout(), LAYOUT);
+        }
+        List<TerminalLike> ordered = tokens.keySet().stream()
+                .sorted(Comparator.<TerminalLike>comparingInt(t -> -tokens.get(t)._2()).thenComparingInt(t -> tokens.get(t)._1()))
+                .collect(Collectors.toList());
+        for (TerminalLike key : ordered) {
+            if (key instanceof Terminal) {
+                builder.addLiteral(((Terminal) key).value(), tokens.get(key)._1());
+            } else {
+                builder.addRegex(((RegexTerminal) key).regex(), tokens.get(key)._1());
             }
-        } catch (IOException | InterruptedException e) {
-            throw KEMException.internalError("Failed to write file for scanner", e);
         }
-        return scanner;
-    }
-
-    private void writeAction(StringBuilder flex, TerminalLike key) {
-        flex.append(" {\n" +
-                "   long long start_pos = yytext - buffer;\n" +
-                "   long long end_pos = start_pos + yyleng;\n" +
-                "   fwrite(&start_pos, sizeof(start_pos), 1, stdout);\n" +
-                "   fwrite(&end_pos, sizeof(end_pos), 1, stdout);\n" +
-                "   int kind = ").append(tokens.get(key)._1()).append(";\n" +
-                "   fwrite(&kind, sizeof(kind), 1, stdout);\n" +
-                "   int len = strlen(yytext);\n" +
-                "   fwrite(&len, sizeof(len), 1, stdout);\n" +
-                "   fwrite(yytext, 1, len, stdout);\n" +
-                " }\n");
+        return builder.build();
     }
 
     private int maxToken = -1;
@@ -191,116 +107,78 @@ public class Scanner implements AutoCloseable {
         }
     }
 
+    /**
+     * The scanner holds no external resources; closing it has no effect.
+     */
     @Override
     public void close() {
-        synchronized(idleProcesses) {
-            for (Process p : idleProcesses.get(this)) {
-                p.destroy();
-                cache.remove(p);
-                activeProcceses--;
-            }
-            idleProcesses.removeAll(this);
-        }
     }
 
-    private static final int N_CPUS = Runtime.getRuntime().availableProcessors();
-    private static final int N_PROCS = 512;
-    private static int activeProcceses = 0;
-    private static final Semaphore runningScanners = new Semaphore(N_PROCS);
-    private static final ListMultimap<Scanner, Process> idleProcesses = ArrayListMultimap.create();
-    private static final Map<Process, Scanner> cache = new LinkedHashMap<Process, Scanner>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<Process, Scanner> entry) {
-            if (activeProcceses > N_PROCS) {
-                entry.getKey().destroy();
-                idleProcesses.get(entry.getValue()).remove(entry.getKey());
-                activeProcceses--;
-                return true;
-            }
-            return false;
-        }
-    };
-
+    /**
+     * Tokenizes the input, skipping layout. The locations of the tokens are offsets in the UTF-8 encoding
+     * of the input, which index {@code lines} and {@code columns}.
+     */
     public Token[] tokenize(String input, Source source, int[] lines, int[] columns) {
-        try {
-            runningScanners.acquire();
-
-            Process process;
-            synchronized (idleProcesses) {
-                if (idleProcesses.get(this).size() > 0) {
-                    List<Process> idleForThisScanner = idleProcesses.get(this);
-                    process = idleForThisScanner.remove(idleForThisScanner.size() - 1);
-                    cache.remove(process);
-                } else {
-                    process = new ProcessBuilder(scanner.getAbsolutePath()).start();
-                    activeProcceses++;
-                    // temporarily add it so that LinkedHashMap evicts the old entry
-                    cache.put(process, this);
-                    cache.remove(process);
-                }
-            }
-
-            byte[] buf = input.getBytes("UTF-8");
-            ByteBuffer size = ByteBuffer.allocate(4);
-            size.order(ByteOrder.nativeOrder());
-            size.putInt(buf.length);
-            process.getOutputStream().write(size.array());
-            process.getOutputStream().write(buf);
-            process.getOutputStream().flush();
-            return readTokenizedOutput(process, source, lines, columns);
-        } catch (IOException | InterruptedException e) {
-            throw KEMException.internalError("Failed to invoke scanner", e);
-        } finally {
-            runningScanners.release();
-        }
-    }
-
-    private Token[] readTokenizedOutput(Process process, Source source, int[] lines, int[] columns) throws IOException {
+        int[] utf8Offsets = utf8Offsets(input);
         List<Token> result = new ArrayList<>();
-        boolean success = false;
-        try {
-            while (true) {
-                byte[] buf = new byte[24];
-                IOUtils.readFully(process.getInputStream(), buf);
-                ByteBuffer byteBuf = ByteBuffer.wrap(buf);
-                byteBuf.order(ByteOrder.nativeOrder());
-                long startLoc = byteBuf.getLong();
-                if (startLoc < 0) {
+        int position = 0;
+        while (position < input.length()) {
+            int state = automaton.start();
+            int kind = TokenAutomaton.NO_TOKEN;
+            int end = -1;
+            for (int i = position; i < input.length(); i++) {
+                state = automaton.step(state, input.charAt(i));
+                if (state == TokenAutomaton.DEAD) {
                     break;
                 }
-                long endLoc = byteBuf.getLong();
-                int kind = byteBuf.getInt();
-                int len = byteBuf.getInt();
-                byte[] bytes = new byte[len];
-                IOUtils.readFully(process.getInputStream(), bytes);
-                String value = new String(bytes, "UTF-8");
-                Token t = new Token(kind, value, startLoc, endLoc);
-                if (kind == -1) {
-                    String msg = "Scanner error: unexpected character sequence '" + value + "'.";
-                    Location loc = new Location(lines[t.startLoc], columns[t.startLoc],
-                            lines[t.endLoc], columns[t.endLoc]);
-                    throw new ParseFailedException(new KException(
-                            KException.ExceptionType.ERROR, KException.KExceptionGroup.INNER_PARSER, msg, source, loc));
+                if (automaton.accept(state) != TokenAutomaton.NO_TOKEN) {
+                    kind = automaton.accept(state);
+                    end = i + 1;
                 }
-                result.add(t);
             }
-            success = true;
-            return result.toArray(new Token[result.size()]);
-        } finally {
-            if (success) {
-                synchronized (idleProcesses) {
-                    cache.put(process, this);
-                    idleProcesses.put(this, process);
-                }
+            if (end < 0) {
+                int errorEnd = input.offsetByCodePoints(position, 1);
+                String msg = "Scanner error: unexpected character sequence '" + input.substring(position, errorEnd) + "'.";
+                Location loc = new Location(lines[utf8Offsets[position]], columns[utf8Offsets[position]],
+                        lines[utf8Offsets[errorEnd]], columns[utf8Offsets[errorEnd]]);
+                throw new ParseFailedException(new KException(
+                        KException.ExceptionType.ERROR, KException.KExceptionGroup.INNER_PARSER, msg, source, loc));
+            }
+            if (kind != LAYOUT) {
+                result.add(new Token(kind, input.substring(position, end), utf8Offsets[position], utf8Offsets[end]));
+            }
+            position = end;
+        }
+        return result.toArray(new Token[result.size()]);
+    }
+
+    /**
+     * Returns, for each index into the input and for its end, the corresponding offset in its UTF-8 encoding.
+     */
+    private static int[] utf8Offsets(String input) {
+        int[] offsets = new int[input.length() + 1];
+        int offset = 0;
+        for (int i = 0; i < input.length(); i++) {
+            offsets[i] = offset;
+            char c = input.charAt(i);
+            if (c < 0x80) {
+                offset += 1;
+            } else if (c < 0x800) {
+                offset += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < input.length() && Character.isLowSurrogate(input.charAt(i + 1))) {
+                // a surrogate pair takes four bytes, split between its two halves
+                offset += 2;
+                offsets[++i] = offset;
+                offset += 2;
+            } else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate is encoded as '?'
+                offset += 1;
             } else {
-                // we aren't returning this process to the pool since something went wrong with it,
-                // so we have to clean up here and then make sure that the pool knows it can allocate a new process.
-                synchronized (idleProcesses) {
-                    process.destroy();
-                    activeProcceses--;
-                }
+                offset += 3;
             }
         }
+        offsets[input.length()] = offset;
+        return offsets;
     }
 
 }
@@ -0,0 +1,645 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.parser.concrete2kore.kernel;
+
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A minimized deterministic automaton recognizing the tokens of a {@link Scanner}.
+ * <p>
+ * Each pattern is either a literal string or a regular expression in the dialect accepted
+ * by flex, and is tagged with a token kind. A state of the automaton accepts with the kind of
+ * the earliest added pattern that matches the input read so far, so that a scanner looking for
+ * the longest match resolves ties the way flex resolves them between rules.
+ * <p>
+ * The input alphabet is partitioned into the classes of characters that no pattern distinguishes;
+ * transitions are stored in a dense table indexed by state and character class.
+ */
+public class TokenAutomaton implements Serializable {
+
+    /**
+     * The value of {@link #accept(int)} for states that accept no pattern.
+     */
+    public static final int NO_TOKEN = Integer.MIN_VALUE;
+
+    /**
+     * The value of {@link #step(int, char)} when no pattern can match any extension of the input.
+     */
+    public static final int DEAD = -1;
+
+    /**
+     * The first character of each character class, in increasing order, starting with 0.
+     */
+    private final char[] classStarts;
+    private final int[] asciiClasses;
+    private final int[] transitions;
+    private final int[] accepting;
+
+    private TokenAutomaton(char[] classStarts, int[] transitions, int[] accepting) {
+        this.classStarts = classStarts;
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.asciiClasses = new int[128];
+        for (char c = 0; c < 128; c++) {
+            asciiClasses[c] = searchClass(c);
+        }
+    }
+
+    public int start() {
+        return 0;
+    }
+
+    /**
+     * Returns the state reached from {@code state} on {@code c}, or {@link #DEAD}.
+     */
+    public int step(int state, char c) {
+        int cls = c < 128 ? asciiClasses[c] : searchClass(c);
+        return transitions[state * classStarts.length + cls];
+    }
+
+    /**
+     * Returns the kind of the token accepted in {@code state}, or {@link #NO_TOKEN}.
+     */
+    public int accept(int state) {
+        return accepting[state];
+    }
+
+    public int stateCount() {
+        return accepting.length;
+    }
+
+    private int searchClass(char c) {
+        int index = Arrays.binarySearch(classStarts, c);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Collects the patterns of a {@link TokenAutomaton} in order of decreasing priority.
+     */
+    public static class Builder {
+        private final Nfa nfa = new Nfa();
+        private final List<Integer> kinds = new ArrayList<>();
+        private final List<Integer> starts = new ArrayList<>();
+
+        public Builder addLiteral(String literal, int kind) {
+            int start = nfa.newState();
+            int end = start;
+            for (int i = 0; i < literal.length(); i++) {
+                int next = nfa.newState();
+                nfa.addRange(end, literal.charAt(i), literal.charAt(i), next);
+                end = next;
+            }
+            return add(start, end, kind);
+        }
+
+        public Builder addRegex(String regex, int kind) {
+            int[] fragment = new RegexParser(regex, nfa).parse();
+            return add(fragment[0], fragment[1], kind);
+        }
+
+        private Builder add(int start, int end, int kind) {
+            nfa.accepting.put(end, kinds.size());
+            starts.add(start);
+            kinds.add(kind);
+            return this;
+        }
+
+        public TokenAutomaton build() {
+            return minimize(determinize());
+        }
+
+        /**
+         * The subset construction, over the character classes induced by the boundaries of all ranges.
+         */
+        private TokenAutomaton determinize() {
+            TreeSet<Integer> boundaries = new TreeSet<>();
+            boundaries.add(0);
+            for (int[] range : nfa.ranges) {
+                boundaries.add(range[0]);
+                if (range[1] < Character.MAX_VALUE) {
+                    boundaries.add(range[1] + 1);
+                }
+            }
+            char[] classStarts = new char[boundaries.size()];
+            int i = 0;
+            for (int boundary : boundaries) {
+                classStarts[i++] = (char) boundary;
+            }
+            int classCount = classStarts.length;
+
+            BitSet initial = new BitSet();
+            starts.forEach(initial::set);
+            nfa.close(initial);
+
+            Map<BitSet, Integer> stateIds = new HashMap<>();
+            List<BitSet> states = new ArrayList<>();
+            stateIds.put(initial, 0);
+            states.add(initial);
+            List<int[]> rows = new ArrayList<>();
+            for (int state = 0; state < states.size(); state++) {
+                BitSet[] moves = new BitSet[classCount];
+                BitSet current = states.get(state);
+                for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s + 1)) {
+                    for (int edge : nfa.rangeEdges.get(s)) {
+                        int[] range = nfa.ranges.get(edge);
+                        int first = Arrays.binarySearch(classStarts, (char) range[0]);
+                        for (int cls = first; cls < classCount && classStarts[cls] <= range[1]; cls++) {
+                            if (moves[cls] == null) {
+                                moves[cls] = new BitSet();
+                            }
+                            moves[cls].set(range[2]);
+                        }
+                    }
+                }
+                int[] row = new int[classCount];
+                for (int cls = 0; cls < classCount; cls++) {
+                    if (moves[cls] == null) {
+                        row[cls] = DEAD;
+                        continue;
+                    }
+                    nfa.close(moves[cls]);
+                    Integer next = stateIds.get(moves[cls]);
+                    if (next == null) {
+                        next = states.size();
+                        stateIds.put(moves[cls], next);
+                        states.add(moves[cls]);
+                    }
+                    row[cls] = next;
+                }
+                rows.add(row);
+            }
+
+            int[] transitions = new int[states.size() * classCount];
+            int[] accepting = new int[states.size()];
+            for (int state = 0; state < states.size(); state++) {
+                System.arraycopy(rows.get(state), 0, transitions, state * classCount, classCount);
+                int priority = Integer.MAX_VALUE;
+                BitSet current = states.get(state);
+                for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s + 1)) {
+                    Integer p = nfa.accepting.get(s);
+                    if (p != null && p < priority) {
+                        priority = p;
+                    }
+                }
+                accepting[state] = priority == Integer.MAX_VALUE ? NO_TOKEN : kinds.get(priority);
+            }
+            return new TokenAutomaton(classStarts, transitions, accepting);
+        }
+    }
+
+    /**
+     * Merges equivalent states by iterated refinement of the partition by accepted token kind,
+     * keeping the initial state first.
+     */
+    private static TokenAutomaton minimize(TokenAutomaton dfa) {
+        int classCount = dfa.classStarts.length;
+        int stateCount = dfa.accepting.length;
+        int[] block = new int[stateCount];
+        Map<Integer, Integer> initialBlocks = new HashMap<>();
+        for (int state = 0; state < stateCount; state++) {
+            block[state] = initialBlocks.computeIfAbsent(dfa.accepting[state], k -> initialBlocks.size());
+        }
+        int blockCount = initialBlocks.size();
+        while (true) {
+            Map<List<Integer>, Integer> signatures = new HashMap<>();
+            int[] refined = new int[stateCount];
+            for (int state = 0; state < stateCount; state++) {
+                List<Integer> signature = new ArrayList<>(classCount + 1);
+                signature.add(block[state]);
+                for (int cls = 0; cls < classCount; cls++) {
+                    int next = dfa.transitions[state * classCount + cls];
+                    signature.add(next == DEAD ? DEAD : block[next]);
+                }
+                refined[state] = signatures.computeIfAbsent(signature, k -> signatures.size());
+            }
+            block = refined;
+            if (signatures.size() == blockCount) {
+                break;
+            }
+            blockCount = signatures.size();
+        }
+
+        int[] transitions = new int[blockCount * classCount];
+        int[] accepting = new int[blockCount];
+        for (int state = 0; state < stateCount; state++) {
+            int b = block[state];
+            accepting[b] = dfa.accepting[state];
+            for (int cls = 0; cls < classCount; cls++) {
+                int next = dfa.transitions[state * classCount + cls];
+                transitions[b * classCount + cls] = next == DEAD ? DEAD : block[next];
+            }
+        }
+        // block numbers are assigned in order of first occurrence, so the initial state is in block 0
+        return new TokenAutomaton(dfa.classStarts, transitions, accepting);
+    }
+
+    /**
+     * A nondeterministic automaton with epsilon transitions and transitions on character ranges.
+     */
+    private static class Nfa {
+        private final List<List<Integer>> epsilonEdges = new ArrayList<>();
+        private final List<List<Integer>> rangeEdges = new ArrayList<>();
+        /**
+         * Each range is {min, max, destination}.
+         */
+        private final List<int[]> ranges = new ArrayList<>();
+        /**
+         * Maps the final state of each pattern to its priority.
+         */
+        private final Map<Integer, Integer> accepting = new HashMap<>();
+
+        int newState() {
+            epsilonEdges.add(new ArrayList<>());
+            rangeEdges.add(new ArrayList<>());
+            return epsilonEdges.size() - 1;
+        }
+
+        void addEpsilon(int from, int to) {
+            epsilonEdges.get(from).add(to);
+        }
+
+        void addRange(int from, char min, char max, int to) {
+            rangeEdges.get(from).add(ranges.size());
+            ranges.add(new int[]{min, max, to});
+        }
+
+        void close(BitSet states) {
+            List<Integer> worklist = new ArrayList<>();
+            states.stream().forEach(worklist::add);
+            while (!worklist.isEmpty()) {
+                int state = worklist.remove(worklist.size() - 1);
+                for (int next : epsilonEdges.get(state)) {
+                    if (!states.get(next)) {
+                        states.set(next);
+                        worklist.add(next);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Translates a flex regular expression into a fragment of an {@link Nfa} by recursive descent.
+     * Supported are alternation, concatenation, grouping, the postfix operators {@code *}, {@code +},
+     * {@code ?}, and {@code {n}}, {@code {n,}}, {@code {n,m}}, character classes (with negation,
+     * ranges, and the POSIX classes), quoted strings, {@code .}, and the C escapes.
+     * Anchors and trailing context are rejected. Matching is over UTF-16 code units.
+     */
+    private static class RegexParser {
+        private final String regex;
+        private final Nfa nfa;
+        private int pos = 0;
+
+        RegexParser(String regex, Nfa nfa) {
+            this.regex = regex;
+            this.nfa = nfa;
+        }
+
+        int[] parse() {
+            int[] fragment = parseAlternation();
+            if (pos < regex.length()) {
+                throw error("unexpected '" + regex.charAt(pos) + "'");
+            }
+            return fragment;
+        }
+
+        private KEMException error(String message) {
+            return KEMException.compilerError("Could not compile token regular expression " + regex + ": " + message
+                    + " at position " + pos + ".");
+        }
+
+        private boolean more() {
+            return pos < regex.length();
+        }
+
+        private char peek() {
+            return regex.charAt(pos);
+        }
+
+        private int[] parseAlternation() {
+            int[] fragment = parseConcatenation();
+            if (!more() || peek() != '|') {
+                return fragment;
+            }
+            int start = nfa.newState();
+            int end = nfa.newState();
+            nfa.addEpsilon(start, fragment[0]);
+            nfa.addEpsilon(fragment[1], end);
+            while (more() && peek() == '|') {
+                pos++;
+                fragment = parseConcatenation();
+                nfa.addEpsilon(start, fragment[0]);
+                nfa.addEpsilon(fragment[1], end);
+            }
+            return new int[]{start, end};
+        }
+
+        private int[] parseConcatenation() {
+            int start = nfa.newState();
+            int end = start;
+            while (more() && peek() != '|' && peek() != ')') {
+                int[] fragment = parseRepetition();
+                nfa.addEpsilon(end, fragment[0]);
+                end = fragment[1];
+            }
+            return new int[]{start, end};
+        }
+
+        private int[] parseRepetition() {
+            int atomStart = pos;
+            int[] fragment = parseAtom();
+            while (more()) {
+                char c = peek();
+                if (c == '*' || c == '+' || c == '?') {
+                    pos++;
+                    int start = nfa.newState();
+                    int end = nfa.newState();
+                    nfa.addEpsilon(start, fragment[0]);
+                    nfa.addEpsilon(fragment[1], end);
+                    if (c != '+') {
+                        nfa.addEpsilon(start, end);
+                    }
+                    if (c != '?') {
+                        nfa.addEpsilon(fragment[1], fragment[0]);
+                    }
+                    fragment = new int[]{start, end};
+                } else if (c == '{' && pos + 1 < regex.length() && Character.isDigit(regex.charAt(pos + 1))) {
+                    pos++;
+                    int min = parseNumber();
+                    int max = min;
+                    if (more() && peek() == ',') {
+                        pos++;
+                        max = more() && Character.isDigit(peek()) ? parseNumber() : -1;
+                    }
+                    expect('}');
+                    fragment = repeat(fragment, atomStart, min, max);
+                } else {
+                    break;
+                }
+                atomStart = -1;
+            }
+            return fragment;
+        }
+
+        /**
+         * Builds {@code min} to {@code max} (or unboundedly many, if {@code max} is negative) repetitions
+         * of the atom starting at {@code atomStart}, whose first copy is {@code first}.
+         * Further copies are obtained by parsing the atom again.
+         */
+        private int[] repeat(int[] first, int atomStart, int min, int max) {
+            if (atomStart < 0) {
+                throw error("repetition of a repeated expression is not supported");
+            }
+            if (max >= 0 && max < min) {
+                throw error("invalid repetition bounds");
+            }
+            int copies = max < 0 ? Math.max(min, 1) : max;
+            int resume = pos;
+            int start = nfa.newState();
+            int end = nfa.newState();
+            if (min == 0) {
+                nfa.addEpsilon(start, end);
+            }
+            int current = start;
+            int[] copy = null;
+            for (int i = 1; i <= copies; i++) {
+                if (i == 1) {
+                    copy = first;
+                } else {
+                    pos = atomStart;
+                    copy = parseAtom();
+                }
+                nfa.addEpsilon(current, copy[0]);
+                current = copy[1];
+                if (i >= min) {
+                    nfa.addEpsilon(current, end);
+                }
+            }
+            if (max < 0) {
+                nfa.addEpsilon(copy[1], copy[0]);
+            }
+            pos = resume;
+            return new int[]{start, end};
+        }
+
+        private int parseNumber() {
+            int begin = pos;
+            while (more() && Character.isDigit(peek())) {
+                pos++;
+            }
+            return Integer.parseInt(regex.substring(begin, pos));
+        }
+
+        private void expect(char c) {
+            if (!more() || peek() != c) {
+                throw error("expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private int[] parseAtom() {
+            char c = peek();
+            switch (c) {
+            case '(': {
+                pos++;
+                int[] fragment = parseAlternation();
+                expect(')');
+                return fragment;
+            }
+            case '[':
+                return charClass(parseClass());
+            case '"': {
+                pos++;
+                int start = nfa.newState();
+                int end = start;
+                while (more() && peek() != '"') {
+                    char literal = peek() == '\\' ? parseEscape() : regex.charAt(pos++);
+                    int next = nfa.newState();
+                    nfa.addRange(end, literal, literal, next);
+                    end = next;
+                }
+                expect('"');
+                return new int[]{start, end};
+            }
+            case '.': {
+                pos++;
+                List<char[]> ranges = new ArrayList<>();
+                ranges.add(new char[]{'\n', '\n'});
+                return charClass(complement(ranges));
+            }
+            case '\\': {
+                char literal = parseEscape();
+                List<char[]> ranges = new ArrayList<>();
+                ranges.add(new char[]{literal, literal});
+                return charClass(ranges);
+            }
+            case '^':
+            case '$':
+            case '/':
+                // flex treats these as operators only at the start, at the end, and anywhere, respectively
+                if (c == '/' || c == '^' && pos == 0 || c == '$' && pos == regex.length() - 1) {
+                    throw error("anchors and trailing context are not supported");
+                }
+                pos++;
+                return charClass(Collections.singletonList(new char[]{c, c}));
+            case '*':
+            case '+':
+            case '?':
+                throw error("repetition operator without operand");
+            default: {
+                pos++;
+                List<char[]> ranges = new ArrayList<>();
+                ranges.add(new char[]{c, c});
+                return charClass(ranges);
+            }
+            }
+        }
+
+        private int[] charClass(List<char[]> ranges) {
+            int start = nfa.newState();
+            int end = nfa.newState();
+            for (char[] range : ranges) {
+                nfa.addRange(start, range[0], range[1], end);
+            }
+            return new int[]{start, end};
+        }
+
+        private List<char[]> parseClass() {
+            expect('[');
+            boolean negated = false;
+            if (more() && peek() == '^') {
+                negated = true;
+                pos++;
+            }
+            List<char[]> ranges = new ArrayList<>();
+            boolean first = true;
+            while (more() && (peek() != ']' || first)) {
+                first = false;
+                if (regex.startsWith("[:", pos)) {
+                    int close = regex.indexOf(":]", pos);
+                    if (close < 0) {
+                        throw error("unterminated character class expression");
+                    }
+                    ranges.addAll(posixClass(regex.substring(pos + 2, close)));
+                    pos = close + 2;
+                    continue;
+                }
+                char low = peek() == '\\' ? parseEscape() : regex.charAt(pos++);
+                char high = low;
+                if (more() && peek() == '-' && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    high = peek() == '\\' ? parseEscape() : regex.charAt(pos++);
+                    if (high < low) {
+                        throw error("invalid character range");
+                    }
+                }
+                ranges.add(new char[]{low, high});
+            }
+            expect(']');
+            return negated ? complement(ranges) : ranges;
+        }
+
+        private List<char[]> posixClass(String name) {
+            List<char[]> ranges = new ArrayList<>();
+            switch (name) {
+            case "alnum":
+                ranges.addAll(posixClass("alpha"));
+                ranges.addAll(posixClass("digit"));
+                break;
+            case "alpha":
+                ranges.addAll(posixClass("upper"));
+                ranges.addAll(posixClass("lower"));
+                break;
+            case "upper":
+                ranges.add(new char[]{'A', 'Z'});
+                break;
+            case "lower":
+                ranges.add(new char[]{'a', 'z'});
+                break;
+            case "digit":
+                ranges.add(new char[]{'0', '9'});
+                break;
+            case "xdigit":
+                ranges.add(new char[]{'0', '9'});
+                ranges.add(new char[]{'A', 'F'});
+                ranges.add(new char[]{'a', 'f'});
+                break;
+            case "blank":
+                ranges.add(new char[]{' ', ' '});
+                ranges.add(new char[]{'\t', '\t'});
+                break;
+            case "space":
+                ranges.add(new char[]{'\t', '\r'});
+                ranges.add(new char[]{' ', ' '});
+                break;
+            default:
+                throw error("unsupported character class expression [:" + name + ":]");
+            }
+            return ranges;
+        }
+
+        private static List<char[]> complement(List<char[]> ranges) {
+            ranges.sort((r1, r2) -> r1[0] - r2[0]);
+            List<char[]> result = new ArrayList<>();
+            int next = 0;
+            for (char[] range : ranges) {
+                if (range[0] > next) {
+                    result.add(new char[]{(char) next, (char) (range[0] - 1)});
+                }
+                next = Math.max(next, range[1] + 1);
+            }
+            if (next <= Character.MAX_VALUE) {
+                result.add(new char[]{(char) next, Character.MAX_VALUE});
+            }
+            return result;
+        }
+
+        /**
+         * Parses an escape sequence starting with a backslash and returns the character it denotes.
+         */
+        private char parseEscape() {
+            expect('\\');
+            if (!more()) {
+                throw error("incomplete escape sequence");
+            }
+            char c = regex.charAt(pos++);
+            switch (c) {
+            case 'n': return '\n';
+            case 't': return '\t';
+            case 'r': return '\r';
+            case 'f': return '\f';
+            case 'v': return '\u000B';
+            case 'a': return '\u0007';
+            case 'b': return '\b';
+            case 'x': {
+                int begin = pos;
+                while (more() && pos - begin < 2 && Character.digit(peek(), 16) >= 0) {
+                    pos++;
+                }
+                if (pos == begin) {
+                    throw error("invalid hexadecimal escape");
+                }
+                return (char) Integer.parseInt(regex.substring(begin, pos), 16);
+            }
+            default:
+                if (c >= '0' && c <= '7') {
+                    int begin = pos - 1;
+                    while (more() && pos - begin < 3 && peek() >= '0' && peek() <= '7') {
+                        pos++;
+                    }
+                    return (char) Integer.parseInt(regex.substring(begin, pos), 8);
+                }
+                return c;
+            }
+        }
+    }
+}
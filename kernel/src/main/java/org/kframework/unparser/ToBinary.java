@@ -11,22 +11,30 @@ import org.kframework.kore.KVariable;
 import org.kframework.parser.binary.BinaryParser;
 import org.kframework.utils.errorsystem.KEMException;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.HashMap;
-import java.util.IdentityHashMap;
 import java.util.Map;
 
 /**
  * Writes a KAST term to the KAST binary format. For details of that format, see {@link BinaryParser}.
+ *
+ * Output goes through a buffer of bounded size, so arbitrarily large terms can be streamed to a file or process.
+ * A term structurally equal to one already written is emitted as a back reference to it, so repeated subterms
+ * are written once even if they are not shared in memory.
  */
 public class ToBinary {
 
+    private static final int BUFFER_SIZE = 1 << 16;
+
     public static void apply(OutputStream out, K k) {
         try {
-            DataOutputStream data = new DataOutputStream(out);
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
             //magic
             data.writeByte(0x7f);
             data.writeBytes("KAST");
@@ -36,12 +44,21 @@ public class ToBinary {
             data.writeByte(1);
             new ToBinary(data).traverse(k);
             data.writeByte(BinaryParser.END);
+            data.flush();
         } catch (IOException e) {
             throw KEMException.criticalError("Could not write K term to binary", e, k);
         }
 
     }
 
+    public static void apply(File file, K k) {
+        try (OutputStream out = new FileOutputStream(file)) {
+            apply(out, k);
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not write K term to " + file, e, k);
+        }
+    }
+
     public static byte[] apply(K k) {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         apply(out, k);
@@ -50,7 +67,7 @@ public class ToBinary {
 
     private DataOutputStream data;
     private Map<String, Integer> interns = new HashMap<>();
-    private Map<K, Integer> kInterns = new IdentityHashMap<>();
+    private Map<K, Integer> kInterns = new HashMap<>();
     private int numTermsWritten;
 
     private ToBinary(DataOutputStream data) {
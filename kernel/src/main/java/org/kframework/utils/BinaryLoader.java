@@ -2,14 +2,19 @@
 package org.kframework.utils;
 
 import com.google.inject.Inject;
+import org.kframework.kore.ADT;
 import org.kframework.utils.errorsystem.KEMException;
 import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.inject.RequestScoped;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -17,10 +22,37 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamException;
 import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Reads and writes the binary files produced by kompile and by the various caches.
+ * <p>
+ * Every file starts with a header made of the magic number {@link #MAGIC} and the format version
+ * {@link #FORMAT_VERSION}, followed by the serialized object. Files with a different header are rejected
+ * with a {@link StreamCorruptedException}, which {@link #loadOrDie} reports as an out-of-date kompiled
+ * definition. Equal strings, KLabels and sorts are written only once and shared when the file is read back,
+ * and files are read into memory with a single bulk read and closed before they are deserialized, so that they
+ * can be overwritten while the loaded objects are in use.
+ */
 @RequestScoped
 public class BinaryLoader {
 
+    /**
+     * "KBIN" in ASCII.
+     */
+    private static final int MAGIC = 0x4b42494e;
+
+    /**
+     * Bump whenever the layout of the header or the encoding of the payload changes.
+     */
+    private static final int FORMAT_VERSION = 1;
+
     private final KExceptionManager kem;
 
     @Inject
@@ -64,8 +96,11 @@ public class BinaryLoader {
     }
 
     public void save(OutputStream out, Object o) throws IOException {
-        try(ObjectOutputStream serializer
-                = new ObjectOutputStream(new BufferedOutputStream(out))) {
+        BufferedOutputStream buffered = new BufferedOutputStream(out);
+        DataOutputStream header = new DataOutputStream(buffered);
+        header.writeInt(MAGIC);
+        header.writeInt(FORMAT_VERSION);
+        try(ObjectOutputStream serializer = new InterningObjectOutputStream(buffered)) {
             serializer.writeObject(o);
         }
     }
@@ -79,7 +114,7 @@ public class BinaryLoader {
     }
 
     public <T> T loadOrDie(Class<T> cls, File fileName) {
-        try (InputStream in = new BufferedInputStream(new FileInputStream(fileName))) {
+        try (InputStream in = open(fileName)) {
             return loadOrDie(cls, in, fileName.getAbsolutePath());
         } catch (IOException e) {
             throw KEMException.criticalError("Could not read from " + fileName, e);
@@ -87,6 +122,7 @@ public class BinaryLoader {
     }
 
     public Object load(InputStream in) throws IOException, ClassNotFoundException {
+        checkHeader(in);
         try (ObjectInputStream deserializer
                 = new ObjectInputStream(in)) {
             Object obj = deserializer.readObject();
@@ -95,11 +131,57 @@ public class BinaryLoader {
     }
 
     public Object load(File fileName) throws IOException, ClassNotFoundException {
-        try (InputStream in = new BufferedInputStream(new FileInputStream(fileName))) {
+        try (InputStream in = open(fileName)) {
             return load(in);
         }
     }
 
+    private static void checkHeader(InputStream in) throws IOException {
+        DataInputStream header = new DataInputStream(in);
+        int magic, version;
+        try {
+            magic = header.readInt();
+            version = header.readInt();
+        } catch (EOFException e) {
+            throw new StreamCorruptedException("truncated header");
+        }
+        if (magic != MAGIC) {
+            throw new StreamCorruptedException(String.format("invalid header %08x", magic));
+        }
+        if (version != FORMAT_VERSION) {
+            throw new StreamCorruptedException("unsupported format version " + version + ", expected " + FORMAT_VERSION);
+        }
+    }
+
+    /**
+     * Opens a file for reading, reading it into memory and closing it unless it is too large to be addressed by a
+     * single buffer. The file is not mapped, since a mapping cannot be released explicitly and keeps the file from
+     * being overwritten on Windows until the mapping is garbage collected.
+     *
+     * @throws FileNotFoundException if the file does not exist, as {@link FileInputStream} does, which callers
+     *                               expect when there is no previous output to load.
+     */
+    private static InputStream open(File fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(fileName.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= Integer.MAX_VALUE) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new EOFException("file truncated while reading " + fileName);
+                    }
+                }
+                buffer.flip();
+                return new ByteBufferInputStream(buffer);
+            }
+        } catch (NoSuchFileException e) {
+            FileNotFoundException notFound = new FileNotFoundException(fileName.getPath());
+            notFound.initCause(e);
+            throw notFound;
+        }
+        return new BufferedInputStream(new FileInputStream(fileName));
+    }
+
     public <T> T loadOrDie(Class<T> cls, InputStream in, String fileName) {
 
         try {
@@ -113,4 +195,63 @@ public class BinaryLoader {
             throw KEMException.criticalError("Could not read from " + fileName, e);
         }
     }
+
+    /**
+     * Replaces every string, KLabel and sort with the first equal instance written to the stream,
+     * so that the serialization writes each distinct one once and refers back to it afterwards.
+     */
+    private static class InterningObjectOutputStream extends ObjectOutputStream {
+        private final Map<Object, Object> canonical = new HashMap<>();
+
+        InterningObjectOutputStream(OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            if (obj instanceof String || obj instanceof ADT.KLabel || obj instanceof ADT.Sort) {
+                return canonical.computeIfAbsent(obj, o -> o);
+            }
+            return obj;
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
 }
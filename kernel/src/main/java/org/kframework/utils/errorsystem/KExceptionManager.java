@@ -16,6 +16,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RequestScoped
 public class KExceptionManager {
@@ -23,6 +24,11 @@ public class KExceptionManager {
 
     private final GlobalOptions options;
 
+    /**
+     * The list receiving the exceptions registered on each thread while running {@link #recording}, if any.
+     */
+    private final ThreadLocal<List<KException>> recorded = new ThreadLocal<>();
+
     @Inject
     public KExceptionManager(GlobalOptions options) {
         this.options = options;
@@ -115,6 +121,10 @@ public class KExceptionManager {
         if (!options.warnings.includesExceptionType(exception.type))
             return;
         exceptions.add(exception);
+        List<KException> recorded = this.recorded.get();
+        if (recorded != null) {
+            recorded.add(exception);
+        }
         if (_throw && (exception.type == ExceptionType.ERROR || options.warnings2errors)) {
             throw new KEMException(exception);
         }
@@ -136,6 +146,24 @@ public class KExceptionManager {
         }
     }
 
+    /**
+     * Runs the given computation, and adds the exceptions registered by it on the current thread to {@code into},
+     * besides registering them as usual, so that they can be registered again when its result is reused.
+     * The exceptions are also recorded by the enclosing calls.
+     */
+    public <T> T recording(Supplier<T> computation, List<KException> into) {
+        List<KException> enclosing = recorded.get();
+        recorded.set(into);
+        try {
+            return computation.get();
+        } finally {
+            recorded.set(enclosing);
+            if (enclosing != null) {
+                enclosing.addAll(into);
+            }
+        }
+    }
+
     public void registerThrown(KEMException e) {
         exceptions.add(e.exception);
     }
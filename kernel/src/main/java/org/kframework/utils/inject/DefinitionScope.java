@@ -14,24 +14,52 @@ import com.google.inject.Provider;
 import com.google.inject.Scope;
 import com.google.inject.Scopes;
 
+/**
+ * Scopes the objects which only depend on a kompiled definition, such as the loaded definition itself, so that they
+ * are shared by the requests of a K server using the same definition, including concurrent ones.
+ * <p>
+ * Definitions are identified by their kompiled directory, and the objects of a definition are discarded when its
+ * {@code compiled.bin} changes, i.e. when the definition is kompiled again. The objects of the least recently used
+ * definitions are discarded when more definitions are in use.
+ */
 public class DefinitionScope implements Scope {
 
     private final InheritableThreadLocal<File> currentDefinitionId = new InheritableThreadLocal<>();
+    private final InheritableThreadLocal<Long> currentDefinitionStamp = new InheritableThreadLocal<>();
 
-    private final LinkedHashMap<File, Map<Key<?>, Object>> values = new LinkedHashMap<File, Map<Key<?>, Object>>() {
-        protected boolean removeEldestEntry(Map.Entry<File, Map<Key<?>, Object>> eldest) {
+    private final LinkedHashMap<File, ScopedObjects> values = new LinkedHashMap<File, ScopedObjects>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<File, ScopedObjects> eldest) {
             return size() > Runtime.getRuntime().availableProcessors() * 2;
         }
     };
 
+    private static final class ScopedObjects {
+        final long stamp;
+        final Map<Key<?>, Object> objects = Maps.newHashMap();
+
+        ScopedObjects(long stamp) {
+            this.stamp = stamp;
+        }
+    }
+
     public void enter(File definitionId) {
         checkState(currentDefinitionId.get() == null, "A scoping block is already in progress");
         currentDefinitionId.set(definitionId);
+        currentDefinitionStamp.set(stamp(definitionId));
     }
 
     public void exit() {
         checkState(currentDefinitionId.get() != null, "No scoping block in progress");
         currentDefinitionId.remove();
+        currentDefinitionStamp.remove();
+    }
+
+    /**
+     * Identifies the version of a kompiled definition. Kompile always rewrites {@code compiled.bin}.
+     */
+    private static long stamp(File definitionId) {
+        File compiled = new File(definitionId, "compiled.bin");
+        return compiled.lastModified() * 31 + compiled.length();
     }
 
     @Override
@@ -65,13 +93,14 @@ public class DefinitionScope implements Scope {
           throw new OutOfScopeException("Cannot access " + key
               + " outside of a scoping block");
         }
+        long stamp = currentDefinitionStamp.get();
         synchronized(values) {
-            Map<Key<?>, Object> scopedObjects = values.get(definitionId);
-            if (scopedObjects == null) {
-                scopedObjects = Maps.newHashMap();
+            ScopedObjects scopedObjects = values.get(definitionId);
+            if (scopedObjects == null || scopedObjects.stamp != stamp) {
+                scopedObjects = new ScopedObjects(stamp);
                 values.put(definitionId, scopedObjects);
             }
-            return scopedObjects;
+            return scopedObjects.objects;
         }
       }
 
@@ -52,6 +52,17 @@ public class SMTOptions implements Serializable {
     @Parameter(names="--z3-impl-timeout", description="The default soft timeout (in milli seconds) of Z3 for checking implication.")
     public int z3ImplTimeout = 5000;
 
+    @Parameter(names="--smt-pool-size", description="Maximum number of long-lived Z3 solver instances answering queries concurrently. " +
+            "Each instance loads the SMT prelude once. Raise it to answer the queries of several threads concurrently, " +
+            "or use 0 to start a fresh solver for every query.")
+    public int smtPoolSize = 1;
+
+    @Parameter(names="--smt-cache-size", description="Maximum number of SMT query results to cache, or 0 to disable the cache.")
+    public int smtCacheSize = 100000;
+
+    @Parameter(names="--smt-persistent-cache", description="Save SMT query results in the kompiled directory and reuse them in later runs.")
+    public boolean smtPersistentCache = false;
+
     @Parameter(names="--z3-tactic", description="The solver tactic to use to check satisfiability in Z3.")
     public String z3Tactic;
 
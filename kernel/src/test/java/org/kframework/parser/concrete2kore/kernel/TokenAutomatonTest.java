@@ -0,0 +1,62 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.parser.concrete2kore.kernel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TokenAutomatonTest {
+
+    private static final String STRING_REGEX = "[\\\"](([^\\\"\\n\\r\\\\])|([\\\\][nrtf\\\"\\\\])|([\\\\][x][0-9a-fA-F]{2})|([\\\\][u][0-9a-fA-F]{4})|([\\\\][U][0-9a-fA-F]{8}))*[\\\"]";
+
+    /**
+     * Returns {kind, end} of the longest token starting at the beginning of the input.
+     */
+    private static int[] longestMatch(TokenAutomaton automaton, String input) {
+        int state = automaton.start();
+        int kind = TokenAutomaton.NO_TOKEN;
+        int end = -1;
+        for (int i = 0; i < input.length(); i++) {
+            state = automaton.step(state, input.charAt(i));
+            if (state == TokenAutomaton.DEAD) {
+                break;
+            }
+            if (automaton.accept(state) != TokenAutomaton.NO_TOKEN) {
+                kind = automaton.accept(state);
+                end = i + 1;
+            }
+        }
+        return new int[]{kind, end};
+    }
+
+    private static boolean matches(String regex, String input) {
+        return longestMatch(new TokenAutomaton.Builder().addRegex(regex, 0).build(), input)[1] == input.length();
+    }
+
+    @Test
+    public void testFlexSyntax() {
+        assertTrue(matches(STRING_REGEX, "\"ab\\n\\x4Fc\""));
+        assertFalse(matches(STRING_REGEX, "\"ab\\x4\""));
+        assertTrue(matches("[\\+-]?[0-9]+", "-123"));
+        assertTrue(matches("(\\/\\*([^\\*]|(\\*+([^\\*\\/])))*\\*+\\/)", "/* a ** b */"));
+        assertTrue(matches("a{2,3}", "aaa"));
+        assertFalse(matches("a{2,3}", "aaaa"));
+        assertTrue(matches("(ab){2,}", "ababab"));
+        assertTrue(matches("\"a\\\"b\"c", "a\"bc"));
+        assertFalse(matches(".", "\n"));
+        assertTrue(matches("[[:alpha:]_]+", "ab_C"));
+    }
+
+    @Test
+    public void testLongestMatchThenPriority() {
+        TokenAutomaton automaton = new TokenAutomaton.Builder()
+                .addLiteral("if", 1)
+                .addLiteral("i", 2)
+                .addRegex("[a-z]+", 3)
+                .build();
+        assertArrayEquals(new int[]{1, 2}, longestMatch(automaton, "if"));
+        assertArrayEquals(new int[]{3, 3}, longestMatch(automaton, "ifx"));
+        assertArrayEquals(new int[]{2, 1}, longestMatch(automaton, "i+"));
+        assertArrayEquals(new int[]{TokenAutomaton.NO_TOKEN, -1}, longestMatch(automaton, "+"));
+    }
+}
@@ -48,6 +48,22 @@ public class BinaryKASTTest {
         assertEquals(new KRewrite(term, term), result2);
     }
 
+    @Test
+    public void testStructuralSharing() throws Exception {
+        K copy = KApply.of(KLabel("_|->_"), new KToken("x", Sort("Id")), new KToken("1", Sort("Int")));
+        byte[] shared = ToBinary.apply(KApply.of(KLabel("foo"), sharedTerm, sharedTerm));
+        byte[] unshared = ToBinary.apply(KApply.of(KLabel("foo"), sharedTerm, copy));
+        assertArrayEquals(shared, unshared);
+    }
+
+    @Test
+    public void testWriteThenReadFile() throws Exception {
+        File tmp = File.createTempFile("tmp", null);
+        tmp.deleteOnExit();
+        ToBinary.apply(tmp, term);
+        assertEquals(term, BinaryParser.parse(tmp));
+    }
+
     @Test @Ignore
     public void testLarger() throws Exception {
         byte[] kast = FileUtil.testFileUtil().loadBytes(new File("/home/dwightguth/c-semantics/tmp-kcc-FzjROvt"));
@@ -0,0 +1,65 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.utils;
+
+import org.junit.Test;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.errorsystem.KEMException;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BinaryLoaderTest {
+
+    private final BinaryLoader loader = new BinaryLoader(new KExceptionManager(new GlobalOptions()));
+
+    @Test
+    public void testRoundTripSharesEqualStrings() throws Exception {
+        List<String> list = new ArrayList<>();
+        list.add(new String("foo"));
+        list.add(new String("foo"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        loader.save(out, list);
+        List<?> result = loader.load(List.class, new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(list, result);
+        assertSame(result.get(0), result.get(1));
+    }
+
+    @Test
+    public void testRoundTripThroughFile() throws Exception {
+        File file = File.createTempFile("binary", ".bin");
+        file.deleteOnExit();
+        loader.saveOrDie(file, "contents");
+        assertEquals("contents", loader.loadOrDie(String.class, file));
+    }
+
+    @Test
+    public void testOverwriteAfterLoad() throws Exception {
+        File file = File.createTempFile("binary", ".bin");
+        file.deleteOnExit();
+        loader.saveOrDie(file, "old contents");
+        assertEquals("old contents", loader.loadOrDie(String.class, file));
+        loader.saveOrDie(file, "new contents");
+        assertEquals("new contents", loader.loadOrDie(String.class, file));
+    }
+
+    @Test
+    public void testRejectsPlainSerialization() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream serializer = new ObjectOutputStream(out)) {
+            serializer.writeObject("contents");
+        }
+        try {
+            loader.loadOrDie(String.class, new ByteArrayInputStream(out.toByteArray()), "test");
+            fail();
+        } catch (KEMException e) {
+            assertTrue(e.getMessage().contains("out of date"));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework.utils.inject;
+
+import static org.junit.Assert.*;
+
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DefinitionScopeTest {
+
+    @Test
+    public void testObjectsAreKeptUntilTheDefinitionChanges() throws IOException {
+        File kompiled = Files.createTempDirectory("test-kompiled").toFile();
+        try {
+            File compiled = new File(kompiled, "compiled.bin");
+            FileUtils.writeStringToFile(compiled, "1");
+            AtomicInteger loads = new AtomicInteger();
+            DefinitionScope scope = new DefinitionScope();
+            Provider<Integer> provider = scope.scope(Key.get(Integer.class), loads::incrementAndGet);
+
+            assertEquals(1, (int) get(scope, kompiled, provider));
+            assertEquals(1, (int) get(scope, kompiled, provider));
+
+            FileUtils.writeStringToFile(compiled, "22");
+            assertEquals(2, (int) get(scope, kompiled, provider));
+            assertEquals(2, (int) get(scope, kompiled, provider));
+        } finally {
+            FileUtils.deleteDirectory(kompiled);
+        }
+    }
+
+    private static Integer get(DefinitionScope scope, File kompiled, Provider<Integer> provider) {
+        scope.enter(kompiled);
+        try {
+            return provider.get();
+        } finally {
+            scope.exit();
+        }
+    }
+}
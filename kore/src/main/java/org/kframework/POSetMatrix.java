@@ -0,0 +1,311 @@
+// Copyright (c) 2018 K Team. All Rights Reserved.
+package org.kframework;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The transitive closure of a relation, stored as a matrix of bits indexed by the ordinals of the related elements.
+ * Comparisons take constant time, and bounds of a set of elements are computed a word of 64 elements at a time.
+ * The least upper bound and greatest lower bound of each pair of elements are computed once and cached.
+ * <p>
+ * The relation is expected to be a strict partial order, i.e. to contain no cycles; {@link #cyclicElement()}
+ * returns an element of a cycle if it does not.
+ */
+public final class POSetMatrix<T> implements Serializable {
+
+    private static final int NONE = -1;
+
+    private final List<T> elements;
+    private final Map<T, Integer> ordinals;
+    /**
+     * {@code greater[i]} has the bit {@code j} set iff element {@code i} is less than element {@code j}.
+     */
+    private final long[][] greater;
+    /**
+     * The transpose of {@link #greater}.
+     */
+    private final long[][] smaller;
+    private final ConcurrentHashMap<Long, Integer> lubs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Integer> glbs = new ConcurrentHashMap<>();
+
+    private POSetMatrix(List<T> elements, Map<T, Integer> ordinals, long[][] greater) {
+        this.elements = elements;
+        this.ordinals = ordinals;
+        this.greater = greater;
+        this.smaller = new long[greater.length][words(greater.length)];
+        for (int i = 0; i < greater.length; i++) {
+            for (int j = nextSetBit(greater[i], 0); j >= 0; j = nextSetBit(greater[i], j + 1)) {
+                set(smaller[j], i);
+            }
+        }
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public static final class Builder<T> {
+
+        private final List<T> elements = new ArrayList<>();
+        private final Map<T, Integer> ordinals = new HashMap<>();
+        private final List<int[]> relations = new ArrayList<>();
+
+        /**
+         * Adds the given element, unrelated to the other elements unless relations are added for it.
+         */
+        public Builder<T> add(T element) {
+            ordinal(element);
+            return this;
+        }
+
+        public Builder<T> addRelation(T smaller, T greater) {
+            relations.add(new int[]{ordinal(smaller), ordinal(greater)});
+            return this;
+        }
+
+        public boolean contains(T element) {
+            return ordinals.containsKey(element);
+        }
+
+        private int ordinal(T element) {
+            return ordinals.computeIfAbsent(element, e -> {
+                elements.add(e);
+                return elements.size() - 1;
+            });
+        }
+
+        /**
+         * Computes the transitive closure of the relations added so far, with Warshall's algorithm.
+         */
+        public POSetMatrix<T> build() {
+            int size = elements.size();
+            long[][] greater = new long[size][words(size)];
+            for (int[] relation : relations) {
+                set(greater[relation[0]], relation[1]);
+            }
+            for (int k = 0; k < size; k++) {
+                long[] row = greater[k];
+                for (long[] other : greater) {
+                    if (isSet(other, k)) {
+                        for (int w = 0; w < row.length; w++) {
+                            other[w] |= row[w];
+                        }
+                    }
+                }
+            }
+            return new POSetMatrix<>(
+                    Collections.unmodifiableList(new ArrayList<>(elements)),
+                    new HashMap<>(ordinals),
+                    greater);
+        }
+    }
+
+    /**
+     * Returns the elements, in the order they were first added to the builder.
+     */
+    public List<T> elements() {
+        return elements;
+    }
+
+    public boolean contains(T element) {
+        return ordinals.containsKey(element);
+    }
+
+    /**
+     * Returns the first element which is less than itself, or null if the relation has no cycles.
+     */
+    public T cyclicElement() {
+        for (int i = 0; i < greater.length; i++) {
+            if (isSet(greater[i], i)) {
+                return elements.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if {@code x < y}; false if they are unrelated or either of them is not an element.
+     */
+    public boolean lessThan(T x, T y) {
+        Integer i = ordinals.get(x);
+        Integer j = ordinals.get(y);
+        return i != null && j != null && isSet(greater[i], j);
+    }
+
+    /**
+     * Returns the elements greater than the given one.
+     */
+    public Set<T> greaterThan(T x) {
+        Integer i = ordinals.get(x);
+        return i == null ? Collections.emptySet() : toSet(greater[i]);
+    }
+
+    /**
+     * Returns the elements greater than or equal to every element of {@code xs}.
+     */
+    public Set<T> upperBounds(Collection<? extends T> xs) {
+        long[] bounds = bounds(xs, greater);
+        return bounds == null ? Collections.emptySet() : toSet(bounds);
+    }
+
+    /**
+     * Returns the elements less than or equal to every element of {@code xs}.
+     */
+    public Set<T> lowerBounds(Collection<? extends T> xs) {
+        long[] bounds = bounds(xs, smaller);
+        return bounds == null ? Collections.emptySet() : toSet(bounds);
+    }
+
+    /**
+     * Returns the least upper bound of {@code xs}, or null if it does not exist.
+     */
+    public T lub(Collection<? extends T> xs) {
+        return top(xs, greater, lubs);
+    }
+
+    /**
+     * Returns the greatest lower bound of {@code xs}, or null if it does not exist.
+     */
+    public T glb(Collection<? extends T> xs) {
+        return top(xs, smaller, glbs);
+    }
+
+    /**
+     * Returns true if {@code x} and {@code y} have a common lower bound other than {@code ignored}.
+     */
+    public boolean hasCommonLowerBound(T x, T y, T ignored) {
+        Integer i = ordinals.get(x);
+        Integer j = ordinals.get(y);
+        if (i == null || j == null) {
+            return false;
+        }
+        Integer k = ordinals.get(ignored);
+        long[] row1 = smaller[i];
+        long[] row2 = smaller[j];
+        for (int w = 0; w < row1.length; w++) {
+            long common = (row1[w] | bit(i, w)) & (row2[w] | bit(j, w));
+            if (k != null) {
+                common &= ~bit(k, w);
+            }
+            if (common != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the bounds of {@code xs} in the direction of {@code rows}, each element being a bound of itself,
+     * or null if {@code xs} contains no elements or an element not in this matrix.
+     */
+    private long[] bounds(Collection<? extends T> xs, long[][] rows) {
+        long[] bounds = null;
+        for (T x : xs) {
+            Integer i = ordinals.get(x);
+            if (i == null) {
+                return null;
+            }
+            if (bounds == null) {
+                bounds = rows[i].clone();
+                set(bounds, i);
+            } else {
+                long[] row = rows[i];
+                for (int w = 0; w < bounds.length; w++) {
+                    bounds[w] &= row[w] | bit(i, w);
+                }
+            }
+        }
+        return bounds;
+    }
+
+    private T top(Collection<? extends T> xs, long[][] rows, ConcurrentHashMap<Long, Integer> cache) {
+        if (xs.size() == 2) {
+            Iterator<? extends T> it = xs.iterator();
+            Integer i = ordinals.get(it.next());
+            Integer j = ordinals.get(it.next());
+            if (i == null || j == null) {
+                return null;
+            }
+            long key = Math.min(i, j) * (long) elements.size() + Math.max(i, j);
+            int top = cache.computeIfAbsent(key, k -> top(bounds(xs, rows), rows));
+            return top == NONE ? null : elements.get(top);
+        }
+        long[] bounds = bounds(xs, rows);
+        if (bounds == null) {
+            return null;
+        }
+        int top = top(bounds, rows);
+        return top == NONE ? null : elements.get(top);
+    }
+
+    /**
+     * Returns the ordinal of the bound which is less than all the others in the direction of {@code rows}.
+     */
+    private static int top(long[] bounds, long[][] rows) {
+        nextCandidate:
+        for (int i = nextSetBit(bounds, 0); i >= 0; i = nextSetBit(bounds, i + 1)) {
+            long[] row = rows[i];
+            for (int w = 0; w < bounds.length; w++) {
+                if ((bounds[w] & ~(row[w] | bit(i, w))) != 0) {
+                    continue nextCandidate;
+                }
+            }
+            return i;
+        }
+        return NONE;
+    }
+
+    private Set<T> toSet(long[] bits) {
+        Set<T> result = new HashSet<>();
+        for (int i = nextSetBit(bits, 0); i >= 0; i = nextSetBit(bits, i + 1)) {
+            result.add(elements.get(i));
+        }
+        return result;
+    }
+
+    private static int words(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    private static boolean isSet(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    /**
+     * Returns the bit of {@code i} within the word {@code w}.
+     */
+    private static long bit(int i, int w) {
+        return i >>> 6 == w ? 1L << i : 0;
+    }
+
+    private static int nextSetBit(long[] bits, int from) {
+        int w = from >>> 6;
+        if (w >= bits.length) {
+            return -1;
+        }
+        long word = bits[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == bits.length) {
+                return -1;
+            }
+            word = bits[w];
+        }
+    }
+}
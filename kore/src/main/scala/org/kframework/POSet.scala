@@ -17,47 +17,53 @@ class POSet[T](directRelations: Set[(T, T)]) extends Serializable {
 
   lazy val elements: Set[T] = directRelations.flatMap(a => Set(a._1, a._2))
 
-  /**
-   * Internal private method. Computes the transitive closer of the initial relations.
-   * It also checks for cycles during construction and throws an exception if it finds any.
-   *
-   * The implementation is simple. It links each element to the successors of its successors.
-   * TODO: there may be a more efficient algorithm (low priority)
-   */
-  private def transitiveClosure(relations: Map[T, Set[T]]): Map[T, Set[T]] = {
-    val newRelations = relations map {
-      case (start, succ) =>
-        val newSucc = succ flatMap { relations.getOrElse(_, Set()) }
-        if (newSucc.contains(start))
-          constructAndThrowCycleException(start, start, Seq())
-        (start, succ | newSucc)
-    }
-    if (relations != newRelations) transitiveClosure(newRelations) else relations
-  }
-
   /**
    * Recursive method constructing and throwing and the cycle exception.
    *
    * @param start (or tail) element to look for when constructing the cycle
    * @param current element
    * @param path so far
+   * @param closure the transitive closure of the relations
    */
-  private def constructAndThrowCycleException(start: T, current: T, path: Seq[T]) {
+  private def constructAndThrowCycleException(start: T, current: T, path: Seq[T], closure: POSetMatrix[T]) {
     val currentPath = path :+ current
     val succs = directRelationsMap.getOrElse(current, Set())
     if (succs.contains(start))
       throw new CircularityException(currentPath :+ start)
 
-    succs foreach { constructAndThrowCycleException(start, _, currentPath) }
+    // only follow the elements on a cycle through start, each of them once
+    succs filter { s => !currentPath.contains(s) && closure.lessThan(s, start) } foreach {
+      constructAndThrowCycleException(start, _, currentPath, closure)
+    }
+  }
+
+  /**
+   * The transitive closure of the initial relations, as a bit matrix.
+   * The elements are numbered in the order of directRelationsMap, so that the cycle reported is the first one found
+   * in that order.
+   */
+  private val matrix: POSetMatrix[T] = {
+    val builder = POSetMatrix.builder[T]()
+    directRelationsMap.keys foreach { builder.add(_) }
+    for ((start, succs) <- directRelationsMap; succ <- succs)
+      builder.addRelation(start, succ)
+    val closure = builder.build()
+    val cyclic = closure.cyclicElement()
+    if (cyclic != null)
+      constructAndThrowCycleException(cyclic, cyclic, Seq(), closure)
+    closure
   }
 
   /**
    * All the relations of the POSet, including the transitive ones.
    */
-  val relations = transitiveClosure(directRelationsMap)
+  lazy val relations: Map[T, Set[T]] = {
+    import scala.collection.JavaConverters._
+    directRelationsMap.keys.map(x => (x, matrix.greaterThan(x).asScala.toSet)).toMap
+  }
 
-  def <(x: T, y: T): Boolean = relations.get(x).exists(_.contains(y))
-  def >(x: T, y: T): Boolean = relations.get(y).exists(_.contains(x))
+  def <(x: T, y: T): Boolean = matrix.lessThan(x, y)
+  def >(x: T, y: T): Boolean = matrix.lessThan(y, x)
   def ~(x: T, y: T) = <(x, y) || <(y, x)
 
   /**
@@ -105,6 +111,26 @@ class POSet[T](directRelations: Set[(T, T)]) extends Serializable {
     }
   }
 
+  /**
+    * Return the elements greater than or equal to every element of the argument.
+    */
+  def upperBounds(sorts: util.Collection[T]): util.Set[T] = matrix.upperBounds(sorts)
+
+  /**
+    * Return the elements less than or equal to every element of the argument.
+    */
+  def lowerBounds(sorts: util.Collection[T]): util.Set[T] = matrix.lowerBounds(sorts)
+
+  /**
+    * Return the least element of upperBounds(sorts), if there is one.
+    */
+  def leastUpperBound(sorts: util.Collection[T]): Optional[T] = Optional.ofNullable(matrix.lub(sorts))
+
+  /**
+    * Return the greatest element of lowerBounds(sorts), if there is one.
+    */
+  def greatestLowerBound(sorts: util.Collection[T]): Optional[T] = Optional.ofNullable(matrix.glb(sorts))
+
   lazy val asOrdering: Ordering[T] = (x: T, y: T) => if (lessThanEq(x, y)) -1 else if (lessThanEq(y, x)) 1 else 0
 
   /**
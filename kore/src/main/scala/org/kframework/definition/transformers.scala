@@ -2,7 +2,8 @@
 
 package org.kframework.definition
 
-import java.util.function.BiFunction
+import java.util.concurrent.{CompletableFuture, CompletionException}
+import java.util.function.{BiConsumer, BiFunction}
 
 import org.kframework.attributes.{Source, Location}
 import org.kframework.definition
@@ -62,19 +63,82 @@ object ModuleTransformer {
 /**
   * Transform all modules, transforming each module after its imports.
   * The f function take a module with all the imported modules already transformed, and changes the current module.
+  *
+  * Each module is transformed exactly once, even when the transformer is applied from several threads.
+  * If parallel is set, each module is transformed in the common fork-join pool as soon as its imports are,
+  * so independent branches of the import graph are transformed at the same time; f must then be safe to call
+  * concurrently on different modules. As a module only depends on its transformed imports,
+  * the result is the same as when transforming sequentially.
   */
-class ModuleTransformer(f: Module => Module, name: String) extends (Module => Module) {
-  val memoization = collection.concurrent.TrieMap[Module, Module]()
+class ModuleTransformer(f: Module => Module, name: String, val parallel: Boolean) extends (Module => Module) {
+  def this(f: Module => Module, name: String) = this(f, name, false)
+
+  private val memoization = collection.concurrent.TrieMap[Module, CompletableFuture[Module]]()
+
+  /** Returns a transformer applying the same function, with the modules transformed in parallel. */
+  def inParallel: ModuleTransformer = if (parallel) this else new ModuleTransformer(f, name, true)
+
+  /**
+    * Returns a transformer applying the same function through the given cache, under the name of this transformer.
+    * The function must only depend on the module it is given.
+    */
+  def withCache(cache: ModuleCache): ModuleTransformer = new ModuleTransformer(m => cache(name, m, f), name, parallel)
 
   override def apply(input: Module): Module = {
-    memoization.getOrElseUpdate(input, {
-      var newImports = input.imports map this
-      if (newImports != input.imports)
-        f(Module(input.name, newImports, input.localSentences, input.att))
-      else
-        f(input)
-    })
+    try {
+      transformation(input).join()
+    } catch {
+      case e: CompletionException => throw e.getCause
+    }
+  }
+
+  private def transformation(input: Module): CompletableFuture[Module] = memoization.get(input) match {
+    case Some(existing) => existing
+    case None =>
+      val future = new CompletableFuture[Module]()
+      memoization.putIfAbsent(input, future) match {
+        case Some(existing) => existing
+        case None =>
+          if (parallel) {
+            val imports = input.imports.toList map transformation
+            CompletableFuture.allOf(imports: _*).whenCompleteAsync(new BiConsumer[Void, Throwable] {
+              override def accept(ignored: Void, e: Throwable): Unit =
+                if (e != null)
+                  future.completeExceptionally(e)
+                else
+                  complete(future, transform(input, (imports map {_.join()}).toSet))
+            })
+          } else {
+            complete(future, transform(input, input.imports map this))
+          }
+          future
+      }
   }
+
+  private def complete(future: CompletableFuture[Module], output: => Module): Unit = {
+    try {
+      future.complete(output)
+    } catch {
+      case e: Throwable => future.completeExceptionally(e)
+    }
+  }
+
+  private def transform(input: Module, newImports: Set[Module]): Module = {
+    if (newImports != input.imports)
+      f(Module(input.name, newImports, input.localSentences, input.att))
+    else
+      f(input)
+  }
+}
+
+/**
+  * A cache of the results of module transformations, possibly kept across runs.
+  */
+trait ModuleCache {
+  /**
+    * Returns the result of the transformation called pass on input, calling f to compute it if it is not cached.
+    */
+  def apply(pass: String, input: Module, f: Module => Module): Module
 }
 
 object DefinitionTransformer {
@@ -104,6 +168,24 @@ object DefinitionTransformer {
 }
 
 class DefinitionTransformer(moduleTransformer: Module => Module) extends (Definition => Definition) {
+  /**
+    * Returns a transformer transforming the modules of a definition in parallel, see [[ModuleTransformer]].
+    * Transformers which are not module transformers are returned as they are.
+    */
+  def inParallel: DefinitionTransformer = moduleTransformer match {
+    case t: ModuleTransformer => new DefinitionTransformer(t.inParallel)
+    case _ => this
+  }
+
+  /**
+    * Returns a transformer looking up the transformed modules in the given cache, see [[ModuleTransformer]].
+    * Transformers which are not module transformers are returned as they are.
+    */
+  def withCache(cache: ModuleCache): DefinitionTransformer = moduleTransformer match {
+    case t: ModuleTransformer => new DefinitionTransformer(t.withCache(cache))
+    case _ => this
+  }
+
   override def apply(d: Definition): Definition = {
     definition.Definition(
       moduleTransformer(d.mainModule),
@@ -41,4 +41,10 @@ trait Rewriter {
   def prove(rules: Module): kore.K
 
   def equivalence(firstDef: Rewriter, secondDef: Rewriter, firstSpec: Module, secondSpec: Module): Boolean
+
+  /**
+   * Called by the users of a rewriter once they are done with it, to release the resources it holds, such as
+   * solver processes.
+   */
+  def close(): Unit = {}
 }
@@ -46,4 +46,16 @@ class POSetTest {
     assertEquals(None, POSet(b1 -> b2, b2 -> b3, b4 -> b5).lub)
     assertEquals(None, POSet(b1 -> b2, b2 -> b3, b2 -> b4).lub)
   }
+
+  @Test def bounds() {
+    import scala.collection.JavaConverters._
+    val p = POSet(b1 -> b3, b2 -> b3, b3 -> b4, b2 -> b5)
+
+    assertEquals(Set(b3, b4), p.upperBounds(Seq(b1, b2).asJava).asScala)
+    assertEquals(Set(b2), p.lowerBounds(Seq(b3, b5).asJava).asScala)
+    assertEquals(java.util.Optional.of(b3), p.leastUpperBound(Seq(b1, b2).asJava))
+    assertEquals(java.util.Optional.of(b3), p.leastUpperBound(Seq(b1, b2, b3).asJava))
+    assertEquals(java.util.Optional.empty(), p.leastUpperBound(Seq(b4, b5).asJava))
+    assertEquals(java.util.Optional.of(b2), p.greatestLowerBound(Seq(b4, b5).asJava))
+  }
 }
@@ -13,14 +13,11 @@ import org.kframework.main.GlobalOptions;
 import org.kframework.parser.binary.BinaryParser;
 import org.kframework.rewriter.Rewriter;
 import org.kframework.unparser.ToBinary;
-import org.kframework.utils.errorsystem.KEMException;
 import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.file.FileUtil;
 import scala.Tuple2;
 
-import java.io.*;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.io.File;
 import java.util.function.Function;
 
 
@@ -30,6 +27,7 @@ public class InterpreterExecutionMode implements ExecutionMode {
     private final FileUtil files;
     private final DefinitionToOcaml converter;
     private final KRunOptions options;
+    private final GlobalOptions globalOptions;
 
     @Inject
     public InterpreterExecutionMode(
@@ -45,6 +43,7 @@ public class InterpreterExecutionMode implements ExecutionMode {
         this.converter = new DefinitionToOcaml(kem, files, globalOptions, kompileOptions, null);
         converter.initialize(init.serialized, def);
         this.options = options;
+        this.globalOptions = globalOptions;
     }
 
     @Override
@@ -55,11 +54,9 @@ public class InterpreterExecutionMode implements ExecutionMode {
         config = converter.preprocess(config);
         File input = files.resolveTemp("run.in");
         files.resolveTemp(".").mkdirs();
-        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(input))) {
-            ToBinary.apply(out, config);
-        } catch (IOException e) {
-            throw KEMException.internalError("Could not write to file in temp directory.", e);
-        }
+        long start = System.nanoTime();
+        ToBinary.apply(input, config);
+        printThroughput("Write configuration to KAST binary", input, start);
         config = null; // so that the initial configuration can be garbage collected
         File output = files.resolveTemp("run.out");
         int exit = rewriter.execOcaml(files.resolveTemp("."),
@@ -70,12 +67,17 @@ public class InterpreterExecutionMode implements ExecutionMode {
                 "--depth", options.depth == null ? "-1" : options.depth.toString()
                 );
 
-        try (FileChannel channel = FileChannel.open(output.toPath())) {
-            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
-            K result = BinaryParser.parse(buf);
-            return Tuple2.apply(result, exit);
-        } catch (IOException e) {
-            throw KEMException.internalError("Could not read from file in temp directory.", e);
+        start = System.nanoTime();
+        K result = BinaryParser.parse(output);
+        printThroughput("Read configuration from KAST binary", output, start);
+        return Tuple2.apply(result, exit);
+    }
+
+    private void printThroughput(String message, File file, long start) {
+        if (globalOptions.verbose) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double megabytes = file.length() / (1024.0 * 1024.0);
+            System.out.format("%s: %.1f MB in %.3f s (%.1f MB/s)%n", message, megabytes, seconds, megabytes / seconds);
         }
     }
 }